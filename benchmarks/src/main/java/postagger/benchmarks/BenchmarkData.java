@@ -0,0 +1,148 @@
+package postagger.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import postagger.compute.PosModeler;
+import postagger.structures.AnalyzedData;
+import postagger.utils.FileHandler;
+
+
+/**
+ * Helper class that locates and loads the datasets
+ * bundled with the tagger (src/data) for the benchmarks.
+ *
+ * The data directory is taken from the 'postagger.data'
+ * system property, or else looked up relative to the
+ * working directory (the repository root or the
+ * benchmarks directory).
+ *
+ * @author David Olorundare
+ *
+ */
+final class BenchmarkData
+{
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Private Constructor of the BenchmarkData class.
+	 */
+	private BenchmarkData(){	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Reads the whole of a training dataset ("tiny" or "WSJ").
+	 *
+	 * @param corpus	name of the corpus.
+	 *
+	 * @return the text of the training dataset.
+	 *
+	 * @throws IOException	if the dataset cannot be read.
+	 */
+	static String readTrainingText(String corpus) throws IOException
+	{
+		return readText(Paths.get("train", corpus + "-train.txt"));
+	}
+
+
+	/**
+	 * Returns the path of a training dataset ("tiny" or "WSJ").
+	 *
+	 * @param corpus	name of the corpus.
+	 *
+	 * @return the path of the training dataset file.
+	 *
+	 * @throws IOException	if the dataset cannot be found.
+	 */
+	static Path trainingFile(String corpus) throws IOException
+	{
+		return dataFile(Paths.get("train", corpus + "-train.txt"));
+	}
+
+
+	/**
+	 * Reads the sentences of a test dataset ("tiny" or "WSJ").
+	 *
+	 * @param corpus	name of the corpus.
+	 *
+	 * @return the token lines of each sentence of the test dataset.
+	 *
+	 * @throws IOException	if the dataset cannot be read.
+	 */
+	static ArrayList<String[]> readTestSentences(String corpus) throws IOException
+	{
+		ArrayList<String[]> sentences = new ArrayList<String[]>();
+		BufferedReader reader = new BufferedReader(new StringReader(readText(Paths.get("test", corpus + "-test.txt"))));
+		String[] sentence;
+		while ( (sentence = FileHandler.readSentence(reader)) != null ) { sentences.add(sentence); }
+		return sentences;
+	}
+
+
+	/**
+	 * Builds the (smoothed) tag/state model of a training dataset.
+	 *
+	 * @param corpus	name of the corpus.
+	 *
+	 * @return the finalized tag/state model.
+	 *
+	 * @throws IOException	if the dataset cannot be read.
+	 */
+	static AnalyzedData buildModel(String corpus) throws IOException
+	{
+		return PosModeler.getInstance().buildModel(new BufferedReader(new StringReader(readTrainingText(corpus))), true);
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that reads a file of the data directory.
+	 *
+	 * @param file	path of the file, relative to the data directory.
+	 *
+	 * @return the text of the file.
+	 *
+	 * @throws IOException	if the file cannot be found or read.
+	 */
+	private static String readText(Path file) throws IOException
+	{
+		return new String(Files.readAllBytes(dataFile(file)), StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Helper method that locates a file of the data directory.
+	 *
+	 * @param file	path of the file, relative to the data directory.
+	 *
+	 * @return the path of the file.
+	 *
+	 * @throws IOException	if the file cannot be found.
+	 */
+	private static Path dataFile(Path file) throws IOException
+	{
+		String configured = System.getProperty("postagger.data");
+		Path[] candidates = (configured != null) ? new Path[] { Paths.get(configured) }
+				: new Path[] { Paths.get("src", "data"), Paths.get("..", "src", "data") };
+
+		for (Path directory : candidates)
+		{
+			if (Files.isRegularFile(directory.resolve(file))) { return directory.resolve(file); }
+		}
+		throw new IOException("Cannot find the dataset " + file + " (set -Dpostagger.data=<path to src/data>)");
+	}
+
+}
@@ -0,0 +1,137 @@
+package postagger.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import postagger.compute.SentenceTagger;
+import postagger.compute.TagDecoder;
+import postagger.compute.TrigramDecoder;
+import postagger.compute.ViterbiDecoder;
+import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
+import postagger.structures.TaggedToken;
+import postagger.structures.UnknownWordModel;
+
+
+/**
+ * Measures the latency of tagging a single sentence
+ * with the WSJ model, across sentence lengths: the
+ * Viterbi decode alone (on word ids), and the whole
+ * of SentenceTagger.tagSentence (word lookups, decode
+ * and tagged tokens), exact and with a beam, with
+ * the bigram and the trigram tag/state model.
+ *
+ * Sentences of the requested length are cut from the
+ * consecutive tokens of the WSJ test dataset, and the
+ * benchmark cycles through several of them.
+ *
+ * @author David Olorundare
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark
+{
+
+	// Represents the number of distinct sentences the benchmark cycles through.
+	private static final int SENTENCES = 64;
+
+	// Represents the number of tokens in each sentence.
+	@Param({"5", "10", "20", "40", "80"})
+	public int length;
+
+	// Represents the beam width of the decoder; 0 decodes exactly.
+	@Param({"0", "4"})
+	public int beamWidth;
+
+	// Represents the order of the decoded tag/state model: 2 (bigram) or 3 (trigram).
+	@Param({"2", "3"})
+	public int tagOrder;
+
+	// Represents the token lines of each sentence.
+	private String[][] sentences;
+
+	// Represents the word ids of each sentence.
+	private int[][] wordIds;
+
+	// Represents the sentence tagger under test.
+	private SentenceTagger tagger;
+
+	// Represents the Viterbi decoder under test.
+	private TagDecoder decoder;
+
+	// Represents the POS tag ids assigned by the decoder.
+	private int[] tagIds;
+
+	// Represents the tagged tokens of the last sentence tagged.
+	private ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+
+	// Represents the index of the next sentence to tag.
+	private int next = 0;
+
+
+	@Setup
+	public void buildModel() throws IOException
+	{
+		AnalyzedData posModel = BenchmarkData.buildModel("WSJ");
+		DecoderSettings settings = new DecoderSettings();
+		settings.setBeamWidth(beamWidth); settings.setTagOrder(tagOrder);
+		UnknownWordModel unknownWords = new UnknownWordModel(posModel);
+		tagger = new SentenceTagger(posModel, true, settings, unknownWords, null);
+		decoder = (tagOrder == 3) ? new TrigramDecoder(posModel, true, settings, unknownWords, null) : new ViterbiDecoder(posModel, true, settings, unknownWords, null);
+		tagIds = new int[length];
+
+		ArrayList<String> tokens = new ArrayList<String>();
+		for (String[] sentence : BenchmarkData.readTestSentences("WSJ")) { tokens.addAll(Arrays.asList(sentence)); }
+
+		sentences = new String[SENTENCES][length]; wordIds = new int[SENTENCES][length];
+		for (int s = 0; s < SENTENCES; s++)
+		{
+			for (int i = 0; i < length; i++)
+			{
+				String token = tokens.get((s * length + i) % tokens.size());
+				sentences[s][i] = token;
+				String word = token.substring(0, token.indexOf(' '));
+				wordIds[s][i] = posModel.getWordIndex().getId(word);
+				if (wordIds[s][i] < 0) { wordIds[s][i] = unknownWords.getWordId(word); }
+			}
+		}
+	}
+
+
+	@Benchmark
+	public double decode()
+	{
+		next = (next + 1) % SENTENCES;
+		return decoder.decode(wordIds[next], length, tagIds);
+	}
+
+
+	@Benchmark
+	public ArrayList<TaggedToken> tagSentence()
+	{
+		next = (next + 1) % SENTENCES;
+		tagged.clear();
+		tagger.tagSentence(sentences[next], tagged, null);
+		return tagged;
+	}
+
+}
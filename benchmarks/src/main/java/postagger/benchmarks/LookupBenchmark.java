@@ -0,0 +1,109 @@
+package postagger.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.EmissionTable;
+import postagger.structures.SymbolIndex;
+import postagger.structures.TransitionMatrix;
+
+
+/**
+ * Measures the cost of a single look-up in the WSJ
+ * model: an emission count, a transition probability
+ * and a vocabulary (word id) look-up, each over a
+ * fixed random sample of keys.
+ *
+ * @author David Olorundare
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark
+{
+
+	// Represents the number of keys looked up per benchmark invocation.
+	private static final int LOOKUPS = 1024;
+
+	// Represents the word-tag emission counts of the model.
+	private EmissionTable emissions;
+
+	// Represents the log transition probabilities of the model.
+	private TransitionMatrix transitions;
+
+	// Represents the vocabulary of the model.
+	private SymbolIndex vocabulary;
+
+	// Represents the sampled word ids, tag ids and words.
+	private int[] wordIds = new int[LOOKUPS];
+	private int[] tagIds = new int[LOOKUPS];
+	private int[] previousTagIds = new int[LOOKUPS];
+	private String[] words = new String[LOOKUPS];
+
+
+	@Setup
+	public void buildModel() throws IOException
+	{
+		AnalyzedData posModel = BenchmarkData.buildModel("WSJ");
+		emissions = posModel.getEmissionCounts(); transitions = posModel.getTransitionMatrix(); vocabulary = posModel.getWordIndex();
+
+		Random random = new Random(42);
+		for (int i = 0; i < LOOKUPS; i++)
+		{
+			wordIds[i] = random.nextInt(vocabulary.size());
+			tagIds[i] = random.nextInt(transitions.getTagTotal());
+			previousTagIds[i] = random.nextInt(transitions.getTagTotal() + 1);
+			// Copy the word, so the look-up hashes and compares it like a word read from a dataset.
+			words[i] = new String(vocabulary.getSymbol(wordIds[i]).toCharArray());
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public long emissionCount()
+	{
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++) { sum += emissions.getCount(wordIds[i], tagIds[i]); }
+		return sum;
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public double transitionProbability()
+	{
+		double sum = 0;
+		for (int i = 0; i < LOOKUPS; i++) { sum += transitions.getLogProbability(tagIds[i], previousTagIds[i]); }
+		return sum;
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public long vocabularyId()
+	{
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++) { sum += vocabulary.getId(words[i]); }
+		return sum;
+	}
+
+}
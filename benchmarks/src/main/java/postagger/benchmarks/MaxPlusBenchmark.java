@@ -0,0 +1,152 @@
+package postagger.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import postagger.compute.MaxPlusKernel;
+import postagger.compute.ScalarMaxPlusKernel;
+import postagger.structures.AnalyzedData;
+import postagger.structures.TransitionMatrix;
+
+
+/**
+ * Measures one step of the Viterbi recurrence with
+ * the WSJ model (the best previous tag of a cell),
+ * across the number of candidate tags of the previous
+ * column: over the candidates alone, and over the
+ * whole column with the scalar and the vectorized
+ * MaxPlusKernel. As in the decoder, every tag of a
+ * column is scored from the same previous column, so
+ * the column and the transition matrix stay cached.
+ *
+ * The benchmark JVM is started with the Vector API
+ * module and the vectorized kernel selected, so
+ * 'vector' measures it (it reports the kernel it
+ * runs if not).
+ *
+ * @author David Olorundare
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector", "-Dpostagger.vectorKernel=true" })
+public class MaxPlusBenchmark
+{
+
+	// Represents the number of distinct previous columns the cells are scored from.
+	private static final int COLUMNS = 16;
+
+	// Represents the number of POS tags of the WSJ model, so the number of cells scored from each column.
+	private static final int WSJ_TAGS = 44;
+
+	// Represents the number of cells scored per benchmark invocation.
+	private static final int CELLS = COLUMNS * WSJ_TAGS;
+
+	// Represents the number of candidate tags in each previous column.
+	@Param({"2", "8", "16", "32", "44"})
+	public int candidates;
+
+	// Represents the previous columns, their candidate tags (ascending), and the transition row of each follow tag.
+	private double[][] columns = new double[COLUMNS][];
+	private int[][] columnTags = new int[COLUMNS][];
+	private double[][] rows = new double[WSJ_TAGS][];
+
+	// Represents the number of POS tags of the model.
+	private int tagTotal;
+
+	// Represents the kernels under test.
+	private MaxPlusKernel scalar = new ScalarMaxPlusKernel();
+	private MaxPlusKernel vector = MaxPlusKernel.getInstance();
+
+
+	@Setup
+	public void buildModel() throws IOException
+	{
+		if (!vector.isVectorized()) { System.out.println("The Vector API is not available; 'vector' runs the scalar kernel."); }
+		AnalyzedData posModel = BenchmarkData.buildModel("WSJ");
+		TransitionMatrix transitions = posModel.getTransitionMatrix();
+		tagTotal = transitions.getTagTotal();
+		if (tagTotal != WSJ_TAGS) { throw new IllegalStateException("The WSJ model has " + tagTotal + " POS tags, not " + WSJ_TAGS); }
+		for (int tag = 0; tag < tagTotal; tag++) { rows[tag] = transitions.getRow(tag); }
+
+		Random random = new Random(42);
+		for (int column = 0; column < COLUMNS; column++)
+		{
+			// A column scores its candidate tags; every other tag has a zero probability.
+			int[] tags = random.ints(0, tagTotal).distinct().limit(Math.min(candidates, tagTotal)).sorted().toArray();
+			double[] scores = new double[tagTotal];
+			Arrays.fill(scores, Double.NEGATIVE_INFINITY);
+			for (int tag : tags) { scores[tag] = -20 * random.nextDouble(); }
+
+			columns[column] = scores; columnTags[column] = tags;
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public int candidates()
+	{
+		int sum = 0;
+		for (int column = 0; column < COLUMNS; column++)
+		{
+			double[] previous = columns[column]; int[] previousTags = columnTags[column];
+			for (double[] row : rows)
+			{
+				double maxValue = Double.NEGATIVE_INFINITY; int maxTag = 0;
+				for (int tag : previousTags)
+				{
+					double value = previous[tag] + row[tag];
+					if (value > maxValue) { maxValue = value; maxTag = tag; }
+				}
+				sum += maxTag;
+			}
+		}
+		return sum;
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public int scalar()
+	{
+		int sum = 0;
+		for (int column = 0; column < COLUMNS; column++)
+		{
+			for (double[] row : rows) { sum += scalar.argMaxPlus(columns[column], row, tagTotal); }
+		}
+		return sum;
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public int vector()
+	{
+		int sum = 0;
+		for (int column = 0; column < COLUMNS; column++)
+		{
+			for (double[] row : rows) { sum += vector.argMaxPlus(columns[column], row, tagTotal); }
+		}
+		return sum;
+	}
+
+}
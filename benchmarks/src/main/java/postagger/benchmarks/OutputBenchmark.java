@@ -0,0 +1,80 @@
+package postagger.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import postagger.compute.SentenceTagger;
+import postagger.structures.AnalyzedData;
+import postagger.structures.TaggedToken;
+import postagger.utils.OutputPrinter;
+
+
+/**
+ * Measures the cost of formatting a whole tagged test
+ * dataset (tagged lines, accuracy counts and statistics)
+ * with OutputPrinter, written to a discarding writer so
+ * that only the formatting is measured.
+ *
+ * @author David Olorundare
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark
+{
+
+	// Represents the test dataset that is tagged and formatted.
+	@Param({"tiny", "WSJ"})
+	public String corpus;
+
+	// Represents the model the test dataset was tagged with.
+	private AnalyzedData posModel;
+
+	// Represents the tagged tokens of each sentence of the test dataset.
+	private ArrayList<ArrayList<TaggedToken>> taggedSentences = new ArrayList<ArrayList<TaggedToken>>();
+
+
+	@Setup
+	public void tagTestData() throws IOException
+	{
+		posModel = BenchmarkData.buildModel(corpus);
+		SentenceTagger tagger = new SentenceTagger(posModel, true);
+		for (String[] sentence : BenchmarkData.readTestSentences(corpus))
+		{
+			ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+			tagger.tagSentence(sentence, tagged, null);
+			taggedSentences.add(tagged);
+		}
+		posModel.setTestDataSentenceCount(taggedSentences.size());
+	}
+
+
+	@Benchmark
+	public OutputPrinter formatTaggedData() throws IOException
+	{
+		OutputPrinter output = OutputPrinter.getInstance();
+		output.beginOutput(Writer.nullWriter(), Writer.nullWriter());
+		for (ArrayList<TaggedToken> sentence : taggedSentences) { output.sentenceTagged(sentence); }
+		output.finishOutput(posModel);
+		return output;
+	}
+
+}
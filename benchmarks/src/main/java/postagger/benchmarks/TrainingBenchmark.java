@@ -0,0 +1,84 @@
+package postagger.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import postagger.compute.PosModeler;
+import postagger.structures.AnalyzedData;
+import postagger.utils.CorpusReader;
+
+
+/**
+ * Measures the throughput of building (counting and
+ * finalizing) the tag/state model of a training dataset
+ * with PosModeler.buildModel: parsed from text held in
+ * memory, and scanned from the memory-mapped dataset
+ * file (which stays in the page cache between runs).
+ *
+ * @author David Olorundare
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingBenchmark
+{
+
+	// Represents the training dataset the model is built from.
+	@Param({"tiny", "WSJ"})
+	public String corpus;
+
+	// Represents the number of threads the model is built on.
+	@Param({"1", "4"})
+	public int threads;
+
+	// Represents the text of the training dataset.
+	private String trainingText;
+
+	// Represents the training dataset file.
+	private Path trainingFile;
+
+
+	@Setup
+	public void readTrainingText() throws IOException
+	{
+		trainingText = BenchmarkData.readTrainingText(corpus);
+		trainingFile = BenchmarkData.trainingFile(corpus);
+	}
+
+
+	@Benchmark
+	public AnalyzedData buildModel() throws IOException
+	{
+		return PosModeler.getInstance().buildModel(new BufferedReader(new StringReader(trainingText)), true, threads);
+	}
+
+
+	@Benchmark
+	public AnalyzedData buildModelFromMappedFile() throws IOException
+	{
+		try (CorpusReader trainingCorpus = new CorpusReader(trainingFile))
+		{
+			return PosModeler.getInstance().buildModel(trainingCorpus, true, threads);
+		}
+	}
+
+}
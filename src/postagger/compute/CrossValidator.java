@@ -0,0 +1,294 @@
+package postagger.compute;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
+import postagger.structures.EvaluationCounts;
+import postagger.structures.TaggedToken;
+import postagger.structures.TrainingCounts;
+import postagger.utils.CorpusReader;
+
+
+/**
+ * This class evaluates the tagger on an annotated
+ * dataset by k-fold cross-validation: the sentences
+ * are split into k folds, and each fold is tagged
+ * with a model trained on the other folds.
+ *
+ * The dataset is read and counted once: sentence i
+ * goes to fold i mod k, whose counts (and held-out
+ * token lines) are kept in memory. The model of a
+ * fold is built by merging the counts of the other
+ * folds, so the folds are trained and evaluated
+ * concurrently on a shared pool of worker threads.
+ *
+ * @author David Olorundare
+ *
+ */
+public class CrossValidator
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the number of folds the dataset is split into.
+	private int foldCount;
+
+	// Represents option that determines if smoothing is enabled in the models of the folds.
+	private Boolean smoothingEnabled;
+
+	// Represents the options (e.g. beam, tag order) of the Viterbi decoding.
+	private DecoderSettings decoderSettings;
+
+	// Represents the evaluation of each fold's held-out sentences, indexed by fold.
+	private EvaluationCounts[] evaluations;
+
+	// Represents the number of training sentences of each fold's model, indexed by fold.
+	private int[] trainingSentences;
+
+	// Represents the wall-clock time taken to train and evaluate each fold, indexed by fold.
+	private long[] foldNanos;
+
+	// Represents the wall-clock time taken to cross-validate the dataset.
+	private long totalNanos;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 * @param foldCount	the number of folds the dataset is split into.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled in the models of the folds.
+	 *
+	 * @param settings	the options of the Viterbi decoders.
+	 *
+	 * @throws IllegalArgumentException	if there are fewer than 2 folds.
+	 */
+	public CrossValidator(int foldCount, Boolean smoothingEnabled, DecoderSettings settings)
+	{
+		if (foldCount < 2) { throw new IllegalArgumentException("Cross-validation needs at least 2 folds: " + foldCount); }
+		this.foldCount = foldCount;
+		this.smoothingEnabled = smoothingEnabled;
+		this.decoderSettings = settings;
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Splits an annotated dataset into folds, and trains
+	 * and evaluates the folds on a pool of worker threads.
+	 *
+	 * @param corpus	the reader of the annotated dataset.
+	 *
+	 * @param threads	the number of worker threads; 1 evaluates the folds on the calling thread.
+	 *
+	 * @throws IOException	if an error occurs while reading the dataset, or evaluating a fold.
+	 * @throws IllegalArgumentException	if the dataset has fewer sentences than folds.
+	 */
+	public void validate(CorpusReader corpus, int threads) throws IOException
+	{
+		long startNanos = System.nanoTime();
+
+		// Count each fold, and keep the token lines of its sentences, in a single pass over the dataset.
+		TrainingCounts[] foldCounts = new TrainingCounts[foldCount];
+		ArrayList<ArrayList<String[]>> foldSentences = new ArrayList<ArrayList<String[]>>();
+		for (int fold = 0; fold < foldCount; fold++) { foldCounts[fold] = new TrainingCounts(); foldSentences.add(new ArrayList<String[]>()); }
+
+		int sentenceCount = 0;
+		while (corpus.nextSentence())
+		{
+			if (corpus.getTokenCount() == 0) { continue; }
+			int fold = sentenceCount++ % foldCount;
+			foldCounts[fold].addSentence(corpus);
+
+			String[] tokens = new String[corpus.getTokenCount()];
+			for (int i = 0; i < tokens.length; i++) { tokens[i] = corpus.getLine(i); }
+			foldSentences.get(fold).add(tokens);
+		}
+		if (sentenceCount < foldCount) { throw new IllegalArgumentException("The dataset has fewer sentences (" + sentenceCount + ") than folds (" + foldCount + ")"); }
+
+		evaluations = new EvaluationCounts[foldCount];
+		trainingSentences = new int[foldCount];
+		foldNanos = new long[foldCount];
+		if (threads <= 1)
+		{
+			for (int fold = 0; fold < foldCount; fold++) { validateFold(fold, foldCounts, foldSentences.get(fold)); }
+		}
+		else
+		{
+			ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, foldCount));
+			ArrayList<Future<?>> pending = new ArrayList<Future<?>>();
+			try
+			{
+				for (int fold = 0; fold < foldCount; fold++)
+				{
+					int heldOut = fold;
+					pending.add(workers.submit(() -> validateFold(heldOut, foldCounts, foldSentences.get(heldOut))));
+				}
+				for (Future<?> result : pending) { result.get(); }
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while evaluating the folds", e);
+			}
+			catch (ExecutionException e) { throw new IOException("Failed to evaluate a fold", e.getCause()); }
+			finally { workers.shutdownNow(); }
+		}
+		totalNanos = System.nanoTime() - startNanos;
+	}
+
+
+	/**
+	 * Writes the accuracy and wall-clock time of each
+	 * fold, the mean and variance of the accuracies over
+	 * the folds, and the accuracy over all the folds.
+	 *
+	 * @param out	the writer receiving the report; it is flushed, not closed.
+	 *
+	 * @throws IOException	if an error occurs while writing.
+	 */
+	public void writeReport(Writer out) throws IOException
+	{
+		DecimalFormat precision = new DecimalFormat("0.00");
+		double[][] accuracies = new double[3][foldCount];
+		EvaluationCounts pooled = new EvaluationCounts();
+
+		out.write("Cross-validation (" + foldCount + " folds" + (smoothingEnabled ? ", smoothing" : "") + "):\n");
+		out.write("Fold\tTraining sentences\tTokens\tAccuracy\tKnown\tUnKnown\tTime (ms)\n");
+		for (int fold = 0; fold < foldCount; fold++)
+		{
+			EvaluationCounts evaluation = evaluations[fold];
+			pooled.merge(evaluation);
+			accuracies[0][fold] = percent(evaluation.getCorrectCount(), evaluation.getTokenCount());
+			accuracies[1][fold] = percent(evaluation.getCorrectCount() - evaluation.getUnknownCorrectCount(), evaluation.getTokenCount() - evaluation.getUnknownCount());
+			accuracies[2][fold] = percent(evaluation.getUnknownCorrectCount(), evaluation.getUnknownCount());
+
+			out.write((fold + 1) + "\t" + trainingSentences[fold] + "\t" + evaluation.getTokenCount() + "\t" + format(precision, accuracies[0][fold])
+					+ "\t" + format(precision, accuracies[1][fold]) + "\t" + format(precision, accuracies[2][fold]) + "\t" + precision.format(foldNanos[fold] / 1e6) + "\n");
+		}
+
+		// The variance is the sample variance of the fold accuracies; a fold without (e.g. unknown) tokens has none, and is left out.
+		String[] names = { "Accuracy", " - Known", " - UnKnown" };
+		out.write("\nMean (variance) over the folds:\n");
+		for (int metric = 0; metric < names.length; metric++)
+		{
+			int folds = 0;
+			double mean = 0, variance = 0;
+			for (double accuracy : accuracies[metric]) { if (!Double.isNaN(accuracy)) { folds++; mean += accuracy; } }
+			mean = (folds == 0) ? Double.NaN : mean / folds;
+			for (double accuracy : accuracies[metric]) { if (!Double.isNaN(accuracy)) { variance += (accuracy - mean) * (accuracy - mean); } }
+			variance = (folds < 2) ? Double.NaN : variance / (folds - 1);
+			out.write(names[metric] + ":\t" + format(precision, mean) + " (" + format(precision, variance) + ")"
+					+ ((folds < foldCount) ? " over " + folds + " folds" : "") + "\n");
+		}
+
+		out.write("\nAll folds:\t" + pooled.getCorrectCount() + "/" + pooled.getTokenCount() + " = "
+				+ format(precision, percent(pooled.getCorrectCount(), pooled.getTokenCount())) + "\n");
+		out.write("Total time (ms):\t" + precision.format(totalNanos / 1e6) + "\n");
+		out.flush();
+	}
+
+
+	/**
+	 * Helper method that returns the evaluation
+	 * of a fold's held-out sentences.
+	 *
+	 * @param fold	the index of the fold.
+	 *
+	 * @return the evaluation of the fold; null until the dataset is validated.
+	 */
+	public EvaluationCounts getEvaluation(int fold) { return (evaluations == null) ? null : evaluations[fold]; }
+
+
+	/**
+	 * Helper method that returns the wall-clock
+	 * time taken to train and evaluate a fold.
+	 *
+	 * @param fold	the index of the fold.
+	 *
+	 * @return the time taken by the fold, in nanoseconds.
+	 */
+	public long getFoldNanos(int fold) { return foldNanos[fold]; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that trains a model on every fold
+	 * but one, from the merged counts of those folds,
+	 * and evaluates it on the held-out fold.
+	 *
+	 * @param heldOut	the index of the held-out fold.
+	 *
+	 * @param foldCounts	the counts of each fold (read-only).
+	 *
+	 * @param sentences	the token lines of the sentences of the held-out fold.
+	 *
+	 */
+	private void validateFold(int heldOut, TrainingCounts[] foldCounts, ArrayList<String[]> sentences)
+	{
+		long startNanos = System.nanoTime();
+		TrainingCounts counts = new TrainingCounts();
+		for (int fold = 0; fold < foldCount; fold++)
+		{
+			if (fold != heldOut) { counts.merge(foldCounts[fold]); }
+		}
+		PosModeler modeler = PosModeler.getInstance();
+		AnalyzedData posModel = modeler.finalizeModel(modeler.createModel(counts), smoothingEnabled);
+
+		SentenceTagger tagger = new SentenceTagger(posModel, smoothingEnabled, decoderSettings);
+		EvaluationCounts evaluation = new EvaluationCounts();
+		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+		for (String[] tokens : sentences)
+		{
+			tagged.clear();
+			tagger.tagSentence(tokens, tagged, null);
+			for (TaggedToken token : tagged)
+			{
+				// The labelled tag is the second column of the token line.
+				int wordEnd = token.token.indexOf(' ');
+				int tagEnd = token.token.indexOf(' ', wordEnd + 1);
+				String labelled = token.token.substring(wordEnd + 1, (tagEnd < 0) ? token.token.length() : tagEnd);
+				evaluation.addToken(evaluation.getTagId(labelled), evaluation.getTagId(token.matrixData.rowX), token.unknownWord);
+			}
+		}
+
+		evaluations[heldOut] = evaluation;
+		trainingSentences[heldOut] = counts.getSentenceCount();
+		foldNanos[heldOut] = System.nanoTime() - startNanos;
+	}
+
+
+	/**
+	 * Helper method that returns a ratio
+	 * of counts as a percentage.
+	 *
+	 * @return the percentage; NaN if the total is 0.
+	 */
+	private static double percent(int count, int total) { return (total == 0) ? Double.NaN : (double) count / total * 100; }
+
+
+	/**
+	 * Helper method that formats a percentage,
+	 * or 'n/a' if it is undefined.
+	 *
+	 * @return the formatted percentage.
+	 */
+	private static String format(DecimalFormat precision, double value) { return Double.isNaN(value) ? "n/a" : precision.format(value); }
+
+}
@@ -0,0 +1,167 @@
+package postagger.compute;
+
+import java.io.IOException;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.TrainingCounts;
+import postagger.utils.CorpusReader;
+
+
+/**
+ * This class trains a tag/state model incrementally:
+ * newly annotated sentences are added to the counts
+ * of the sentences trained so far, and a new model is
+ * published from those counts on demand.
+ *
+ * A published model is a snapshot: it is built from
+ * a copy of the counts and finalized into its dense
+ * decoding tables, so it never changes afterwards.
+ * Readers pick up the latest snapshot atomically, and
+ * keep tagging with the snapshot they hold while the
+ * next one is built; adding sentences only waits for
+ * the counts to be copied.
+ *
+ * @author David Olorundare
+ *
+ */
+public class IncrementalTrainer
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the counts of every sentence trained so far (guarded by this trainer).
+	private TrainingCounts counts;
+
+	// Represents the number of sentences added since the last snapshot was published (guarded by this trainer).
+	private int pendingSentences = 0;
+
+	// Represents option that determines if smoothing is enabled in the published models.
+	private Boolean smoothingEnabled;
+
+	// Represents the lock ordering the publications, so a snapshot never replaces a newer one.
+	private final Object publishLock = new Object();
+
+	// Represents the latest published (finalized) model; null until the first publication.
+	private volatile AnalyzedData snapshot;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 * @param initialCounts	the counts of the sentences already trained (e.g. of a training dataset).
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled in the published models.
+	 *
+	 */
+	public IncrementalTrainer(TrainingCounts initialCounts, Boolean smoothingEnabled)
+	{
+		this.counts = initialCounts;
+		this.smoothingEnabled = smoothingEnabled;
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Adds the counts of an annotated sentence; they
+	 * are part of the next published snapshot.
+	 *
+	 * @param tokens	the token lines ("word TAG") of the sentence.
+	 *
+	 * @throws IllegalArgumentException	if a token line has no tag.
+	 */
+	public synchronized void addSentence(String[] tokens)
+	{
+		for (String token : tokens)
+		{
+			int wordEnd = token.indexOf(' ');
+			if (wordEnd <= 0 || wordEnd == token.length() - 1) { throw new IllegalArgumentException("Token without a tag: '" + token + "'"); }
+		}
+		if (tokens.length == 0) { return; }
+
+		counts.addSentence(tokens);
+		pendingSentences++;
+	}
+
+
+	/**
+	 * Adds the counts of every sentence of an annotated
+	 * dataset, read from its current position.
+	 *
+	 * @param corpus	the reader of the annotated dataset.
+	 *
+	 * @throws IOException	if an error occurs while reading the dataset.
+	 */
+	public synchronized void addSentences(CorpusReader corpus) throws IOException
+	{
+		while (corpus.nextSentence())
+		{
+			if (corpus.getTokenCount() == 0) { continue; }
+			counts.addSentence(corpus);
+			pendingSentences++;
+		}
+	}
+
+
+	/**
+	 * Builds a model from the counts of every sentence
+	 * trained so far, finalizes it, and publishes it as
+	 * the latest snapshot. Sentences may be added, and
+	 * earlier snapshots used, while the model is built.
+	 *
+	 * @return the published snapshot.
+	 *
+	 */
+	public AnalyzedData publish()
+	{
+		synchronized (publishLock)
+		{
+			TrainingCounts trained;
+			synchronized (this)
+			{
+				// The model shares (and freezes) the indexes of the counts it is built from, so build it from a copy.
+				trained = counts.copy();
+				pendingSentences = 0;
+			}
+
+			PosModeler modeler = PosModeler.getInstance();
+			AnalyzedData posModel = modeler.finalizeModel(modeler.createModel(trained), smoothingEnabled);
+			snapshot = posModel;
+			return posModel;
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the latest
+	 * published model.
+	 *
+	 * @return the latest snapshot; null if none was published.
+	 */
+	public AnalyzedData getSnapshot() { return snapshot; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * sentences added since the latest snapshot
+	 * was published.
+	 *
+	 * @return number of sentences not yet published.
+	 */
+	public synchronized int getPendingSentences() { return pendingSentences; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * sentences trained so far.
+	 *
+	 * @return number of sentences counted.
+	 */
+	public synchronized int getSentenceCount() { return counts.getSentenceCount(); }
+
+}
@@ -3,10 +3,23 @@ package postagger.compute;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import postagger.structures.AnalyzedData;
 import postagger.structures.BigramTag;
+import postagger.structures.SymbolIndex;
+import postagger.structures.TagDictionary;
+import postagger.structures.TrainingCounts;
+import postagger.structures.TransitionMatrix;
+import postagger.utils.CorpusReader;
+import postagger.utils.FileHandler;
+import postagger.utils.PipelineMetrics;
+import postagger.utils.TaggerEvents;
 
 
 /**
@@ -31,51 +44,14 @@ public final class PosModeler
 	
 	// Represents an instance to this class.
 	private volatile static PosModeler instance;
-
-	// Represents a stream of the training dataset.
-	private BufferedReader trainingData;	
-		
-	//==================================== POS MODELER VARIABLES ============================
- 	
- 	// Represents the number of tokens in the training dataset.
- 	private int tokenCount = 0;
- 	
- 	// Represents a list of the unique word-tokens in the training dataset.
- 	private ArrayList<String> uniqueTokens = new ArrayList<String>();
- 	
- 	// Represents the number of sentences in the training dataset.
-  	private int sentenceCount = 0; 
- 	
- 	// Represents a mapping between each tag to the words associated with it.
- 	private HashMap<String, ArrayList<String>> tagWord;
- 	
- 	// Represent a mapping between each tag and its occurrence rate in the training dataset.
- 	private HashMap<String, Integer> tagNumber;
- 	
- 	// Represents a mapping between each bigram-tag and its occurrence rate in the training dataset.
-  	private HashMap<BigramTag, Integer> bigramTags;
- 	
- 	// Represents a list of the unique tag-bigrams in the training dataset.
- 	private ArrayList<BigramTag> uniqueBigrams;
- 	
- 	// Represent a temporary list of all words associated with a given tag
- 	private ArrayList<String> tagWordList;
- 	
- 	// Represents a temporary list of all word-tag-tokens in a given sentence.
- 	private ArrayList<String> tempTrack;
- 	
- 	// Represents a variable that determines if smoothing is enabled on the bigram tag/state model.
- 	private Boolean smoothing = false;
- 	
- 	// Represents the default value used to initially fill the bigram tag/state model.
-  	private int modelDefaultFill = 0;
- 	
- 		//========================== OUTPUT VARIABLES =======================
- 	
- 	// Represents results from the language model operations performed in this session.
- 	AnalyzedData result = new AnalyzedData();
- 	
- 	
+	
+	// Represents the number of sentences counted by a worker thread as a single shard.
+	private static final int SHARD_SIZE = 1024;
+	
+	// Represents the number of shards that may be queued per worker thread before the reader waits.
+	private static final int SHARDS_IN_FLIGHT = 4;
+	
+	
 	//============================================ CONSTRUCTOR =============================================================
 	
 	
@@ -114,9 +90,9 @@ public final class PosModeler
 	/**
 	 * Performs creation of bigram tags models from
 	 * a given training dataset, with transition and
-	 * emission probabilities. Returned is a model-format
-	 * that is used by the subsequent HMM Viterbi system
-	 * to evaluate a given test dataset.
+	 * emission probabilities. Returned is a model-format,
+	 * finalized for decoding, that is used by the subsequent
+	 * HMM Viterbi system to evaluate a given test dataset.
 	 * 
 	 * @param	 trainingText	the dataset used to build the tag models.
 	 * 
@@ -130,174 +106,347 @@ public final class PosModeler
 	 */
 	public AnalyzedData buildModel(BufferedReader trainingText, Boolean smoothingEnabled) throws FileNotFoundException, IOException
 	{
-		trainingData = trainingText; String startTag = "<START>"; String stopTag = "<STOP>"; String lineRead = " ";
-		
-		tagWord = new HashMap<String, ArrayList<String>>(); tagNumber = new HashMap<String, Integer>(); 
-		bigramTags = new HashMap<BigramTag, Integer>(); uniqueBigrams = new ArrayList<BigramTag>();
-		
-		 tempTrack = new ArrayList<String>();
+		return buildModel(trainingText, smoothingEnabled, 1);
+	}
+	
+	
+	/**
+	 * Performs creation of bigram tags models from
+	 * a given training dataset, counting shards of the
+	 * dataset (split at sentence boundaries) on a pool
+	 * of worker threads, and merging their counts in
+	 * dataset order.
+	 * 
+	 * @param	 trainingText	the dataset used to build the tag models.
+	 * 
+	 * @param	 smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param	 threads	the number of worker threads; 1 counts the dataset on the calling thread.
+	 * 
+	 * @return	structure containing the built bigram tag/state models.
+	 * 
+	 * @throws	IOException	if an error occurs while reading or counting the dataset
+	 * @throws	FileNotFoundException  if data does not exist.
+	 * 
+	 */
+	public AnalyzedData buildModel(BufferedReader trainingText, Boolean smoothingEnabled, int threads) throws FileNotFoundException, IOException
+	{
+		PipelineMetrics.Span building = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.BUILD);
+		TaggerEvents.ModelBuild event = new TaggerEvents.ModelBuild();
+		event.begin();
+		TrainingCounts counts = new TrainingCounts();
 		
-		// Read each block of sentence in the dataset.
-		while ( (lineRead = trainingData.readLine()) != null  )
+		if (threads <= 1)
 		{
-			// Read tokens that make up the sentence.
-			// Beginning of sentence, add the Start-tag.
-			tempTrack.add(startTag);
-			while(true)
+			// Perform Emission and Transition counts on the tokens of each sentence in the dataset.
+			String[] sentence;
+			while ( (sentence = FileHandler.readSentence(trainingText)) != null ) { counts.addSentence(sentence); }
+		}
+		else
+		{
+			ExecutorService workers = Executors.newFixedThreadPool(threads);
+			ArrayDeque<Future<TrainingCounts>> pending = new ArrayDeque<Future<TrainingCounts>>();
+			try
 			{
-				// End of sentence reached, break and go to the next sentence.
-				if (lineRead.equals("")) { break; }
-				//
-				tempTrack.add(lineRead); tokenCount++;
-				// Add unique tokens to a list.
-				if ( !uniqueTokens.contains(lineRead.split(" ")[0]) ) { uniqueTokens.add(lineRead.split(" ")[0]); }
-				// Read the next token.
-				lineRead = trainingData.readLine();
+				ArrayList<String[]> shard;
+				while ( (shard = readShard(trainingText)) != null )
+				{
+					ArrayList<String[]> sentences = shard;
+					pending.add(workers.submit(() -> countShard(sentences)));
+					
+					// Merge finished shards in dataset order, bounding how much of the dataset is held in memory.
+					while (pending.size() > threads * SHARDS_IN_FLIGHT) { counts.merge(awaitShard(pending.poll())); }
+				}
+				while (!pending.isEmpty()) { counts.merge(awaitShard(pending.poll())); }
 			}
-			// Count this as a sentence encountered.
-			sentenceCount++;
-			// End of sentence, add the Stop-tag.
-			tempTrack.add(stopTag);
-			// Perform Emission and Transition counts on tokens in this sentence.
-			processTokens(tempTrack, smoothingEnabled );
-			// Clear the contents in the sentence storage, so as to restart with a new set of sentence tokens.
-			tempTrack.clear();
+			finally { workers.shutdownNow(); }
 		}
 		
-		// Calculate the number of POS tags in the training dataset.
-		tagNumber.put("<START>", sentenceCount);
-		int tagCount = 0;
-		for (String tag : tagNumber.keySet())
-		{
-			tagCount += tagNumber.get(tag);
-		}
-		tagCount -= sentenceCount;
+		AnalyzedData posModel = createModel(counts);
+		building.stop(counts.getSentenceCount(), counts.getTokenCount());
+		if (event.shouldCommit()) { event.sentences = counts.getSentenceCount(); event.tokens = counts.getTokenCount(); event.threads = threads; event.commit(); }
+		return finalizeModel(posModel, smoothingEnabled);
+	}
+	
+	
+	/**
+	 * Performs creation of bigram tags models from a
+	 * training dataset read from a memory-mapped file,
+	 * counted on a pool of worker threads (see countCorpus).
+	 * 
+	 * @param	 trainingCorpus	the reader of the dataset used to build the tag models.
+	 * 
+	 * @param	 smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param	 threads	the number of worker threads; 1 counts the dataset on the calling thread.
+	 * 
+	 * @return	structure containing the built bigram tag/state models.
+	 * 
+	 * @throws	IOException	if an error occurs while reading or counting the dataset
+	 * 
+	 */
+	public AnalyzedData buildModel(CorpusReader trainingCorpus, Boolean smoothingEnabled, int threads) throws IOException
+	{
+		PipelineMetrics.Span building = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.BUILD);
+		TaggerEvents.ModelBuild event = new TaggerEvents.ModelBuild();
+		event.begin();
+		TrainingCounts counts = countCorpus(trainingCorpus, threads);
 		
-		// Attach the emission and transition count models to a structure, and return it to the calling function for HMM-Viterbi computation.
-		// sentenceCount, uniqueTokens.size(), tokenCount, tagCount, tagNumber, tagWord, bigramTags, uniqueBigrams.size()
-		result.setSentenceCount(sentenceCount); result.setUniqueTokenCount(uniqueTokens.size()); result.setWordTokens(tokenCount);
-		result.setTagCount((tagCount + sentenceCount)); result.setTagWord(tagWord); result.setTagNumber(tagNumber);
-		result.setUniqueBigramsCount(uniqueBigrams.size()); result.setBigramTags(bigramTags);
-     
-		return result;
+		AnalyzedData posModel = createModel(counts);
+		building.stop(counts.getSentenceCount(), counts.getTokenCount());
+		if (event.shouldCommit()) { event.sentences = counts.getSentenceCount(); event.tokens = counts.getTokenCount(); event.threads = threads; event.commit(); }
+		return finalizeModel(posModel, smoothingEnabled);
 	}
 	
 	
 	/**
-	 * Simultaneously estimates the tag-transition and
-	 * tag-emission probability counts of word-tag-tokens
-	 * in a given sentence.
+	 * Performs the emission, transition and tag counts of
+	 * a training dataset read from a memory-mapped file,
+	 * counting shards of the dataset (split at sentence
+	 * boundaries) on a pool of worker threads, and merging
+	 * their counts in dataset order.
+	 * 
+	 * @param	 trainingCorpus	the reader of the dataset to count.
 	 * 
-	 * @param sentences	given sentence with word-tag-tokens.
+	 * @param	 threads	the number of worker threads; 1 counts the dataset on the calling thread.
+	 * 
+	 * @return	the counts of the dataset.
+	 * 
+	 * @throws	IOException	if an error occurs while reading or counting the dataset
 	 * 
-	 * @param smoothing	option that determines if smoothing is enabled.
 	 */
-	public void processTokens(ArrayList<String> sentences, Boolean smoothing)
+	public TrainingCounts countCorpus(CorpusReader trainingCorpus, int threads) throws IOException
 	{
-		int tokens = sentences.size();
-		int index = 0;
-		String[] sentenceTokens = new String[tokens];
-		for(String token : sentences)
+		TrainingCounts counts = new TrainingCounts();
+		
+		if (threads <= 1)
 		{
-			sentenceTokens[index] = token;
-			index++;
+			// Perform Emission and Transition counts on the tokens of each sentence in the dataset.
+			while (trainingCorpus.nextSentence()) { counts.addSentence(trainingCorpus); }
 		}
-		tagEmissionProbability(sentenceTokens, smoothing);
-		tagTransitionProbability(sentenceTokens, smoothing);
+		else
+		{
+			ExecutorService workers = Executors.newFixedThreadPool(threads);
+			ArrayDeque<Future<TrainingCounts>> pending = new ArrayDeque<Future<TrainingCounts>>();
+			try
+			{
+				CorpusReader shard;
+				while ( (shard = trainingCorpus.nextSentences(SHARD_SIZE)) != null )
+				{
+					CorpusReader sentences = shard;
+					pending.add(workers.submit(() -> countShard(sentences)));
+					
+					// Merge finished shards in dataset order, bounding how many shard counts are held in memory.
+					while (pending.size() > threads * SHARDS_IN_FLIGHT) { counts.merge(awaitShard(pending.poll())); }
+				}
+				while (!pending.isEmpty()) { counts.merge(awaitShard(pending.poll())); }
+			}
+			finally { workers.shutdownNow(); }
+		}
+		return counts;
 	}
 	
 	
 	/**
-	 * Estimates tag-emission probability count of word-tag-tokens
-	 * in a given sentence.
+	 * Attaches the emission and transition counts of a
+	 * training dataset to a tag/state model structure,
+	 * along with the (interpolated) trigram transition
+	 * probabilities.
 	 * 
-	 * @param sentences	given sentence with word-tag-tokens.
+	 * @param	 counts	the counts of the training dataset.
 	 * 
-	 * @param smoothing	option that determines if smoothing is enabled.
+	 * @return	structure containing the (not yet finalized) bigram tag/state models.
 	 * 
 	 */
-	public void tagEmissionProbability(String[] sentences, Boolean smoothing)
+	public AnalyzedData createModel(TrainingCounts counts)
 	{
-		// Add Laplace smoothing if it is enabled
-		// Which adds +1 to all bigram POS tags.
-		if (smoothing) { modelDefaultFill = 1;} 
+		String startTag = "<START>"; String stopTag = "<STOP>";
+		SymbolIndex tags = counts.getTagIndex();
+		int sentenceCount = counts.getSentenceCount();
 		
-		String tag = " "; String word = " ";
-	
-		for(String gram: sentences)
+		// Represent a mapping between each tag and its occurrence rate in the training dataset.
+		HashMap<String, Integer> tagNumber = new HashMap<String, Integer>();
+		// Represents a mapping between each bigram-tag and its occurrence rate in the training dataset.
+		HashMap<BigramTag, Integer> bigramTags = new HashMap<BigramTag, Integer>();
+		
+		// Calculate the number of POS tags in the training dataset.
+		int tagCount = 0;
+		for (int tag = 0; tag < tags.size(); tag++)
 		{
-			if ( gram.equals("<START>") || gram.equals("<STOP>")){ continue; }
-			word = gram.split(" ")[0];
-			tag = gram.split(" ")[1];
-			
-			// Increment the count of the tag.
-			if( tagNumber.containsKey(tag) ){ tagNumber.put(tag, (tagNumber.get(tag)+1) ); }
-			else { tagNumber.put(tag, (1+modelDefaultFill));  }
+			tagNumber.put(tags.getSymbol(tag), counts.getTagCount(tag));
+			tagCount += counts.getTagCount(tag);
 			
-			// Add to the list of words associated with the tag.
-			if (tagWord.containsKey(tag))
+			putBigram(bigramTags, startTag, tags.getSymbol(tag), counts.getStartCount(tag));
+			putBigram(bigramTags, tags.getSymbol(tag), stopTag, counts.getStopCount(tag));
+			for (int follow = 0; follow < tags.size(); follow++)
 			{
-				tagWordList = tagWord.get(tag);
-				tagWordList.add(word);
-				tagWord.put(tag, tagWordList);
+				putBigram(bigramTags, tags.getSymbol(tag), tags.getSymbol(follow), counts.getTransitionCount(tag, follow));
 			}
-			else { tagWordList = new ArrayList<String>(); tagWordList.add(word); tagWord.put(tag, tagWordList); }
 		}
+		tagNumber.put(startTag, sentenceCount);
+		SymbolIndex wordIndex = counts.getWordIndex();
+		
+		// Attach the emission and transition count models to a structure, and return it to the calling function for HMM-Viterbi computation.
+		AnalyzedData result = new AnalyzedData();
+		result.setSentenceCount(sentenceCount); result.setUniqueTokenCount(wordIndex.size()); result.setWordTokens(counts.getTokenCount());
+		result.setTagCount((tagCount + sentenceCount)); result.setTagNumber(tagNumber);
+		result.setTagIndex(tags); result.setWordIndex(wordIndex); result.setEmissionCounts(counts.getEmissionCounts());
+		result.setUniqueBigramsCount(bigramTags.size()); result.setBigramTags(bigramTags);
+		
+		// The trigram model interpolates its own estimates, so it does not depend on smoothing; it is only built if used.
+		result.setTrigramCounts(counts);
+		return result;
 	}
-
+	
 	
 	/**
-	 * Estimates tag-transition probability count of word-tag-tokens	
-	 * in a given sentence. Adds Laplace (add-one) smoothing to
-	 * the bigram tag count, if enabled.
+	 * Finalizes a built tag/state model for decoding, by
+	 * turning its bigram-tag and tag counts into a dense
+	 * matrix of log transition probabilities between tag ids.
+	 * Adds Laplace (add-one) smoothing to every bigram tag
+	 * count, if enabled. The tag dictionary of the known
+	 * words and the emission model of unknown words are
+	 * computed from the emission counts.
 	 * 
-	 * @param sentences	given sentence with word-tag-tokens.
+	 * @param	 posModel	the model holding the bigram tag and tag counts.
 	 * 
-	 * @param smoothing	option that determines if smoothing is enabled.
+	 * @param	 smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @return	the model, with its transition matrix set.
 	 * 
 	 */
-	public void tagTransitionProbability(String[] sentences, Boolean smoothing)
+	public AnalyzedData finalizeModel(AnalyzedData posModel, Boolean smoothingEnabled)
 	{
-		// Add Laplace smoothing if it is enabled
-		// Which adds +1 to all bigram POS tags.
-		if (smoothing) { modelDefaultFill = 1;} 
+		PipelineMetrics.Span finalizing = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.FINALIZE);
+		SymbolIndex tags = posModel.getTagIndex();
+		int tagTotal = tags.size();
+		TransitionMatrix transitions = new TransitionMatrix(tagTotal);
 		
-		String firstTag = " "; String secondTag = " ";
-		BigramTag bTags;
-		Boolean stopValue = false;
+		// Laplace (add-one) smoothing adds one to every bigram count, and 'V' (the number
+		// of states that can follow a tag: the POS tags plus <STOP>) to the denominator.
+		int addOne = smoothingEnabled ? 1 : 0;
+		int tagTypes = smoothingEnabled ? (tagTotal + 1) : 0;
 		
-		for( int i = 0; i < sentences.length; i++)
+		BigramTag bTag = new BigramTag();
+		for (int previous = 0; previous <= tagTotal; previous++)
 		{
-			bTags = new BigramTag();
-			// first word is either a startTag or token.
-			if(sentences[i].equals("<START>")) { firstTag = sentences[i]; }
-			else{ firstTag = sentences[i].split(" ")[1]; }
-		
-			// second word is either a stopTag or token.
-			if(sentences[i+1].equals("<STOP>")) { secondTag = sentences[i+1]; stopValue = true; }
-			else{ secondTag = sentences[i+1].split(" ")[1]; }
-			bTags.setFirstTag(firstTag); bTags.setSecondTag(secondTag);
-			
-			// Increment the number of unique bigrams.
-			if ( !uniqueBigrams.contains(bTags)){ uniqueBigrams.add(bTags); }
+			bTag.setFirstTag( (previous == transitions.getStartIndex()) ? "<START>" : tags.getSymbol(previous) );
+			Integer previousTagCount = posModel.getTagNumber().get(bTag.getFirstTag());
+			int total = ((previousTagCount == null) ? 0 : previousTagCount) + tagTypes;
 			
-			// Increment the number of bigram(secondTag given firstTag) tags.
-			if( bigramTags.containsKey(bTags)){ bigramTags.put(bTags, (bigramTags.get(bTags)+1) ); if(stopValue) break; } 
-			else { bigramTags.put(bTags, (1+modelDefaultFill)); if(stopValue) break; }
+			for (int follow = 0; follow <= tagTotal; follow++)
+			{
+				bTag.setSecondTag( (follow == transitions.getStopIndex()) ? "<STOP>" : tags.getSymbol(follow) );
+				Integer transitionCount = posModel.getBigramTags().get(bTag);
+				int count = ((transitionCount == null) ? 0 : transitionCount) + addOne;
+				
+				transitions.setLogProbability(follow, previous, 
+						(count == 0 || total == 0) ? Double.NEGATIVE_INFINITY : Math.log(count) - Math.log(total));
+			}
 		}
+		
+		posModel.setTransitionMatrix(transitions); posModel.setSmoothingEnabled(smoothingEnabled);
+		posModel.setTagDictionary(new TagDictionary(posModel));
+		
+		// The vocabulary and tag set are read-only from here on; decoding only looks ids up, so the vocabulary moves off the heap.
+		posModel.getWordIndex().freeze(); tags.freeze();
+		posModel.getWordIndex().moveOffHeap();
+		finalizing.stop();
+		return posModel;
+	}
+	
+	
+	//============================================ PRIVATE METHODS =============================================================
+	
+	
+	/**
+	 * Helper method that records the count of a
+	 * bigram tag, if the bigram occurs.
+	 * 
+	 * @param bigramTags	mapping between each bigram-tag and its occurrence rate.
+	 * 
+	 * @param firstTag	the first POS tag in the bigram.
+	 * 
+	 * @param secondTag	the second POS tag in the bigram.
+	 * 
+	 * @param count	the occurrence count of the bigram.
+	 */
+	private void putBigram(HashMap<BigramTag, Integer> bigramTags, String firstTag, String secondTag, int count)
+	{
+		if (count == 0) { return; }
+		BigramTag bTags = new BigramTag();
+		bTags.setFirstTag(firstTag); bTags.setSecondTag(secondTag);
+		bigramTags.put(bTags, count);
 	}
 	
 	
 	/**
-	 * Helper method that returns a
-	 * list of the unique word tokens
-	 * in the training dataset.
-	 *  
-	 * @return list containing the unique tokens in the training dataset.
+	 * Reads the next shard of sentences in a training dataset.
+	 * 
+	 * @param trainingText	the training dataset.
+	 * 
+	 * @return the sentences of the shard, or null at the end of the dataset.
+	 * 
+	 * @throws IOException	if an error occurs while reading the dataset.
+	 */
+	private ArrayList<String[]> readShard(BufferedReader trainingText) throws IOException
+	{
+		ArrayList<String[]> shard = new ArrayList<String[]>(SHARD_SIZE);
+		String[] sentence;
+		while ( shard.size() < SHARD_SIZE && (sentence = FileHandler.readSentence(trainingText)) != null ) { shard.add(sentence); }
+		return shard.isEmpty() ? null : shard;
+	}
+	
+	
+	/**
+	 * Counts the emissions, transitions and tags of a
+	 * shard of sentences into tables local to the shard.
+	 * 
+	 * @param shard	the sentences of the shard.
+	 * 
+	 * @return the counts of the shard.
+	 */
+	private TrainingCounts countShard(ArrayList<String[]> shard)
+	{
+		TrainingCounts counts = new TrainingCounts();
+		for (String[] sentence : shard) { counts.addSentence(sentence); }
+		return counts;
+	}
+	
+	
+	/**
+	 * Counts the emissions, transitions and tags of a
+	 * shard of a memory-mapped dataset into tables local
+	 * to the shard.
+	 * 
+	 * @param shard	the reader of the sentences of the shard.
+	 * 
+	 * @return the counts of the shard.
+	 * 
+	 * @throws IOException	if an error occurs while reading the shard.
+	 */
+	private TrainingCounts countShard(CorpusReader shard) throws IOException
+	{
+		TrainingCounts counts = new TrainingCounts();
+		while (shard.nextSentence()) { counts.addSentence(shard); }
+		return counts;
+	}
+	
+	
+	/**
+	 * Waits for the counts of a shard to be computed.
+	 * 
+	 * @param shard	the counting task of the shard.
+	 * 
+	 * @return the counts of the shard.
+	 * 
+	 * @throws IOException	if the shard could not be counted.
 	 */
-	public ArrayList<String> getUniqueTokens()
+	private TrainingCounts awaitShard(Future<TrainingCounts> shard) throws IOException
 	{
-		return uniqueTokens;
+		try { return shard.get(); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new IOException("Interrupted while counting the training dataset", e); }
+		catch (ExecutionException e) { throw new IOException("Error counting the training dataset", e.getCause()); }
 	}
 	
 	
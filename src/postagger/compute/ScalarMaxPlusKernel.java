@@ -0,0 +1,55 @@
+package postagger.compute;
+
+
+/**
+ * This class implements the kernel of the Viterbi
+ * recurrence one tag at a time; it is the default
+ * kernel, unless the vectorized kernel is selected
+ * with '-Dpostagger.vectorKernel=true'.
+ *
+ * @author David Olorundare
+ *
+ */
+public final class ScalarMaxPlusKernel implements MaxPlusKernel
+{
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Returns the previous tag maximizing the score of the
+	 * previous column plus the log transition probability;
+	 * the first (lowest) such tag if several do, and 0 if
+	 * every sum is negative infinity.
+	 *
+	 * @param scores	the log probabilities of the previous column, indexed by tag id.
+	 *
+	 * @param transitionRow	the log transition probabilities to the follow tag, indexed by previous tag id.
+	 *
+	 * @param length	the number of tags to scan (from tag 0).
+	 *
+	 * @return the id of the best previous tag.
+	 */
+	@Override
+	public int argMaxPlus(double[] scores, double[] transitionRow, int length)
+	{
+		double maxValue = Double.NEGATIVE_INFINITY; int maxTag = 0;
+		for (int tag = 0; tag < length; tag++)
+		{
+			double value = scores[tag] + transitionRow[tag];
+			if (value > maxValue) { maxValue = value; maxTag = tag; }
+		}
+		return maxTag;
+	}
+
+
+	/**
+	 * Helper method that determines if the kernel
+	 * computes several tags at a time.
+	 *
+	 * @return false.
+	 */
+	@Override
+	public boolean isVectorized() { return false; }
+
+}
@@ -0,0 +1,297 @@
+package postagger.compute;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
+import postagger.structures.EmissionCache;
+import postagger.structures.MatrixCell;
+import postagger.structures.SymbolIndex;
+import postagger.structures.TaggedToken;
+import postagger.structures.UnknownWordModel;
+import postagger.utils.CorpusReader;
+import postagger.utils.PipelineMetrics;
+import postagger.utils.TaggerEvents;
+
+
+/**
+ * This class tags the tokens of one sentence at
+ * a time with a Viterbi decoder, looking each word
+ * up in the (read-only) vocabulary of the model.
+ *
+ * A sentence tagger owns its decoder and buffers and
+ * is not thread-safe; the model it reads is shared,
+ * so each thread tagging sentences uses its own
+ * instance.
+ *
+ * @author David Olorundare
+ *
+ */
+public class SentenceTagger
+{
+	//============================================ 	PRIVATE VARIABLES =============================================================
+
+
+	// Represents the vocabulary of the tag/state model.
+	private SymbolIndex vocabulary;
+
+	// Represents the emission model of the words not in the vocabulary.
+	private UnknownWordModel unknownWordModel;
+
+	// Represents the all the POS tags in the tag/state model, indexed by tag id.
+	private String[] posTags;
+
+	// Represents the Viterbi decoding engine (of the bigram or trigram model) and its probability matrix.
+	private TagDecoder decoder;
+
+	// Represents the word ids of the sentence currently being tagged.
+	private int[] wordIds = new int[64];
+
+	// Represents the POS tag ids assigned to the sentence currently being tagged.
+	private int[] tagIds = new int[64];
+
+	// Represents the number of unknown-word tokens in the sentence last tagged.
+	private int unknownCount;
+
+	// Represents the recorder of the latency of each sentence tagged.
+	private PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the SentenceTagger class.
+	 *
+	 * @param posModel	the finalized tag/state model used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 */
+	public SentenceTagger(AnalyzedData posModel, Boolean smoothingEnabled)
+	{
+		this(posModel, smoothingEnabled, new DecoderSettings());
+	}
+
+
+	/**
+	 * Constructor of the SentenceTagger class, decoding
+	 * with the given (e.g. beam, tag order) settings.
+	 *
+	 * @param posModel	the finalized tag/state model used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 * @param settings	the options of the Viterbi decoder.
+	 *
+	 */
+	public SentenceTagger(AnalyzedData posModel, Boolean smoothingEnabled, DecoderSettings settings)
+	{
+		this(posModel, smoothingEnabled, settings, new UnknownWordModel(posModel), null);
+	}
+
+
+	/**
+	 * Constructor of the SentenceTagger class, tagging
+	 * unknown words with the given model and cache, built
+	 * once for the taggers of all the tagging threads.
+	 *
+	 * @param posModel	the finalized tag/state model used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 * @param settings	the options of the Viterbi decoder.
+	 *
+	 * @param unknownWords	the emission model of the unknown words of the tag/state model.
+	 *
+	 * @param cache	the cache of candidates of the unknown words, or null for a cache of this tagger's own.
+	 *
+	 */
+	public SentenceTagger(AnalyzedData posModel, Boolean smoothingEnabled, DecoderSettings settings, UnknownWordModel unknownWords, EmissionCache cache)
+	{
+		vocabulary = posModel.getWordIndex();
+		unknownWordModel = unknownWords;
+		decoder = (settings.getTagOrder() == 3) ? new TrigramDecoder(posModel, smoothingEnabled, settings, unknownWords, cache)
+				: new ViterbiDecoder(posModel, smoothingEnabled, settings, unknownWords, cache);
+
+		SymbolIndex tags = posModel.getTagIndex();
+		posTags = new String[tags.size()];
+		for (int index = 0; index < posTags.length; index++)
+		{
+			posTags[index] = tags.getSymbol(index);
+		}
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Tags the list of tokens in a given sentence using the Viterbi algorithm.
+	 *
+	 * @param tokens	list of sentence tokens.
+	 *
+	 * @param tagged	list receiving each sentence token and the POS tag assigned to it.
+	 *
+	 * @param unknownWords	set receiving the tokens not in the training dataset, or null.
+	 *
+	 */
+	public void tagSentence(String[] tokens, ArrayList<TaggedToken> tagged, HashSet<String> unknownWords)
+	{
+		boolean measured = metrics.isEnabled();
+		long startBytes = measured ? metrics.getAllocatedBytes() : 0, startNanos = measured ? System.nanoTime() : 0;
+		TaggerEvents.SentenceDecode event = new TaggerEvents.SentenceDecode();
+		event.begin();
+		if (tokens.length > wordIds.length) { wordIds = new int[tokens.length * 2]; tagIds = new int[tokens.length * 2]; }
+
+		// Look up the id of each word; unknown words (not in the training dataset) get a negative id from their suffix and shape.
+		unknownCount = 0;
+		for (int i = 0; i < tokens.length; i++)
+		{
+			String word = getWord(tokens[i]);
+			wordIds[i] = vocabulary.getId(word);
+			if (wordIds[i] < 0)
+			{
+				wordIds[i] = getUnknownWordId(word);
+				if (unknownWords != null) { unknownWords.add(word); }
+			}
+		}
+
+		decoder.decode(wordIds, tokens.length, tagIds);
+
+		// Assign each sentence-token the POS tag on the most probable path through the matrix.
+		for (int i = 0; i < tokens.length; i++)
+		{
+			MatrixCell cell = new MatrixCell();
+			cell.rowX = posTags[tagIds[i]]; cell.ColY = getWord(tokens[i]); cell.cellValue = decoder.getScore(i, tagIds[i]);
+
+			TaggedToken token = new TaggedToken();
+			token.token = tokens[i]; token.matrixData = cell; token.unknownWord = (wordIds[i] < 0);
+			tagged.add(token);
+		}
+		if (measured) { recordSentence(tokens.length, startNanos, startBytes); }
+		if (event.shouldCommit()) { event.length = tokens.length; event.states = decoder.getStateCount(); event.unknownWords = unknownCount; event.commit(); }
+	}
+
+
+	/**
+	 * Tags the tokens of the current sentence of a dataset
+	 * reader using the Viterbi algorithm, looking the words
+	 * up directly from the dataset bytes.
+	 *
+	 * @param corpus	the dataset reader, positioned on a sentence.
+	 *
+	 * @param tagged	list receiving each sentence token and the POS tag assigned to it.
+	 *
+	 */
+	public void tagSentence(CorpusReader corpus, ArrayList<TaggedToken> tagged)
+	{
+		boolean measured = metrics.isEnabled();
+		long startBytes = measured ? metrics.getAllocatedBytes() : 0, startNanos = measured ? System.nanoTime() : 0;
+		TaggerEvents.SentenceDecode event = new TaggerEvents.SentenceDecode();
+		event.begin();
+		int length = corpus.getTokenCount();
+		if (length > wordIds.length) { wordIds = new int[length * 2]; tagIds = new int[length * 2]; }
+
+		// Look up the id of each word; unknown words (not in the training dataset) get a negative id from their suffix and shape.
+		ByteBuffer bytes = corpus.getBytes();
+		unknownCount = 0;
+		for (int i = 0; i < length; i++)
+		{
+			wordIds[i] = vocabulary.getId(bytes, corpus.getWordStart(i), corpus.getWordEnd(i));
+			if (wordIds[i] < 0) { wordIds[i] = getUnknownWordId(corpus.getWord(i)); }
+		}
+
+		decoder.decode(wordIds, length, tagIds);
+
+		// Assign each sentence-token the POS tag on the most probable path through the matrix.
+		for (int i = 0; i < length; i++)
+		{
+			MatrixCell cell = new MatrixCell();
+			cell.rowX = posTags[tagIds[i]]; cell.ColY = corpus.getWord(i); cell.cellValue = decoder.getScore(i, tagIds[i]);
+
+			TaggedToken token = new TaggedToken();
+			token.token = corpus.getLine(i); token.matrixData = cell; token.unknownWord = (wordIds[i] < 0);
+			tagged.add(token);
+		}
+		if (measured) { recordSentence(length, startNanos, startBytes); }
+		if (event.shouldCommit()) { event.length = length; event.states = decoder.getStateCount(); event.unknownWords = unknownCount; event.commit(); }
+	}
+
+
+	/**
+	 * Helper method that returns the number of states
+	 * the decoder scored to tag the last sentence.
+	 *
+	 * @return number of states evaluated.
+	 */
+	public int getStateCount() { return decoder.getStateCount(); }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * unknown-word tokens in the last sentence.
+	 *
+	 * @return number of out-of-vocabulary tokens.
+	 */
+	public int getUnknownCount() { return unknownCount; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that returns the (negative) id of an
+	 * unknown word, from the suffix/shape model, and counts
+	 * it among the unknown words of the sentence.
+	 *
+	 * @param word	a word not in the vocabulary.
+	 *
+	 * @return the id of the word's longest known suffix node, as a negative word id.
+	 */
+	private int getUnknownWordId(String word)
+	{
+		TaggerEvents.UnknownWord event = new TaggerEvents.UnknownWord();
+		event.begin();
+		int wordId = unknownWordModel.getWordId(word);
+		unknownCount++;
+		if (event.shouldCommit()) { event.word = word; event.suffixNode = -1 - wordId; event.commit(); }
+		return wordId;
+	}
+
+
+	/**
+	 * Helper method that records the latency, and the
+	 * bytes allocated, of tagging a sentence.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param startNanos	the time at which tagging the sentence started.
+	 *
+	 * @param startBytes	the bytes allocated by the thread when tagging the sentence started, or -1 if not measured.
+	 */
+	private void recordSentence(int length, long startNanos, long startBytes)
+	{
+		long nanos = System.nanoTime() - startNanos;
+		metrics.recordSentence(length, nanos, (startBytes < 0) ? -1 : metrics.getAllocatedBytes() - startBytes);
+	}
+
+
+	/**
+	 * Helper method that returns the word of a
+	 * given token line (its first column).
+	 *
+	 * @param token	a line of the dataset.
+	 *
+	 * @return the word of the token line.
+	 */
+	private String getWord(String token)
+	{
+		int end = token.indexOf(' ');
+		return (end < 0) ? token : token.substring(0, end);
+	}
+
+
+}
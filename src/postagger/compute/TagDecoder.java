@@ -0,0 +1,57 @@
+package postagger.compute;
+
+
+/**
+ * This interface is implemented by the Viterbi
+ * decoders, which compute the most probable
+ * sequence of POS tags of a sentence from the
+ * ids of its words.
+ *
+ * A decoder keeps its buffers between sentences
+ * and is not thread-safe.
+ *
+ * @author David Olorundare
+ *
+ */
+public interface TagDecoder
+{
+
+	/**
+	 * Computes the most probable sequence of POS tags for a sentence.
+	 *
+	 * @param wordIds	ids of the sentence tokens; a negative id denotes an unknown word.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param tagIds	array receiving the id of the POS tag assigned to each token.
+	 *
+	 * @return the log probability of the most probable tag sequence.
+	 *
+	 */
+	double decode(int[] wordIds, int length, int[] tagIds);
+
+
+	/**
+	 * Returns the score of the best path, computed
+	 * by the last call to decode, that assigns a
+	 * given POS tag to a given token.
+	 *
+	 * @param column	the token position in the sentence.
+	 *
+	 * @param tag	the id of the POS tag.
+	 *
+	 * @return log probability of the best path through that tag.
+	 */
+	double getScore(int column, int tag);
+
+
+	/**
+	 * Returns the number of states (tags, or tag pairs
+	 * of the trigram model) scored by the last call to
+	 * decode, before any pruning.
+	 *
+	 * @return number of states evaluated.
+	 */
+	int getStateCount();
+
+}
@@ -0,0 +1,43 @@
+package postagger.compute;
+
+import java.io.IOException;
+import java.util.List;
+
+import postagger.structures.EmissionCache;
+import postagger.structures.TaggedToken;
+
+
+/**
+ * This interface is implemented by the stages
+ * that consume the sentences tagged by the HMM
+ * Viterbi system, one sentence at a time and in
+ * the order of the test dataset, as soon as each
+ * sentence has been tagged.
+ * 
+ * @author David Olorundare
+ *
+ */
+public interface TaggedSentenceListener 
+{
+	
+	/**
+	 * Receives a sentence tagged by the HMM Viterbi system.
+	 * The list is only valid for the duration of the call.
+	 * 
+	 * @param sentence	the tokens of the sentence and the POS tags assigned to them.
+	 * 
+	 * @throws IOException	if an error occurs while consuming the sentence.
+	 */
+	void sentenceTagged(List<TaggedToken> sentence) throws IOException;
+	
+	
+	/**
+	 * Receives the cache of unknown word candidates of a
+	 * tagging run once every sentence has been tagged; its
+	 * hits and misses are those of the test dataset.
+	 * 
+	 * @param cache	the emission cache shared by the decoders of the run.
+	 */
+	default void taggingFinished(EmissionCache cache) { }
+	
+}
@@ -0,0 +1,493 @@
+package postagger.compute;
+
+import java.util.Arrays;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
+import postagger.structures.EmissionCache;
+import postagger.structures.SymbolIndex;
+import postagger.structures.TagDictionary;
+import postagger.structures.TrigramMatrix;
+import postagger.structures.UnknownWordModel;
+
+
+/**
+ * This class implements the second-order Viterbi
+ * decoding algorithm of the trigram tag/state model,
+ * in log space, with backpointers.
+ *
+ * A state of the trigram model is a (previous tag, tag)
+ * pair, so a full trellis has tagTotal * tagTotal states
+ * per token and each of them is extended from tagTotal
+ * states. Instead, the states of a column are kept in a
+ * sparse list, and only the pairs that can score are
+ * created: the tag of a known word is one of its candidate
+ * tags (see TagDictionary), the tag of an unknown word
+ * is one of the tags of the rare words in training (see
+ * UnknownWordModel), and the pair must be a tag bigram
+ * observed in training. Should no observed bigram
+ * join the candidates of two tokens, every candidate pair
+ * is created instead, so the sentence can still be tagged.
+ *
+ * The states of a column are grouped by their tag, so a
+ * state (t2, t3) is extended from the contiguous group of
+ * states (t1, t2) of the previous column.
+ *
+ * Decoding is exact (over the pruned state space) unless a
+ * beam is configured, in which case only the best states of
+ * each column (see DecoderSettings) are extended; the beam
+ * width then counts (previous tag, tag) states.
+ *
+ * @author David Olorundare
+ *
+ */
+public class TrigramDecoder implements TagDecoder
+{
+	//============================================ 	PRIVATE VARIABLES =============================================================
+
+
+	// Represents the number of POS tags in the tag/state model.
+	private int tagTotal;
+
+	// Represents the interpolated log transition probabilities of the trigram tag/state model.
+	private TrigramMatrix trigrams;
+
+	// Represents the candidate POS tags of unknown words, and the model of their emission log probabilities.
+	private UnknownWordModel unknownWordModel;
+
+	// Represent the candidate tags of the unknown words being scored, and their emission log probabilities; two
+	// buffers are used in turn, so those of the previous column stay valid while the current column is computed.
+	private int[][] unknownTags = new int[2][];
+	private double[][] unknownEmissions = new double[2][];
+	private int unknownBuffer;
+
+	// Represents the cache of unknown word candidates, shared with the decoders of the other tagging threads.
+	private EmissionCache emissionCache;
+
+	// Represents the candidate POS tags of each known word, and their emission log probabilities.
+	private TagDictionary tagDictionary;
+
+	// Represents the states of each column, indexed by [token][state]: the tag of the state, the
+	// tag before it, the score of the best path ending in the state, and the state of the previous
+	// column that path comes from.
+	private int[][] stateTags = new int[0][];
+	private int[][] statePrevious = new int[0][];
+	private double[][] scores = new double[0][];
+	private int[][] backPointers = new int[0][];
+
+	// Represents the number of states in each column.
+	private int[] stateCounts = new int[0];
+
+	// Represents, indexed by tag, the range of states of the previous column that end in the tag.
+	private int[] previousGroupStart, previousGroupEnd;
+
+	// Represents, indexed by tag, the range of states of the column being computed that end in the tag.
+	private int[] groupStart, groupEnd;
+
+	// Represents the candidate tags of the column being computed: the entries from 'candidateStart' to 'candidateEnd' of
+	// 'candidateTags', with their emission log probabilities at the same positions of 'candidateEmissions'.
+	private int[] candidateTags;
+	private double[] candidateEmissions;
+	private int candidateStart, candidateEnd;
+
+	// Represents the candidate tags of the previous column, in the same form.
+	private int[] previousTags;
+	private int previousStart, previousEnd;
+
+	// Represents the number of states scored by the last call to decode.
+	private int stateCount;
+
+	// Determines if states are pruned from each column (beam decoding).
+	private boolean pruning;
+
+	// Represents the maximum number of states kept per column.
+	private int beamWidth;
+
+	// Represents the log probability margin below the best state of a column at which states are kept.
+	private double beamThreshold;
+
+	// Represents a scratch copy of the scores of a column, used to find the beam width cutoff.
+	private double[] sortedScores = new double[0];
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the TrigramDecoder class.
+	 *
+	 * @param posModel	the tag/state model (with its trigram matrix) used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 * @param settings	the options of the decoder.
+	 *
+	 */
+	public TrigramDecoder(AnalyzedData posModel, Boolean smoothingEnabled, DecoderSettings settings)
+	{
+		this(posModel, smoothingEnabled, settings, new UnknownWordModel(posModel), null);
+	}
+
+
+	/**
+	 * Constructor of the TrigramDecoder class, scoring
+	 * unknown words with the given model and cache
+	 * (e.g. shared with the other tagging threads).
+	 *
+	 * @param posModel	the tag/state model (with its trigram matrix) used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 * @param settings	the options of the decoder.
+	 *
+	 * @param unknownWords	the emission model of the unknown words of the tag/state model.
+	 *
+	 * @param cache	the cache of candidates of the unknown words, or null for a cache of this decoder's own.
+	 *
+	 */
+	public TrigramDecoder(AnalyzedData posModel, Boolean smoothingEnabled, DecoderSettings settings, UnknownWordModel unknownWords, EmissionCache cache)
+	{
+		SymbolIndex tags = posModel.getTagIndex();
+		tagTotal = tags.size();
+		trigrams = posModel.getTrigramMatrix();
+		tagDictionary = (posModel.getTagDictionary() != null) ? posModel.getTagDictionary() : new TagDictionary(posModel);
+
+		unknownWordModel = unknownWords;
+		for (int buffer = 0; buffer < 2; buffer++) { unknownTags[buffer] = new int[unknownWordModel.size()]; unknownEmissions[buffer] = new double[unknownWordModel.size()]; }
+		emissionCache = (cache != null) ? cache : new EmissionCache(unknownWordModel, settings.getEmissionCacheSize());
+
+		previousGroupStart = new int[tagTotal]; previousGroupEnd = new int[tagTotal];
+		groupStart = new int[tagTotal]; groupEnd = new int[tagTotal];
+
+		pruning = !settings.isExact();
+		beamWidth = (settings.getBeamWidth() == 0) ? Integer.MAX_VALUE : settings.getBeamWidth();
+		beamThreshold = settings.getBeamThreshold();
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Computes the most probable sequence of POS tags for a sentence.
+	 *
+	 * @param wordIds	ids of the sentence tokens; a negative id denotes an unknown word.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param tagIds	array receiving the id of the POS tag assigned to each token.
+	 *
+	 * @return the log probability of the most probable tag sequence.
+	 *
+	 */
+	@Override
+	public double decode(int[] wordIds, int length, int[] tagIds)
+	{
+		stateCount = 0;
+		if (length == 0) { return 0.0; }
+		ensureCapacity(length);
+
+		computeStartingColumn(wordIds[0]);
+		for (int column = 1; column < length; column++)
+		{
+			computeColumn(column, wordIds[column]);
+		}
+		return backtrace(length, tagIds);
+	}
+
+
+	/**
+	 * Helper method that returns the number of states
+	 * scored by the last call to decode, before pruning.
+	 *
+	 * @return number of (tag pair) states evaluated.
+	 */
+	@Override
+	public int getStateCount() { return stateCount; }
+
+
+	/**
+	 * Helper method that returns the score of the best
+	 * path, computed by the last call to decode, that
+	 * ends in a given tag at a given token.
+	 *
+	 * @param column	the token position in the sentence.
+	 *
+	 * @param tag	the id of the POS tag.
+	 *
+	 * @return log probability of the best path ending in a state with the given tag.
+	 */
+	@Override
+	public double getScore(int column, int tag)
+	{
+		// The states of a column are grouped by tag in ascending tag id order; find the first state of the tag.
+		int[] tags = stateTags[column];
+		int low = 0, high = stateCounts[column];
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (tags[middle] < tag) { low = middle + 1; } else { high = middle; }
+		}
+
+		double best = Double.NEGATIVE_INFINITY;
+		for (int state = low; state < stateCounts[column] && tags[state] == tag; state++) { best = Math.max(best, scores[column][state]); }
+		return best;
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Computes the states of the first column, each
+	 * extending the (START, START) history.
+	 *
+	 * @param wordId	id of the first token of the sentence.
+	 *
+	 */
+	private void computeStartingColumn(int wordId)
+	{
+		loadCandidates(wordId);
+		reserveStates(0, candidateEnd - candidateStart);
+		int[] tags = stateTags[0], previous = statePrevious[0], pointers = backPointers[0]; double[] current = scores[0];
+		int start = trigrams.getStartIndex();
+		int count = 0;
+
+		// Create the observed (START, tag) states; if there are none, create every candidate state.
+		for (int pass = 0; pass < 2 && count == 0; pass++)
+		{
+			boolean observedOnly = (pass == 0);
+			for (int entry = candidateStart; entry < candidateEnd; entry++)
+			{
+				int tag = candidateTags[entry];
+				groupStart[tag] = count;
+				if (!observedOnly || trigrams.isObserved(start, tag))
+				{
+					tags[count] = tag; previous[count] = start; pointers[count] = -1;
+					current[count++] = trigrams.getLogProbability(tag, start, start) + candidateEmissions[entry];
+				}
+				groupEnd[tag] = count;
+			}
+		}
+		stateCounts[0] = count; stateCount += count;
+		if (pruning) { prune(0); }
+		shiftColumn();
+	}
+
+
+	/**
+	 * Computes the states of a column, each from the best
+	 * state of the previous column it can extend.
+	 *
+	 * @param column	the token position in the sentence.
+	 *
+	 * @param wordId	id of the token at that position.
+	 *
+	 */
+	private void computeColumn(int column, int wordId)
+	{
+		loadCandidates(wordId);
+		reserveStates(column, (candidateEnd - candidateStart) * (previousEnd - previousStart));
+		double[] previousScores = scores[column - 1]; int[] previousEarlier = statePrevious[column - 1];
+		int[] tags = stateTags[column], previous = statePrevious[column], pointers = backPointers[column]; double[] current = scores[column];
+		int count = 0;
+
+		// Create the states whose tag bigram was observed; if there are none, create every candidate state.
+		for (int pass = 0; pass < 2 && count == 0; pass++)
+		{
+			boolean observedOnly = (pass == 0);
+			for (int entry = candidateStart; entry < candidateEnd; entry++)
+			{
+				int tag = candidateTags[entry];
+				groupStart[tag] = count;
+				for (int index = previousStart; index < previousEnd; index++)
+				{
+					int previousTag = previousTags[index];
+					int first = previousGroupStart[previousTag], last = previousGroupEnd[previousTag];
+					if (first == last || (observedOnly && !trigrams.isObserved(previousTag, tag))) { continue; }
+
+					// Extend the best of the (earlier, previous) states of the previous column.
+					double[] transitionRow = trigrams.getRow(tag, previousTag);
+					double maxValue = previousScores[first] + transitionRow[previousEarlier[first]]; int maxState = first;
+					for (int state = first + 1; state < last; state++)
+					{
+						double value = previousScores[state] + transitionRow[previousEarlier[state]];
+						if (value > maxValue) { maxValue = value; maxState = state; }
+					}
+					tags[count] = tag; previous[count] = previousTag; pointers[count] = maxState;
+					current[count++] = maxValue + candidateEmissions[entry];
+				}
+				groupEnd[tag] = count;
+			}
+		}
+		stateCounts[column] = count; stateCount += count;
+		if (pruning) { prune(column); }
+		shiftColumn();
+	}
+
+
+	/**
+	 * Removes the states of a column that are not kept in the
+	 * beam: only the (at most beam width) best states scoring
+	 * within the beam threshold of the best state are kept.
+	 *
+	 * @param column	the token position of the column just computed.
+	 *
+	 */
+	private void prune(int column)
+	{
+		int count = stateCounts[column];
+		double[] columnScores = scores[column];
+		double best = Double.NEGATIVE_INFINITY;
+		for (int state = 0; state < count; state++) { best = Math.max(best, columnScores[state]); }
+		double floor = best - beamThreshold;
+
+		// States scoring above the cutoff are kept; states scoring exactly the cutoff fill the rest of the beam.
+		double cutoff = Double.NEGATIVE_INFINITY; int ties = Integer.MAX_VALUE;
+		if (count > beamWidth)
+		{
+			if (sortedScores.length < count) { sortedScores = new double[count * 2]; }
+			System.arraycopy(columnScores, 0, sortedScores, 0, count);
+			Arrays.sort(sortedScores, 0, count);
+			cutoff = sortedScores[count - beamWidth];
+			ties = beamWidth;
+			for (int state = 0; state < count; state++) { if (columnScores[state] > cutoff) { ties--; } }
+		}
+
+		// Compact the kept states, keeping them grouped by tag.
+		int kept = 0;
+		for (int entry = candidateStart; entry < candidateEnd; entry++)
+		{
+			int tag = candidateTags[entry];
+			int first = groupStart[tag], last = groupEnd[tag];
+			groupStart[tag] = kept;
+			for (int state = first; state < last; state++)
+			{
+				double score = columnScores[state];
+				if (score < floor || score < cutoff) { continue; }
+				if (score == cutoff) { if (ties == 0) { continue; } ties--; }
+				stateTags[column][kept] = tag; statePrevious[column][kept] = statePrevious[column][state];
+				columnScores[kept] = score; backPointers[column][kept] = backPointers[column][state];
+				kept++;
+			}
+			groupEnd[tag] = kept;
+		}
+		stateCounts[column] = kept;
+	}
+
+
+	/**
+	 * Follows the backpointers from the best final state to
+	 * recover the most probable tag sequence.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param tagIds	array receiving the id of the POS tag assigned to each token.
+	 *
+	 * @return the log probability of the most probable tag sequence.
+	 *
+	 */
+	private double backtrace(int length, int[] tagIds)
+	{
+		int last = length - 1; int stop = trigrams.getStopIndex();
+		double maxValue = Double.NEGATIVE_INFINITY; int maxState = 0;
+		for (int state = 0; state < stateCounts[last]; state++)
+		{
+			double value = scores[last][state] + trigrams.getLogProbability(stop, stateTags[last][state], statePrevious[last][state]);
+			if (value > maxValue) { maxValue = value; maxState = state; }
+		}
+
+		int state = maxState;
+		for (int column = last; column >= 0; column--)
+		{
+			tagIds[column] = stateTags[column][state];
+			state = backPointers[column][state];
+		}
+		return maxValue;
+	}
+
+
+	/**
+	 * Grows the state list of a column so it can
+	 * hold a given number of states.
+	 *
+	 * @param column	the token position in the sentence.
+	 *
+	 * @param count	the number of states the column must hold.
+	 *
+	 */
+	private void reserveStates(int column, int count)
+	{
+		if (count <= stateTags[column].length) { return; }
+
+		int capacity = Math.max(count, stateTags[column].length * 2);
+		stateTags[column] = Arrays.copyOf(stateTags[column], capacity); statePrevious[column] = Arrays.copyOf(statePrevious[column], capacity);
+		scores[column] = Arrays.copyOf(scores[column], capacity); backPointers[column] = Arrays.copyOf(backPointers[column], capacity);
+	}
+
+
+	/**
+	 * Selects the candidate tags of a word, with their
+	 * emission log probabilities, for the column being computed.
+	 *
+	 * @param wordId	id of the word; a negative id denotes an unknown word.
+	 *
+	 */
+	private void loadCandidates(int wordId)
+	{
+		if (wordId < 0 && emissionCache.isEnabled())
+		{
+			EmissionCache.Candidates candidates = emissionCache.get(wordId);
+			candidateTags = candidates.tags; candidateEmissions = candidates.logEmissions;
+			candidateStart = 0; candidateEnd = candidates.tags.length;
+			return;
+		}
+		if (wordId < 0)
+		{
+			unknownBuffer ^= 1;
+			candidateTags = unknownTags[unknownBuffer]; candidateEmissions = unknownEmissions[unknownBuffer];
+			candidateStart = 0; candidateEnd = unknownWordModel.computeCandidates(wordId, candidateTags, candidateEmissions);
+			return;
+		}
+		candidateTags = tagDictionary.getTags(); candidateEmissions = tagDictionary.getLogEmissions();
+		candidateStart = tagDictionary.getStart(wordId); candidateEnd = tagDictionary.getEnd(wordId);
+	}
+
+
+	/**
+	 * Makes the candidate tags and state groups of the
+	 * column just computed those of the previous column.
+	 *
+	 */
+	private void shiftColumn()
+	{
+		previousTags = candidateTags; previousStart = candidateStart; previousEnd = candidateEnd;
+		int[] swap = previousGroupStart; previousGroupStart = groupStart; groupStart = swap;
+		swap = previousGroupEnd; previousGroupEnd = groupEnd; groupEnd = swap;
+	}
+
+
+	/**
+	 * Grows the state lists so they can hold a sentence of the given length.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 */
+	private void ensureCapacity(int length)
+	{
+		if (length <= scores.length) { return; }
+
+		int capacity = Math.max(length, scores.length * 2);
+		int oldCapacity = scores.length;
+		stateTags = Arrays.copyOf(stateTags, capacity); statePrevious = Arrays.copyOf(statePrevious, capacity);
+		scores = Arrays.copyOf(scores, capacity); backPointers = Arrays.copyOf(backPointers, capacity);
+		stateCounts = Arrays.copyOf(stateCounts, capacity);
+		for (int column = oldCapacity; column < capacity; column++)
+		{
+			stateTags[column] = new int[tagTotal]; statePrevious[column] = new int[tagTotal];
+			scores[column] = new double[tagTotal]; backPointers[column] = new int[tagTotal];
+		}
+	}
+
+
+}
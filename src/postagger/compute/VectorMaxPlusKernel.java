@@ -0,0 +1,91 @@
+package postagger.compute;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * This class implements the kernel of the Viterbi
+ * recurrence with the Vector API, in two passes over
+ * the column: the first takes the maximum sum of each
+ * lane and reduces the lanes to the best sum, and the
+ * second finds the first tag whose sum equals it (the
+ * sums are recomputed exactly the same way).
+ *
+ * Keeping an argmax lane beside each value lane, and
+ * blending both on every comparison, is slower on the
+ * JDK 17 Vector API than the second pass, which only
+ * reads the column again up to the best tag.
+ *
+ * It is only loaded when selected with the property
+ * postagger.vectorKernel and the jdk.incubator.vector
+ * module is present (see MaxPlusKernel.getInstance).
+ *
+ * @author David Olorundare
+ *
+ */
+public final class VectorMaxPlusKernel implements MaxPlusKernel
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the widest vector shape of doubles the CPU computes natively.
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Returns the previous tag maximizing the score of the
+	 * previous column plus the log transition probability;
+	 * the first (lowest) such tag if several do, and 0 if
+	 * every sum is negative infinity.
+	 *
+	 * @param scores	the log probabilities of the previous column, indexed by tag id.
+	 *
+	 * @param transitionRow	the log transition probabilities to the follow tag, indexed by previous tag id.
+	 *
+	 * @param length	the number of tags to scan (from tag 0).
+	 *
+	 * @return the id of the best previous tag.
+	 */
+	@Override
+	public int argMaxPlus(double[] scores, double[] transitionRow, int length)
+	{
+		// Find the best sum; the tags past the last whole vector are added one at a time.
+		DoubleVector maxValues = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+		int bound = SPECIES.loopBound(length), tag = 0;
+		for (; tag < bound; tag += SPECIES.length())
+		{
+			maxValues = maxValues.max(DoubleVector.fromArray(SPECIES, scores, tag).add(DoubleVector.fromArray(SPECIES, transitionRow, tag)));
+		}
+		double maxValue = maxValues.reduceLanes(VectorOperators.MAX);
+		for (; tag < length; tag++) { maxValue = Math.max(maxValue, scores[tag] + transitionRow[tag]); }
+		if (maxValue == Double.NEGATIVE_INFINITY) { return 0; }
+
+		// Find the first tag reaching it.
+		for (tag = 0; tag < bound; tag += SPECIES.length())
+		{
+			VectorMask<Double> best = DoubleVector.fromArray(SPECIES, scores, tag).add(DoubleVector.fromArray(SPECIES, transitionRow, tag))
+					.compare(VectorOperators.EQ, maxValue);
+			if (best.anyTrue()) { return tag + best.firstTrue(); }
+		}
+		while (scores[tag] + transitionRow[tag] != maxValue) { tag++; }
+		return tag;
+	}
+
+
+	/**
+	 * Helper method that determines if the kernel
+	 * computes several tags at a time.
+	 *
+	 * @return true.
+	 */
+	@Override
+	public boolean isVectorized() { return true; }
+
+}
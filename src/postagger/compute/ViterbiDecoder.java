@@ -0,0 +1,496 @@
+package postagger.compute;
+
+import java.util.Arrays;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
+import postagger.structures.EmissionCache;
+import postagger.structures.SymbolIndex;
+import postagger.structures.TagDictionary;
+import postagger.structures.TransitionMatrix;
+import postagger.structures.UnknownWordModel;
+
+
+/**
+ * This class implements the Viterbi decoding
+ * algorithm over a primitive, log-space probability
+ * matrix (trellis) with backpointers.
+ *
+ * Only the candidate tags of a known word (the tags it
+ * was seen with in training, see TagDictionary) can have
+ * a non-zero emission probability, so only those cells
+ * of its column are scored, from the candidate cells of
+ * the previous column; unknown words score the tags
+ * of the rare words in training (see UnknownWordModel).
+ * The result is the same as scoring the whole matrix.
+ * When many tags are candidates of the previous column
+ * (e.g. after an unknown word), the column is scored
+ * with a MaxPlusKernel over the whole previous column
+ * instead (scalar, unless the vectorized kernel is
+ * selected with '-Dpostagger.vectorKernel=true').
+ *
+ * The score and backpointer arrays are kept between
+ * sentences and only grow when a longer sentence is
+ * seen, so decoding a sentence allocates nothing.
+ * A decoder is not thread-safe; each thread tagging
+ * sentences should use its own instance.
+ *
+ * Decoding is exact unless a beam is configured, in which
+ * case only the best states of each column (see
+ * DecoderSettings) are extended into the next column.
+ *
+ * @author David Olorundare
+ *
+ */
+public class ViterbiDecoder implements TagDecoder
+{
+	//============================================ 	PRIVATE VARIABLES =============================================================
+
+
+	// Represents the kernel of the Viterbi recurrence over a whole column (scalar unless -Dpostagger.vectorKernel=true).
+	private static final MaxPlusKernel KERNEL = MaxPlusKernel.getInstance();
+
+	// Represents the share (one in n) of the tags that must be candidates of the previous column for a column to be
+	// scored with the kernel rather than from the candidates alone (measured on the WSJ tag set).
+	private static final int DENSE_SHARE = 4;
+
+	// Represents the number of POS tags (states) in the tag/state model.
+	private int tagTotal;
+
+	// Represents the log transition probabilities of the finalized tag/state model.
+	private TransitionMatrix transitions;
+
+	// Represents the candidate POS tags of each known word, and their emission log probabilities.
+	private TagDictionary tagDictionary;
+
+	// Represents the candidate POS tags of unknown words, and the model of their emission log probabilities.
+	private UnknownWordModel unknownWordModel;
+
+	// Represent the candidate tags of the unknown words being scored, and their emission log probabilities; two
+	// buffers are used in turn, so those of the previous column stay valid while the current column is computed.
+	private int[][] unknownTags = new int[2][];
+	private double[][] unknownEmissions = new double[2][];
+	private int unknownBuffer;
+
+	// Represents the cache of unknown word candidates, shared with the decoders of the other tagging threads.
+	private EmissionCache emissionCache;
+
+	// Represents the Viterbi probability matrix, indexed by [token][tag].
+	private double[][] scores = new double[0][];
+
+	// Represents the backpointers of the Viterbi probability matrix, indexed by [token][tag].
+	private int[][] backPointers = new int[0][];
+
+	// Represents the candidate tags of the column being computed: the entries from 'candidateStart' to 'candidateEnd' of
+	// 'candidateTags', with their emission log probabilities at the same positions of 'candidateEmissions'.
+	private int[] candidateTags;
+	private double[] candidateEmissions;
+	private int candidateStart, candidateEnd;
+
+	// Represents the candidate tags of the previous column, in the same form.
+	private int[] previousTags;
+	private int previousStart, previousEnd;
+
+	// Represents the number of states scored by the last call to decode.
+	private int stateCount;
+
+	// Determines if states are pruned from each column (beam decoding).
+	private boolean pruning;
+
+	// Represents the maximum number of states kept per column.
+	private int beamWidth;
+
+	// Represents the log probability margin below the best state of a column at which states are kept.
+	private double beamThreshold;
+
+	// Represents the states kept in the previous column, best first, and their number.
+	private int[] activeTags;
+	private int activeCount;
+
+	// Represents the states kept in the column currently being computed.
+	private int[] nextActiveTags;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the ViterbiDecoder class.
+	 *
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 */
+	public ViterbiDecoder(AnalyzedData posModel, Boolean smoothingEnabled)
+	{
+		this(posModel, smoothingEnabled, new DecoderSettings());
+	}
+
+
+	/**
+	 * Constructor of the ViterbiDecoder class, decoding
+	 * with the given (e.g. beam) settings.
+	 *
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 * @param settings	the options of the decoder.
+	 *
+	 */
+	public ViterbiDecoder(AnalyzedData posModel, Boolean smoothingEnabled, DecoderSettings settings)
+	{
+		this(posModel, smoothingEnabled, settings, new UnknownWordModel(posModel), null);
+	}
+
+
+	/**
+	 * Constructor of the ViterbiDecoder class, scoring
+	 * unknown words with the given model and cache
+	 * (e.g. shared with the other tagging threads).
+	 *
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 *
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 *
+	 * @param settings	the options of the decoder.
+	 *
+	 * @param unknownWords	the emission model of the unknown words of the tag/state model.
+	 *
+	 * @param cache	the cache of candidates of the unknown words, or null for a cache of this decoder's own.
+	 *
+	 */
+	public ViterbiDecoder(AnalyzedData posModel, Boolean smoothingEnabled, DecoderSettings settings, UnknownWordModel unknownWords, EmissionCache cache)
+	{
+		SymbolIndex tags = posModel.getTagIndex();
+		tagTotal = tags.size();
+		tagDictionary = (posModel.getTagDictionary() != null) ? posModel.getTagDictionary() : new TagDictionary(posModel);
+		unknownWordModel = unknownWords;
+		for (int buffer = 0; buffer < 2; buffer++) { unknownTags[buffer] = new int[unknownWordModel.size()]; unknownEmissions[buffer] = new double[unknownWordModel.size()]; }
+		emissionCache = (cache != null) ? cache : new EmissionCache(unknownWordModel, settings.getEmissionCacheSize());
+
+		transitions = posModel.getTransitionMatrix();
+
+		pruning = !settings.isExact();
+		beamWidth = (settings.getBeamWidth() == 0) ? tagTotal : Math.min(settings.getBeamWidth(), tagTotal);
+		beamThreshold = settings.getBeamThreshold();
+		activeTags = new int[tagTotal]; nextActiveTags = new int[tagTotal];
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Computes the most probable sequence of POS tags for a sentence.
+	 *
+	 * @param wordIds	ids of the sentence tokens; a negative id denotes an unknown word.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param tagIds	array receiving the id of the POS tag assigned to each token.
+	 *
+	 * @return the log probability of the most probable tag sequence.
+	 *
+	 */
+	@Override
+	public double decode(int[] wordIds, int length, int[] tagIds)
+	{
+		stateCount = 0;
+		if (length == 0) { return 0.0; }
+		ensureCapacity(length);
+
+		computeStartingColumn(wordIds[0]);
+		for (int column = 1; column < length; column++)
+		{
+			computeColumn(column, wordIds[column]);
+		}
+		return backtrace(length, tagIds);
+	}
+
+
+	/**
+	 * Helper method that returns the number of states
+	 * scored by the last call to decode.
+	 *
+	 * @return number of (tag) states evaluated.
+	 */
+	@Override
+	public int getStateCount() { return stateCount; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * POS tags (states) the decoder chooses from.
+	 *
+	 * @return number of POS tags in the tag/state model.
+	 */
+	public int getTagTotal() { return tagTotal; }
+
+
+	/**
+	 * Helper method that returns the score of a cell
+	 * of the probability matrix computed by the last
+	 * call to decode.
+	 *
+	 * @param column	the token position in the sentence.
+	 *
+	 * @param tag	the id of the POS tag.
+	 *
+	 * @return log probability of the best path ending in the given cell.
+	 */
+	@Override
+	public double getScore(int column, int tag) { return scores[column][tag]; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Computes the values of the first column cells in the probability matrix.
+	 *
+	 * @param wordId	id of the first token of the sentence.
+	 *
+	 */
+	private void computeStartingColumn(int wordId)
+	{
+		loadCandidates(wordId);
+		double[] current = scores[0]; int[] pointers = backPointers[0];
+		Arrays.fill(current, Double.NEGATIVE_INFINITY);
+
+		boolean reachable = false;
+		for (int entry = candidateStart; entry < candidateEnd; entry++)
+		{
+			int tag = candidateTags[entry];
+			current[tag] = transitions.getLogProbability(tag, transitions.getStartIndex()) + candidateEmissions[entry];
+			pointers[tag] = transitions.getStartIndex();
+			if (current[tag] != Double.NEGATIVE_INFINITY) { reachable = true; }
+		}
+
+		// No tag seen with this word ever started a sentence (smoothing disabled); score on emissions alone.
+		if (!reachable)
+		{
+			for (int entry = candidateStart; entry < candidateEnd; entry++) { current[candidateTags[entry]] = candidateEmissions[entry]; }
+		}
+		stateCount += candidateEnd - candidateStart;
+		if (pruning) { prune(current); }
+		shiftCandidates();
+	}
+
+
+	/**
+	 * Computes the values of a column of cells in the probability matrix,
+	 * from the maximum cumulative probability of the previous column.
+	 *
+	 * @param column	the token position in the sentence.
+	 *
+	 * @param wordId	id of the token at that position.
+	 *
+	 */
+	private void computeColumn(int column, int wordId)
+	{
+		loadCandidates(wordId);
+		double[] previous = scores[column - 1]; double[] current = scores[column]; int[] pointers = backPointers[column];
+		Arrays.fill(current, Double.NEGATIVE_INFINITY);
+
+		// The candidates of the previous column are in ascending tag order, so a dense scan breaks ties the same way.
+		boolean dense = (previousEnd - previousStart) * DENSE_SHARE >= tagTotal;
+		boolean reachable = false;
+		for (int entry = candidateStart; entry < candidateEnd; entry++)
+		{
+			int tag = candidateTags[entry];
+			double[] transitionRow = transitions.getRow(tag);
+			double maxValue = Double.NEGATIVE_INFINITY; int maxTag = 0;
+			if (pruning)
+			{
+				// Extend only the states kept in the previous column.
+				for (int index = 0; index < activeCount; index++)
+				{
+					int previousTag = activeTags[index];
+					double value = previous[previousTag] + transitionRow[previousTag];
+					if (value > maxValue) { maxValue = value; maxTag = previousTag; }
+				}
+			}
+			else if (dense)
+			{
+				// Scan the whole previous column at once; the states that are not candidates score negative infinity.
+				maxTag = KERNEL.argMaxPlus(previous, transitionRow, tagTotal);
+				maxValue = previous[maxTag] + transitionRow[maxTag];
+			}
+			else
+			{
+				// Extend the candidate states of the previous column (every other state has a zero probability).
+				for (int index = previousStart; index < previousEnd; index++)
+				{
+					int previousTag = previousTags[index];
+					double value = previous[previousTag] + transitionRow[previousTag];
+					if (value > maxValue) { maxValue = value; maxTag = previousTag; }
+				}
+			}
+			current[tag] = maxValue + candidateEmissions[entry]; pointers[tag] = maxTag;
+			if (maxValue != Double.NEGATIVE_INFINITY) { reachable = true; }
+		}
+
+		// No tag of this word can follow any tag of the previous word (an unseen bigram with smoothing
+		// disabled); restart the path from the best previous cell so the sentence can still be tagged.
+		if (!reachable)
+		{
+			int bestPrevious = argMax(previous);
+			for (int entry = candidateStart; entry < candidateEnd; entry++)
+			{
+				int tag = candidateTags[entry];
+				current[tag] = previous[bestPrevious] + candidateEmissions[entry]; pointers[tag] = bestPrevious;
+			}
+		}
+		stateCount += candidateEnd - candidateStart;
+		if (pruning) { prune(current); }
+		shiftCandidates();
+	}
+
+
+	/**
+	 * Selects the states of a column that are kept in the beam:
+	 * the (at most beam width) best states scoring within the
+	 * beam threshold of the best state of the column.
+	 *
+	 * @param column	the column of the probability matrix just computed.
+	 *
+	 */
+	private void prune(double[] column)
+	{
+		// Only the candidate states of the column can have a non-zero probability.
+		double best = Double.NEGATIVE_INFINITY;
+		for (int entry = candidateStart; entry < candidateEnd; entry++) { best = Math.max(best, column[candidateTags[entry]]); }
+		double floor = best - beamThreshold;
+
+		int count = 0;
+		for (int entry = candidateStart; entry < candidateEnd; entry++)
+		{
+			int tag = candidateTags[entry];
+			double score = column[tag];
+			if (score == Double.NEGATIVE_INFINITY || score < floor) { continue; }
+			if (count == beamWidth && score <= column[nextActiveTags[count - 1]]) { continue; }
+
+			// Insert the state into the kept states (best first), dropping the worst one if the beam is full.
+			int index = (count < beamWidth) ? count++ : count - 1;
+			while (index > 0 && column[nextActiveTags[index - 1]] < score) { nextActiveTags[index] = nextActiveTags[index - 1]; index--; }
+			nextActiveTags[index] = tag;
+		}
+
+		int[] kept = nextActiveTags; nextActiveTags = activeTags; activeTags = kept;
+		activeCount = count;
+	}
+
+
+	/**
+	 * Follows the backpointers from the best final cell to recover
+	 * the most probable tag sequence.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param tagIds	array receiving the id of the POS tag assigned to each token.
+	 *
+	 * @return the log probability of the most probable tag sequence.
+	 *
+	 */
+	private double backtrace(int length, int[] tagIds)
+	{
+		double[] last = scores[length - 1]; double[] stopTransitions = transitions.getRow(transitions.getStopIndex());
+		double maxValue = Double.NEGATIVE_INFINITY; int maxTag = -1;
+		for (int tag = 0; tag < tagTotal; tag++)
+		{
+			double value = last[tag] + stopTransitions[tag];
+			if (value > maxValue) { maxValue = value; maxTag = tag; }
+		}
+		// No tag of the last word was ever seen ending a sentence; choose on the path score alone.
+		if (maxTag < 0) { maxTag = argMax(last); maxValue = last[maxTag]; }
+
+		tagIds[length - 1] = maxTag;
+		for (int column = length - 1; column > 0; column--)
+		{
+			tagIds[column - 1] = backPointers[column][tagIds[column]];
+		}
+		return maxValue;
+	}
+
+
+	/**
+	 * Selects the candidate tags of a word, with their
+	 * emission log probabilities, for the column being computed.
+	 *
+	 * @param wordId	id of the word; a negative id denotes an unknown word.
+	 *
+	 */
+	private void loadCandidates(int wordId)
+	{
+		if (wordId < 0 && emissionCache.isEnabled())
+		{
+			EmissionCache.Candidates candidates = emissionCache.get(wordId);
+			candidateTags = candidates.tags; candidateEmissions = candidates.logEmissions;
+			candidateStart = 0; candidateEnd = candidates.tags.length;
+			return;
+		}
+		if (wordId < 0)
+		{
+			unknownBuffer ^= 1;
+			candidateTags = unknownTags[unknownBuffer]; candidateEmissions = unknownEmissions[unknownBuffer];
+			candidateStart = 0; candidateEnd = unknownWordModel.computeCandidates(wordId, candidateTags, candidateEmissions);
+			return;
+		}
+		candidateTags = tagDictionary.getTags(); candidateEmissions = tagDictionary.getLogEmissions();
+		candidateStart = tagDictionary.getStart(wordId); candidateEnd = tagDictionary.getEnd(wordId);
+	}
+
+
+	/**
+	 * Makes the candidate tags of the column just
+	 * computed those of the previous column.
+	 *
+	 */
+	private void shiftCandidates()
+	{
+		previousTags = candidateTags; previousStart = candidateStart; previousEnd = candidateEnd;
+	}
+
+
+	/**
+	 * Grows the probability matrix so it can hold a sentence of the given length.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 */
+	private void ensureCapacity(int length)
+	{
+		if (length <= scores.length) { return; }
+
+		int capacity = Math.max(length, scores.length * 2);
+		int oldCapacity = scores.length;
+		scores = Arrays.copyOf(scores, capacity); backPointers = Arrays.copyOf(backPointers, capacity);
+		for (int column = oldCapacity; column < capacity; column++)
+		{
+			scores[column] = new double[tagTotal]; backPointers[column] = new int[tagTotal];
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the index of the
+	 * largest value in a column of scores.
+	 *
+	 * @param column	a column of the probability matrix.
+	 *
+	 * @return index of the largest value.
+	 */
+	private int argMax(double[] column)
+	{
+		int maxTag = 0;
+		for (int tag = 1; tag < tagTotal; tag++)
+		{
+			if (column[tag] > column[maxTag]) { maxTag = tag; }
+		}
+		return maxTag;
+	}
+
+
+}
@@ -2,15 +2,24 @@ package postagger.compute;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import postagger.structures.AnalyzedData;
-import postagger.structures.BigramTag;
-import postagger.structures.MatrixCell;
+import postagger.structures.DecoderSettings;
+import postagger.structures.EmissionCache;
 import postagger.structures.TaggedToken;
+import postagger.structures.UnknownWordModel;
+import postagger.utils.CorpusReader;
+import postagger.utils.FileHandler;
+import postagger.utils.PipelineMetrics;
+import postagger.utils.TaggerEvents;
 
 public class ViterbiHMM 
 {
@@ -20,41 +29,14 @@ public class ViterbiHMM
 	// Holds an instance to this class.
 	private volatile static ViterbiHMM instance;
 	
-	// Represents a temporary store of the built tag/state model from a prior computation phase.
-	private AnalyzedData tempModel;
+	// Represents the number of sentences handed to a worker thread as a single task.
+	private static final int BATCH_SIZE = 256;
 	
-	// Represents a stream path to the testing dataset.
-	private BufferedReader testData;
+	// Represents the number of batches that may be queued per worker thread before the reader waits.
+	private static final int BATCHES_IN_FLIGHT = 4;
 	
-	// Represents a given sentence in the testing dataset being currently tagged.
-	private ArrayList<String> sentence;
-	
-	// Represents the number of sentences in the test dataset.
-	private int testDataSentenceCount = 0;
-	
-	// Determines if smoothing is enabled.
-	private Boolean smoothing = false;
-	
-	// Determines if the format of the test data is different from the training data.
-	private Boolean alternateFormat = false;
-	
-	// Represents the default value used to initially fill the bigram tag/state model.
-	  private int modelDefaultFill = 0;
-	
-	// Represents the all the POS tags in a given dataset.
-	private String[] posTags;
-		
-	// Represents the previous column in the probability matrix, used by the Viterbi algorithm.
-	private String previousColumnLabel = " ";
-	
-	// Represents the Viterbi algorithm probability matrix.
-	private HashMap<String, ArrayList<MatrixCell>> probabilityMatrix = new HashMap<String, ArrayList<MatrixCell>>();
-	
-	// Represents a list of each sentence token and the POS tag assigned to it by the Viterbi system.
-	private ArrayList<TaggedToken> tTokens = new ArrayList<TaggedToken>();
-	
-	// Represent a list of all the unknown words encountered from the testing dataset.
-	HashSet<String> unknownWords = new HashSet<String>();
+	// Represents the options (e.g. beam) of the Viterbi decoders tagging sentences.
+	private volatile DecoderSettings decoderSettings = new DecoderSettings();
 	
 	
 	//============================================ CONSTRUCTOR =============================================================
@@ -92,435 +74,480 @@ public class ViterbiHMM
 	
 	
 	/**
-	 * Computes the POS tags for the sentences in a given test dataset.
+	 * Helper method that sets the options (e.g. beam
+	 * width) of the Viterbi decoding used to tag
+	 * subsequent test datasets.
 	 * 
-	 * @param posModel	the tag/state model used to compute the POS tags.
-	 * 
-	 * @param testingDataSource	the test dataset source.
-	 * 	
-	 * @throws IOException	if any error occurs while reading the test dataset source file.
+	 * @param settings	the options of the Viterbi decoder.
 	 * 
 	 */
-	public AnalyzedData computeTags(AnalyzedData posModel, BufferedReader testingDataSource, Boolean smoothingEnabled) throws IOException
+	public void setDecoderSettings(DecoderSettings settings)
 	{
-		tempModel = posModel;
-		testData = testingDataSource;
-		String lineRead = " ";
-		smoothing = smoothingEnabled;
-		
-		// Create a set of POS tags as the state rows in the probability matrix. 
-		createTagRows(posModel.getTagWord().keySet()); 
-		
-		// Tag the tokens in each sentence of the dataset, using the tag/state models.
-		while ( (lineRead = testData.readLine()) != null )
-		{
-			sentence = new ArrayList<String>();
-			while(true)
-			{
-				// End of sentence reached, break and go to the next sentence.
-				if (lineRead.equals("")) { break; }
-		
-				// Read the next token.
-				sentence.add(lineRead);
-				lineRead = testData.readLine();
-			}
-			// Run the Viterbi algorithm on the sentence.
-			testDataSentenceCount++;
-			tagSentence(sentence.toArray(new String[sentence.size()]));
-		}
-		// Store all the tagged words/sentences in a data structure sent to the calling function.
-		posModel.setTaggedData(tTokens); 
-		// Store the number of sentences in the test dataset.
-		posModel.setTestDataSentenceCount(testDataSentenceCount);
-		// Store the list containing unknown words encountered in the testing dataset.
-		posModel.setUnknownWords(unknownWords);
-		return posModel;
+		decoderSettings = settings;
 	}
 	
 	
-	//============================================ PRIVATE METHODS =============================================================
+	/**
+	 * Helper method that returns the options
+	 * of the Viterbi decoding.
+	 * 
+	 * @return the options of the Viterbi decoder.
+	 */
+	public DecoderSettings getDecoderSettings() { return decoderSettings; }
 	
 	
 	/**
-	 * Tags the list of tokens in a given sentence using the Viterbi algorithm.
+	 * Computes the POS tags for the sentences in a given test dataset.
+	 * 
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 * 
+	 * @param testingDataSource	the test dataset source.
 	 * 
-	 * @param tokens	list of sentence tokens.
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 * 	
+	 * @throws IOException	if any error occurs while reading the test dataset source file.
 	 * 
 	 */
-	private void tagSentence(String[] tokens)
+	public AnalyzedData computeTags(AnalyzedData posModel, BufferedReader testingDataSource, Boolean smoothingEnabled) throws IOException
 	{
-		// Checked the format of the incoming test data before processing.
-		if (tokens[0].split(" ").length < 2 ) { alternateFormat = true; }
-		
-		HashMap<String, ArrayList<MatrixCell>> temp = new HashMap<String, ArrayList<MatrixCell>>(); 
-		temp = createMatrix(tokens);
-		computeStartingColumn(temp, tokens);
-		computeRemainingColumns(temp, tokens);
+		return computeTags(posModel, testingDataSource, smoothingEnabled, 1);
 	}
 	
-	 
+	
 	/**
-	 * Stores the POS tags of the training dataset into an array.
+	 * Computes the POS tags for the sentences in a given test dataset,
+	 * tagging batches of sentences concurrently on a pool of worker threads.
+	 * The tag/state model is shared read-only; each worker has its own
+	 * probability matrix. The tagged data keeps the order of the test dataset.
 	 * 
-	 * @param tagRows the Set of POS tags in the training dataset.
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 * 
+	 * @param testingDataSource	the test dataset source.
+	 * 
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param threads	the number of worker threads; 1 tags sentences on the calling thread.
+	 * 	
+	 * @throws IOException	if any error occurs while reading or tagging the test dataset.
 	 * 
 	 */
-	private void createTagRows(Set<String> tagRows)
+	public AnalyzedData computeTags(AnalyzedData posModel, BufferedReader testingDataSource, Boolean smoothingEnabled, int threads) throws IOException
 	{
-		posTags = new String[tagRows.size()];
-		int index = 0;
-		
-		for (String tag : tagRows)
-		{
-			posTags[index] = tag;
-			index++;
-		}
+		return computeTags(posModel, testingDataSource, smoothingEnabled, threads, null);
 	}
 	
 	
 	/**
-	 * Builds out the Viterbi probability matrix.
+	 * Computes the POS tags for the sentences in a given test dataset,
+	 * on a pool of worker threads, and hands each tagged sentence, in
+	 * the order of the test dataset, to a listener as soon as it (and
+	 * every sentence before it) has been tagged.
+	 * 
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 * 
+	 * @param testingDataSource	the test dataset source.
 	 * 
-	 * @param columnTokens	all tokens of a given sentence to be tagged.
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
 	 * 
-	 * @return a newly created Viterbi probability matrix.
+	 * @param threads	the number of worker threads; 1 tags sentences on the calling thread.
+	 * 
+	 * @param listener	the stage receiving each tagged sentence, or null.
+	 * 	
+	 * @throws IOException	if any error occurs while reading or tagging the test dataset, or in the listener.
 	 * 
 	 */
-	private HashMap<String, ArrayList<MatrixCell>> createMatrix(String[] columnTokens)
+	public AnalyzedData computeTags(AnalyzedData posModel, BufferedReader testingDataSource, Boolean smoothingEnabled, int threads, 
+			TaggedSentenceListener listener) throws IOException
 	{
-		ArrayList<MatrixCell> columnCells;
-		MatrixCell cell;
+		ArrayList<TaggedToken> tTokens = new ArrayList<TaggedToken>();
+		HashSet<String> unknownWords = new HashSet<String>();
 		
-		for (int i = 0; i < columnTokens.length; i++)
+		// Keep every tagged sentence, and the unknown words in it, before handing it on.
+		int testDataSentenceCount = tagStream(posModel, testingDataSource, smoothingEnabled, threads, new TaggedSentenceListener()
 		{
-			columnCells  = new ArrayList<MatrixCell>();
-			for(String row : posTags)
+			@Override
+			public void sentenceTagged(List<TaggedToken> sentence) throws IOException
 			{
-				cell = new MatrixCell();
-				cell.ColY = columnTokens[i].split(" ")[0]; cell.rowX =row;
-				columnCells.add(cell);
+				tTokens.addAll(sentence);
+				for (TaggedToken token : sentence) { if (token.unknownWord) { unknownWords.add(token.matrixData.ColY); } }
+				if (listener != null) { listener.sentenceTagged(sentence); }
 			}
 			
-			probabilityMatrix.put(columnTokens[i].split(" ")[0], columnCells);
-		}
-		return probabilityMatrix;
+			@Override
+			public void taggingFinished(EmissionCache cache) { if (listener != null) { listener.taggingFinished(cache); } }
+		});
+		
+		// Store all the tagged words/sentences in a data structure sent to the calling function.
+		posModel.setTaggedData(tTokens); 
+		// Store the number of sentences in the test dataset.
+		posModel.setTestDataSentenceCount(testDataSentenceCount);
+		// Store the list containing unknown words encountered in the testing dataset.
+		posModel.setUnknownWords(unknownWords);
+		return posModel;
 	}
 	
 	
 	/**
-	 * Computes the values of the first column cells in the Viterbi probability matrix.
+	 * Tags the sentences read from a given test dataset source and
+	 * hands each tagged sentence, in the order of the dataset, to a
+	 * listener as soon as it (and every sentence before it) has been
+	 * tagged. Nothing is kept once the listener returns, so memory
+	 * use is bounded by the sentences in flight, however large the
+	 * dataset is; the tagging results are only seen by the listener
+	 * (which also receives the emission cache of the run once it ends).
+	 * 
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 * 
+	 * @param testingDataSource	the test dataset source.
 	 * 
-	 * @param matrix	an empty viterbi probability matrix.
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
 	 * 
-	 * @param columnTokens	all tokens of a given sentence to be tagged.
+	 * @param threads	the number of worker threads; 1 tags sentences on the calling thread.
+	 * 
+	 * @param listener	the stage receiving each tagged sentence.
+	 * 
+	 * @return the number of sentences tagged.
+	 * 	
+	 * @throws IOException	if any error occurs while reading or tagging the test dataset, or in the listener.
 	 * 
 	 */
-	private void computeStartingColumn(HashMap<String, ArrayList<MatrixCell>>  matrix, String[] columnTokens)
+	public int tagStream(AnalyzedData posModel, BufferedReader testingDataSource, Boolean smoothingEnabled, int threads, 
+			TaggedSentenceListener listener) throws IOException
 	{
-		// The name of the current probability matrix column (i.e. the sentence token) and store it.
-		ArrayList<MatrixCell> cells = matrix.get(columnTokens[0].split(" ")[0]);
-		previousColumnLabel = columnTokens[0].split(" ")[0];
-		
-		// Variables to calculate backPointer - - the most likely POS tag to which the token of that column is associated with.
-		Double maxCell = 0.0;
-		MatrixCell mostProbableCell = new MatrixCell();
-		
-		for(int i = 0; i < cells.size(); i++)
+		UnknownWordModel unknownWords = new UnknownWordModel(posModel);
+		EmissionCache cache = new EmissionCache(unknownWords, decoderSettings.getEmissionCacheSize());
+		PipelineMetrics.Span decoding = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.DECODE);
+		if (threads > 1)
 		{
-			cells.get(i).cellValue = getTransitionProbability(cells.get(i).rowX, "<START>")[0] * getEmissionProbability(cells.get(i).rowX, cells.get(i).ColY)[0];
-			
-			// Perform backPointer determination.
-			if (cells.get(i).cellValue > maxCell) { maxCell = cells.get(i).cellValue; mostProbableCell = cells.get(i); }
+			int sentenceCount = tagBatches(posModel, smoothingEnabled, threads, listener, unknownWords, cache, () -> readBatch(testingDataSource));
+			decoding.stop();
+			listener.taggingFinished(cache);
+			return sentenceCount;
 		}
-		// Set this Viterbi probability matrix column(sentence-token) to it POS tags cells in the matrix.
-		matrix.put(columnTokens[0].split(" ")[0], cells);
 		
-		// Assign this column sentence-token to the 'mostProbableCell' - to know the POS tag to which this current token is most likely associated with.
-		TaggedToken tagged = new TaggedToken();
-		tagged.token = columnTokens[0]; tagged.matrixData = mostProbableCell;
-		tTokens.add(tagged);
+		// Tag the tokens in each sentence of the dataset, using the tag/state models.
+		int sentenceCount = 0;
+		SentenceTagger tagger = new SentenceTagger(posModel, smoothingEnabled, decoderSettings, unknownWords, cache);
+		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+		TaggerEvents.DecodeBatch event = beginBatch();
+		String[] sentence;
+		while ( (sentence = FileHandler.readSentence(testingDataSource)) != null )
+		{
+			sentenceCount++;
+			tagged.clear();
+			tagger.tagSentence(sentence, tagged, null);
+			event = recordSentence(event, tagger, tagged.size());
+			listener.sentenceTagged(tagged);
+		}
+		commitBatch(event);
+		decoding.stop();
+		listener.taggingFinished(cache);
+		return sentenceCount;
 	}
 	
 	
 	/**
-	 * Compute the values of the remaining column cells in the Viterbi matrix.
+	 * Tags the sentences of a test dataset read from a memory-mapped
+	 * file and hands each tagged sentence, in the order of the dataset,
+	 * to a listener as soon as it (and every sentence before it) has
+	 * been tagged. Words are looked up directly from the dataset bytes,
+	 * and nothing is kept once the listener returns (the listener
+	 * also receives the emission cache of the run once it ends).
+	 * 
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 * 
+	 * @param testingCorpus	the reader of the test dataset.
+	 * 
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
 	 * 
-	 * @param matrix the Viterbi probability matrix.
+	 * @param threads	the number of worker threads; 1 tags sentences on the calling thread.
 	 * 
-	 * @param columnTokens	the remaining tokens in the sentence currently being tagged.
+	 * @param listener	the stage receiving each tagged sentence.
+	 * 
+	 * @return the number of sentences tagged.
+	 * 	
+	 * @throws IOException	if any error occurs while reading or tagging the test dataset, or in the listener.
 	 * 
 	 */
-	private void computeRemainingColumns(HashMap<String, ArrayList<MatrixCell>>  matrix, String[] columnTokens)
+	public int tagStream(AnalyzedData posModel, CorpusReader testingCorpus, Boolean smoothingEnabled, int threads, 
+			TaggedSentenceListener listener) throws IOException
 	{
-		// Variable needed to compute the probabilities of the remaining columns in the matrix.
-		ArrayList<MatrixCell> cells = new ArrayList<MatrixCell>();
-		
-		// Mapping of the cumulative maximum probability of the previous column-tokens and its probability.
-		HashMap<String, Double> tempCellTransitionVal;
-		
-		//Variables for backPointer tracking.
-		MatrixCell mostProbableCell;
-		Double maxCumulativeMatrixProbability = 0.0;
+		UnknownWordModel unknownWords = new UnknownWordModel(posModel);
+		EmissionCache cache = new EmissionCache(unknownWords, decoderSettings.getEmissionCacheSize());
+		PipelineMetrics.Span decoding = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.DECODE);
+		if (threads > 1)
+		{
+			int sentenceCount = tagBatches(posModel, smoothingEnabled, threads, listener, unknownWords, cache, () -> readBatch(testingCorpus));
+			decoding.stop();
+			listener.taggingFinished(cache);
+			return sentenceCount;
+		}
 		
-		// For every column sentence-token and For each probability matrix cell(POS tag) for that sentence-token,
-		// compute the probability based on the cumulative maximum probabilities of the previous column-sentence tokens.
-		for(int i = 1; i < columnTokens.length; i++ )
+		// Tag the tokens in each sentence of the dataset, using the tag/state models.
+		int sentenceCount = 0;
+		SentenceTagger tagger = new SentenceTagger(posModel, smoothingEnabled, decoderSettings, unknownWords, cache);
+		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+		TaggerEvents.DecodeBatch event = beginBatch();
+		while (testingCorpus.nextSentence())
 		{
-			cells = matrix.get(columnTokens[i].split(" ")[0]);
-			Double maxCell = 0.0;
-			mostProbableCell = new MatrixCell();
-			
-			for (int j = 0; j < cells.size(); j++)
-			{
-				tempCellTransitionVal = computeTransitionMax(previousColumnLabel, cells.get(j).rowX);
-				for(String posTag : tempCellTransitionVal.keySet()) { maxCumulativeMatrixProbability = tempCellTransitionVal.get(posTag); }
-				cells.get(j).cellValue = maxCumulativeMatrixProbability * getEmissionProbability(cells.get(j).rowX, columnTokens[i].split(" ")[0])[0];
-				
-				//Determine the backPointer - - the most likely POS tag to which the current token of this column is associated with.
-				if (cells.get(j).cellValue > maxCell) { maxCell = cells.get(j).cellValue; mostProbableCell = cells.get(j); }
-			}
-			
-			// Assign this column sentence-token to the 'mostProbableCell' - to know the POS tag to which this current token is most likely associated with.
-			TaggedToken tagged = new TaggedToken();
-			tagged.token = columnTokens[i]; tagged.matrixData = mostProbableCell;
-			tTokens.add(tagged);
-			
-			// Set the current column as the old-column for the next iteration.
-			previousColumnLabel = columnTokens[i].split(" ")[0];
-			// Set this Viterbi probability matrix column(sentence-token) to it POS tags cells in the matrix.
-			matrix.put(columnTokens[i].split(" ")[0], cells);
+			sentenceCount++;
+			tagged.clear();
+			tagger.tagSentence(testingCorpus, tagged);
+			event = recordSentence(event, tagger, tagged.size());
+			listener.sentenceTagged(tagged);
 		}
+		commitBatch(event);
+		decoding.stop();
+		listener.taggingFinished(cache);
+		return sentenceCount;
 	}
 	
 	
+	//============================================ PRIVATE METHODS =============================================================
+	
+	
 	/**
-	 * Computes the intermediary maximum transition probability of 
-	 * the previous column cells in the probability matrix for a given 
-	 * current cell's probability being computed. 
-	 * 
-	 * @param previousColumnName	the previous column in the probability matrix.
-	 * 
-	 * @param currentTransitionRow	the POS tag of the current cell whose transition probability is being computed.
-	 * 
-	 * @return the previous cell in the probability matrix with the highest probability.
+	 * Begins the event recording the next batch of sentences
+	 * tagged on the calling thread. Sentences tagged on a
+	 * single thread are recorded in batches of BATCH_SIZE,
+	 * like those of the worker threads; the time of a batch
+	 * then includes handing its sentences to the listener.
 	 * 
+	 * @return the event of the batch.
 	 */
-	private HashMap<String, Double> computeTransitionMax(String previousColumnName, String currentTransitionRow)
+	private static TaggerEvents.DecodeBatch beginBatch()
 	{
-		// Variables needed for copying the probability matrix to
-		// a temporary matrix to prevent operations on the current
-		// column in the matrix from affecting the previous columns.
-		ArrayList<MatrixCell> matrix = new ArrayList<MatrixCell>();
-		ArrayList<MatrixCell> tempMatrix = new ArrayList<MatrixCell>();
-		HashMap<String, Double> maxCell = new HashMap<String, Double>();
-
-		// Make a copy of the probability matrix to work with.
-		copyMatrix(probabilityMatrix.get(previousColumnName), tempMatrix);
-		copyMatrix(tempMatrix, matrix);
-		tempMatrix.clear();
-		
-		// Store a probability matrix cell's probability and the maximum probability computed so far. 
-		Double maxCellValue = 0.0; 
-		Double columnCellProbability = 0.0;
-
-		// Cumulative compute all the probabilities in this sentence-token's probability matrix cells.
-		for(int i = 0; i < matrix.size(); i++)
-		{
-			
-			Double columnCell = matrix.get(i).cellValue;
-			columnCellProbability = columnCell * getTransitionProbability(currentTransitionRow, matrix.get(i).rowX)[0];
-			// Determine which matrix cell has the maximum probability.
-			if (columnCellProbability > maxCellValue){ maxCellValue = columnCellProbability; maxCell.put(matrix.get(i).rowX, maxCellValue); }
-		}
-	
-		return maxCell;
+		TaggerEvents.DecodeBatch event = new TaggerEvents.DecodeBatch();
+		event.begin();
+		return event;
 	}
 	
-	 
+	
 	/**
-	 * Computes the transition probability of a POS tag given a preceding tag.
-	 * Adds Laplace smoothing if enabled.
+	 * Adds a sentence tagged on the calling thread to the
+	 * event of its batch, and commits the event once the
+	 * batch holds BATCH_SIZE sentences.
 	 * 
-	 * @param followTag	the second POS tag in a bigram tag.
+	 * @param event	the event of the current batch.
 	 * 
-	 * @param previousTag	the first POS tag in a bigram tag
+	 * @param tagger	the sentence tagger, having just tagged the sentence.
 	 * 
-	 * @return	the normal and log probabilities of the second POS tag occurring immediately after the second.
+	 * @param tokens	the number of tokens of the sentence.
 	 * 
+	 * @return the event of the batch of the next sentence.
 	 */
-	private Double[] getTransitionProbability(String followTag, String previousTag)
+	private static TaggerEvents.DecodeBatch recordSentence(TaggerEvents.DecodeBatch event, SentenceTagger tagger, int tokens)
 	{
-		// Handle Laplace (add-one) smoothing.
-		// 'V' is the number of unique POS tags.
-		int tagTypes = 0;
-		if (smoothing) { tagTypes = (tempModel.getTagWord().keySet().size() - 1); }
-		
-		int previousTagCount = 0;
-		int transistionTagCount = 0;
-		Double[] probability = new Double[2];
-		
-		if (tempModel.getTagNumber().containsKey(previousTag))
-		{	previousTagCount = tempModel.getTagNumber().get(previousTag); }
+		if (!event.isEnabled()) { return event; }
+		event.sentences++; event.tokens += tokens;
+		event.states += tagger.getStateCount(); event.unknownWords += tagger.getUnknownCount();
+		if (event.sentences < BATCH_SIZE) { return event; }
 		
-		BigramTag bTag = new BigramTag();
-		bTag.setFirstTag(previousTag); bTag.setSecondTag(followTag);
-		
-		if (tempModel.getBigramTags().containsKey(bTag) )
-		{
-			transistionTagCount = tempModel.getBigramTags().get(bTag);
-		}
-		
-		probability[0] = computeProbability(transistionTagCount, previousTagCount+tagTypes);
-		probability[1] = computeLogProbability(transistionTagCount, previousTagCount+tagTypes);
-		return probability;
+		commitBatch(event);
+		return beginBatch();
 	}
 	
 	
 	/**
-	 * Computes the emission probability that a given word is associated with a given POS tag.
-	 * 
-	 * @param tag	a given POS tag.
-	 * 
-	 * @param givenWord	a given word that is associated with the POS tag.
-	 * 
-	 * @return	the normal and log probabilities of the given word being associated with the given POS tag.
+	 * Commits the event of a batch of sentences tagged on
+	 * the calling thread, unless the batch is empty.
 	 * 
+	 * @param event	the event of the batch.
 	 */
-	private Double[] getEmissionProbability(String tag, String givenWord)
+	private static void commitBatch(TaggerEvents.DecodeBatch event)
 	{
-		Double[] probability = new Double[2];
-		int tagCount = 0;
-		int givenWordCount = 0;
-		if (smoothing) { modelDefaultFill = 1;}
-		
-		
-		// Handle unknown words that are not in the training dataset,
-		// by putting them in their own POS tag class <UNK> and assigning
-		// their frequency to be 1.
-		if (!PosModeler.getInstance().getUniqueTokens().contains(givenWord))
-		{
-			unknownWords.add(givenWord);
-			tempModel.getTagWord().put("<UNK>", convertToList(unknownWords));
-			
-			probability[0] = computeProbability((1 + modelDefaultFill), tempModel.getTagNumber().get(tag));
-			probability[1] = computeLogProbability((1 + modelDefaultFill), tempModel.getTagNumber().get(tag));
-			return probability;
-		}
-		
-		if (tempModel.getTagWord().containsKey(tag) && tempModel.getTagNumber().containsKey(tag)  )
-		{	tagCount = tempModel.getTagNumber().get(tag); 
-			givenWordCount = getTagWordOccurrence(tag, givenWord);
-		}
-		
-		probability[0] = computeProbability(givenWordCount, tagCount);
-		probability[1] = computeLogProbability(givenWordCount, tagCount);
-		return probability;
+		if (event.sentences > 0 && event.shouldCommit()) { event.commit(); }
 	}
 	
 	
 	/**
-	 * Computes the rate of occurrence of a given word with a specific tag.
+	 * Tags batches of sentences concurrently on a pool of worker
+	 * threads, and hands each tagged sentence, in the order of the
+	 * dataset, to a listener.
+	 * 
+	 * @param posModel	the tag/state model used to compute the POS tags.
+	 * 
+	 * @param smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param threads	the number of worker threads.
+	 * 
+	 * @param listener	the stage receiving each tagged sentence.
+	 * 
+	 * @param unknownWords	the emission model of the unknown words, shared by the workers.
 	 * 
-	 * @param tag	 a given POS tag.
+	 * @param cache	the cache of unknown word candidates, shared by the workers.
 	 * 
-	 * @param givenWord	 a given word associated with the given POS tag.
+	 * @param batches	the source of the batches of sentences.
 	 * 
-	 * @return	the rate of occurrence at which the given word is associated with the given POS tag.
+	 * @return the number of sentences tagged.
 	 * 
+	 * @throws IOException	if any error occurs while reading or tagging the test dataset, or in the listener.
 	 */
-	private int getTagWordOccurrence(String tag, String givenWord)
-	{	
-		ArrayList<String> wordList = tempModel.getTagWord().get(tag);
-		int givenWordCount = 0;
-		
-		if ( wordList.contains(givenWord))
-		{	for (String word : wordList)
+	private int tagBatches(AnalyzedData posModel, Boolean smoothingEnabled, int threads, TaggedSentenceListener listener, 
+			UnknownWordModel unknownWords, EmissionCache cache, BatchSource batches) throws IOException
+	{
+		int sentenceCount = 0;
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ThreadLocal<SentenceTagger> taggers = ThreadLocal.withInitial(() -> new SentenceTagger(posModel, smoothingEnabled, decoderSettings, unknownWords, cache));
+		ArrayDeque<TaggingBatch> pending = new ArrayDeque<TaggingBatch>();
+		try
+		{
+			TaggingBatch batch;
+			while ( (batch = batches.next()) != null )
 			{
-				if (word.equals(givenWord)) { givenWordCount++; } 
+				TaggingBatch task = batch;
+				batch.done = workers.submit(() -> { task.tag(taggers.get()); return null; });
+				pending.add(batch);
+				
+				// Hand on finished batches in input order, bounding how much of the dataset is held in memory.
+				while (pending.size() > threads * BATCHES_IN_FLIGHT) { sentenceCount += collectBatch(pending.poll(), listener); }
 			}
+			while (!pending.isEmpty()) { sentenceCount += collectBatch(pending.poll(), listener); }
 		}
-		return givenWordCount;
+		finally { workers.shutdownNow(); }
+		return sentenceCount;
 	}
 	
 	
 	/**
-	 * Computes the normal probability of an event occurring.
-	 * 
-	 * @param event	a given event.
+	 * Reads the next batch of sentences in a dataset.
 	 * 
-	 * @param totalOccurrence	the total number of occurrences.
+	 * @param dataSource	the dataset source.
 	 * 
-	 * @return	the normal probability that a given event occurs.
+	 * @return the batch of sentences, or null at the end of the dataset.
 	 * 
+	 * @throws IOException	if any error occurs while reading the dataset source.
 	 */
-	private Double computeProbability(int event, int totalOccurrence)
+	private TaggingBatch readBatch(BufferedReader dataSource) throws IOException
 	{
-		Double probability = 0.0;
-		probability = ((new Integer(event).doubleValue() )/(new Integer(totalOccurrence).doubleValue()));
-		//if (probability == 0) { return NEGATIVE_PROBABILITY; }
-		//else { return probability; }	
-		
-		return probability;
+		TaggingBatch batch = new TaggingBatch();
+		String[] sentence;
+		while ( batch.sentences.size() < BATCH_SIZE && (sentence = FileHandler.readSentence(dataSource)) != null )
+		{
+			batch.sentences.add(sentence);
+		}
+		return batch.sentences.isEmpty() ? null : batch;
 	}
 	
 	
 	/**
-	 * Computes the log probability of an event.
+	 * Reads the next batch of sentences in a memory-mapped dataset.
 	 * 
-	 * @param event	a given event.
+	 * @param corpus	the reader of the dataset.
 	 * 
-	 * @param totalOccurrence	the total number of occurrences.
-	 * 
-	 * @return	the log probability that a given event occurs.
+	 * @return the batch of sentences, or null at the end of the dataset.
 	 * 
+	 * @throws IOException	if any error occurs while mapping the dataset.
 	 */
-	private Double computeLogProbability(int event, int totalOccurrence)
+	private TaggingBatch readBatch(CorpusReader corpus) throws IOException
 	{
-		Double logProbability = 0.0;
-		Double probability = ((new Integer(event).doubleValue() )/(new Integer(totalOccurrence).doubleValue()));
-		if (probability == 0.0 || probability == 1.0) { return 0.0; }
-		else { logProbability = Math.log(probability); }
+		CorpusReader sentences = corpus.nextSentences(BATCH_SIZE);
+		if (sentences == null) { return null; }
 		
-		return logProbability;
+		TaggingBatch batch = new TaggingBatch();
+		batch.corpus = sentences;
+		return batch;
 	}
 	
 	
 	/**
-	 * Helper method that copies the value of the cells in the old
-	 * matrix into a new matrix.
+	 * Waits for a batch to be tagged and hands each
+	 * of its tagged sentences to a listener.
+	 * 
+	 * @param batch	the batch of sentences submitted to the workers.
 	 * 
-	 * @param oldCells	the old matrix to copy values from.
+	 * @param listener	the stage receiving each tagged sentence.
 	 * 
-	 * @return	a new matrix with the copied old values.
+	 * @return the number of sentences in the batch.
 	 * 
+	 * @throws IOException	if the batch could not be tagged, or an error occurs in the listener.
 	 */
-	private void copyMatrix(ArrayList<MatrixCell> oldCells, ArrayList<MatrixCell> newCells)
+	private int collectBatch(TaggingBatch batch, TaggedSentenceListener listener) throws IOException
 	{
-		for ( MatrixCell thing : oldCells)
+		try { batch.done.get(); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new IOException("Interrupted while tagging the test dataset", e); }
+		catch (ExecutionException e) { throw new IOException("Error tagging the test dataset", e.getCause()); }
+		
+		int start = 0;
+		for (int sentence = 0; sentence < batch.sentenceCount; sentence++)
 		{
-			newCells.add(thing);
-		}	
+			listener.sentenceTagged(batch.tagged.subList(start, batch.sentenceEnds[sentence]));
+			start = batch.sentenceEnds[sentence];
+		}
+		return batch.sentenceCount;
 	}
 	
 	
 	/**
-	 * Helper method that converts the words in a HashSet
-	 * to an ArrayList.
-	 * 
-	 * @param words	set of words to convert into a list.
-	 * 
-	 * @return	list containing the converted words.
+	 * A source of batches of sentences to tag.
+	 */
+	private interface BatchSource
+	{
+		/**
+		 * Reads the next batch of sentences.
+		 * 
+		 * @return the batch of sentences, or null at the end of the dataset.
+		 * 
+		 * @throws IOException	if any error occurs while reading the dataset.
+		 */
+		TaggingBatch next() throws IOException;
+	}
+	
+	
+	/**
+	 * A batch of sentences tagged as a single task by
+	 * a worker thread, with the results of tagging it.
 	 */
-	private ArrayList<String> convertToList(HashSet<String> words)
+	private static final class TaggingBatch
 	{
-		ArrayList<String> convertedWords = new ArrayList<String>();
+		// Represents the sentences of the batch, read as token lines.
+		final ArrayList<String[]> sentences = new ArrayList<String[]>(BATCH_SIZE);
 		
-		for (String word : words)
+		// Represents the reader of the sentences of the batch, when read from a memory-mapped dataset.
+		CorpusReader corpus;
+		
+		// Represents the tokens of the batch and the POS tags assigned to them.
+		final ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+		
+		// Represents the number of tagged tokens at the end of each sentence of the batch.
+		final int[] sentenceEnds = new int[BATCH_SIZE];
+		
+		// Represents the number of sentences tagged.
+		int sentenceCount = 0;
+		
+		// Represents the completion of the task tagging the batch.
+		Future<?> done;
+		
+		/**
+		 * Tags every sentence of the batch.
+		 * 
+		 * @param tagger	the sentence tagger of the current worker thread.
+		 * 
+		 * @throws IOException	if any error occurs while reading the sentences.
+		 */
+		void tag(SentenceTagger tagger) throws IOException
 		{
-			convertedWords.add(word);
+			TaggerEvents.DecodeBatch event = new TaggerEvents.DecodeBatch();
+			event.begin();
+			boolean recorded = event.isEnabled();
+			if (corpus == null)
+			{
+				for (String[] sentence : sentences)
+				{
+					tagger.tagSentence(sentence, tagged, null); sentenceEnds[sentenceCount++] = tagged.size();
+					if (recorded) { event.states += tagger.getStateCount(); event.unknownWords += tagger.getUnknownCount(); }
+				}
+			}
+			else
+			{
+				while (corpus.nextSentence())
+				{
+					tagger.tagSentence(corpus, tagged); sentenceEnds[sentenceCount++] = tagged.size();
+					if (recorded) { event.states += tagger.getStateCount(); event.unknownWords += tagger.getUnknownCount(); }
+				}
+			}
+			if (event.shouldCommit()) { event.sentences = sentenceCount; event.tokens = tagged.size(); event.commit(); }
 		}
-		
-		return convertedWords;
 	}
 	
 	
@@ -1,11 +1,20 @@
 package postagger.core;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import postagger.compute.CrossValidator;
 import postagger.compute.PosModeler;
+import postagger.compute.ViterbiHMM;
 import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
 import postagger.utils.FileHandler;
+import postagger.utils.ModelFile;
 import postagger.utils.OutputPrinter;
+import postagger.utils.PipelineMetrics;
 
 
 /**
@@ -18,7 +27,20 @@ import postagger.utils.OutputPrinter;
  * Compile the .java files (i.e. javac *.java) then,
  * From the command line run:
  * 
- * >> java PosTaggerMain <input_file_containing_training-dataset> <input_file_containing_test-dataset> <output_file_to_store_tagged_data> <optional smoothing-switch: -S>
+ * >> java PosTaggerMain <input_file_containing_training-dataset> <input_file_containing_test-dataset> <output_file_to_store_tagged_data> <optional smoothing-switch: -S> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> <optional metrics: --metrics[=file]>
+ * 
+ * or, to train once and tag many times with a saved (binary) model:
+ * 
+ * >> java PosTaggerMain train <input_file_containing_training-dataset> <model_file> <optional smoothing-switch: -S> <optional threads: -T n> <optional metrics: --metrics[=file]>
+ * >> java PosTaggerMain tag <model_file> <input_file_containing_test-dataset> <output_file_to_store_tagged_data> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> <optional metrics: --metrics[=file]>
+ * 
+ * or, to keep a model loaded (or trained) and tag the sentences sent, one per line, to a local port or Unix-domain socket:
+ * 
+ * >> java PosTaggerMain serve <model_file or input_file_containing_training-dataset> <port or socket_file> <optional smoothing-switch: -S> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> <optional metrics: --metrics[=file]>
+ * 
+ * or, to compare model settings by k-fold cross-validation on the training dataset (the folds are evaluated on 'n' threads):
+ * 
+ * >> java PosTaggerMain crossvalidate <input_file_containing_training-dataset> <number_of_folds> <optional smoothing-switch: -S> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> <optional metrics: --metrics[=file]>
  * 
  * 
  * 		:PROGRAM OVERVIEW:
@@ -27,6 +49,15 @@ import postagger.utils.OutputPrinter;
  * using an input training dataset file, and evaluated using the dataset in the test file 
  * It also returns, in the output file, a statistics of the tagging accuracy of the program. 
  *  * if the '-S' switch is included; Laplace (add-one) smoothing is used when building the bigram tag/state model, 
+ *  * if the '-T n' switch is included; the tag/state model is built, and the test dataset tagged, on 'n' threads in parallel,
+ *  * if the '-B k' (or '-BT t') switch is included; the Viterbi decoding keeps only the 'k' best states of each column 
+ *    (or those within a log probability of 't' of the best state), trading a little accuracy for speed,
+ *  * if the '-3' switch is included; the test dataset is tagged with the second-order (trigram) tag/state model,
+ *    whose transitions back off to the bigram and unigram tag models by interpolation,
+ *  * if the '-C n' switch is included; the candidate tags of at most 'n' unknown words (4096 by default, 0 for none) 
+ *    are cached while tagging, and the cache hits and misses are reported with the test data statistics,
+ *  * if the '--metrics' (or '--metrics=file') switch is included; the wall time, throughput and allocations of each stage
+ *    (load, build, finalize, decode, output) and the latency of each sentence by length are printed (or exported) as JSON.
  *   
  * 
  * 
@@ -53,11 +84,23 @@ import postagger.utils.OutputPrinter;
  */
 public class PosTaggerMain 
 {
+	// Determines if Laplace smoothing is used when building the bigram tag/state model.
+	private static Boolean smoothing = false;
+	
+	// Represents the number of threads used to build the models and tag the test dataset.
+	private static int threads = 1;
+	
+	// Represents the options (e.g. beam) of the Viterbi decoding.
+	private static DecoderSettings decoderSettings = new DecoderSettings();
+	
+	// Represents the file the metrics are exported to; null prints them to the console.
+	private static String metricsFilePath = null;
+	
+	
 	public static void main(String[] args) throws IOException
 	{
 		
 		//==================== INITIALIZATION OF PROGRAM COMPONENTS ========================================
-		Boolean smoothing = false;
 		FileHandler textData = FileHandler.getInstance();
 		PosModeler textComputation = PosModeler.getInstance();
 		OutputPrinter output = OutputPrinter.getInstance();
@@ -65,8 +108,87 @@ public class PosTaggerMain
 			
 		//============================ INPUT FILE HANDLING, TAG MODELING AND VITERBI COMPUTATION =========================================
 		
+		// Build the tag models from the training dataset and save them to a model file.
+		if (args.length >= 3 && args[0].equals("train"))
+		{
+			textData.setTrainDataFilePath(args[1]);
+			textData.setModelFilePath(args[2]);
+			readOptions(args, 3);
+			try 
+			{
+				tagAnalysis = textData.buildAndSaveModel(textComputation, smoothing, threads);
+				System.out.println("Saved the tag/state model (" + tagAnalysis.getTagIndex().size() + " POS tags, " 
+						+ tagAnalysis.getUniqueTokenCount() + " unique words) to " + args[2]);
+				writeMetrics();
+			}
+			catch (FileNotFoundException e) { e.printStackTrace(); }
+			catch (IOException e) { e.printStackTrace(); }
+		}
+		// Load the tag models from a model file, and use them to tag the test dataset.
+		else if (args.length >= 4 && args[0].equals("tag"))
+		{
+			textData.setModelFilePath(args[1]);
+			textData.setTestDataFilePath(args[2]);
+			textData.setOutputResultFilePath(args[3]);
+			readOptions(args, 4);
+			try 
+			{
+				// Stream each tagged sentence to the output as it is tagged, then print the statistics.
+				output.beginOutput();
+				tagAnalysis = textData.loadModelAndCompute(threads, output);
+				output.finishOutput(tagAnalysis);
+				writeMetrics();
+			}
+			catch (FileNotFoundException e) { e.printStackTrace(); }
+			catch (IOException e) { e.printStackTrace(); }
+			finally { output.closeOutput(); }
+		}
+		// Load (or train) the tag models once, and tag the sentences sent over a local socket.
+		else if (args.length >= 3 && args[0].equals("serve"))
+		{
+			readOptions(args, 3);
+			try 
+			{
+				// A model served from a training dataset can be trained further by the clients.
+				TaggingServer server;
+				if (ModelFile.getInstance().isModelFile(args[1]))
+				{
+					textData.setModelFilePath(args[1]);
+					server = new TaggingServer(textData.loadModel(), decoderSettings);
+				}
+				else
+				{
+					textData.setTrainDataFilePath(args[1]);
+					server = new TaggingServer(textData.buildTrainer(textComputation, smoothing, threads), decoderSettings);
+				}
+				
+				// The server runs until the process is stopped; write the metrics then.
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> 
+				{
+					try { writeMetrics(); }
+					catch (IOException e) { e.printStackTrace(); }
+				}));
+				server.serve(args[2]);
+			}
+			catch (FileNotFoundException e) { e.printStackTrace(); }
+			catch (IOException e) { e.printStackTrace(); }
+		}
+		// Split the training dataset into folds, and report the accuracy of each fold tagged with a model trained on the others.
+		else if (args.length >= 3 && args[0].equals("crossvalidate"))
+		{
+			textData.setTrainDataFilePath(args[1]);
+			readOptions(args, 3);
+			try 
+			{
+				CrossValidator validator = textData.crossValidate(new CrossValidator(Integer.parseInt(args[2]), smoothing, decoderSettings), threads);
+				validator.writeReport(new OutputStreamWriter(System.out));
+				writeMetrics();
+			}
+			catch (FileNotFoundException e) { e.printStackTrace(); }
+			catch (IOException e) { e.printStackTrace(); }
+		}
 		// Take input file from the command line, operate on it, and store results in the output file.
-		if (args.length >= 2)
+		else if (args.length >= 3)
 		{
 			// Set the training dataset, test dataset, and output-results file locations.
 			textData.setTrainDataFilePath(args[0]);
@@ -74,41 +196,101 @@ public class PosTaggerMain
 			textData.setOutputResultFilePath(args[2]);
 			
             //	Extra Functionality (compute perplexity, add smoothing, generate-random-sentences)
-			if (args.length > 3)
-			{
-				for (int index = 3; index < args.length; index++ )
-				{
-					// Include Laplace smoothing.
-					if (args[index].equals("-S")){ smoothing = true; }	
-				}
-			}
-			// Begin measure execution time.
-			//Long time1 = System.currentTimeMillis();
+			readOptions(args, 3);
+			
 			try 
 			{
-				// Load the input text, build the tag models, run the HMM Viterbi system, and return the tagged data and statistics results.
-				tagAnalysis = textData.loadAndCompute(textComputation, smoothing); 
+				// Load the input text, build the tag models, run the HMM Viterbi system, and stream the tagged data to the output as it is tagged.
+				output.beginOutput();
+				tagAnalysis = textData.loadAndCompute(textComputation, smoothing, threads, output); 
 			
 		   //============================== RESULTS-PRINTING  ======================================================
 				
-				// Print out tagging data and performance statistics of given input text and stores it in an external file.
-				output.printAnalysisToScreen(tagAnalysis);
+				// Print out performance statistics of given input text and stores it in an external file.
+				output.finishOutput(tagAnalysis);
+				
+				// Print out (or export) the time taken by each stage, if measured.
+				writeMetrics();
 		        
 		   //====================================================================================================
 			}
 			catch (FileNotFoundException e) { e.printStackTrace(); }
 			catch (IOException e) { e.printStackTrace(); }
-			// End measure of execution time.
-			//Long time2 = System.currentTimeMillis();
-			//System.out.println("\nTime taken to execute: " + (time2 - time1) + " ms");
+			finally { output.closeOutput(); }
 		}
 		else 
 		{
 			// Show the user some Usage-info.
 			System.out.println(":Usage: ./java java PosTaggerMain <input_file_containing_training-dataset>"
 					+ " <input_file_containing_test-dataset> <output_file_to_store_tagged_data> "
-					+ "<optional smoothing-switch: -S>");
+					+ "<optional smoothing-switch: -S> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> "
+					+ "<optional metrics: --metrics[=file]>");
+			System.out.println("   or: ./java java PosTaggerMain train <input_file_containing_training-dataset> <model_file> "
+					+ "<optional smoothing-switch: -S> <optional threads: -T n> <optional metrics: --metrics[=file]>");
+			System.out.println("   or: ./java java PosTaggerMain tag <model_file> <input_file_containing_test-dataset> "
+					+ "<output_file_to_store_tagged_data> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> "
+					+ "<optional metrics: --metrics[=file]>");
+			System.out.println("   or: ./java java PosTaggerMain serve <model_file or input_file_containing_training-dataset> <port or socket_file> "
+					+ "<optional smoothing-switch: -S> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> <optional metrics: --metrics[=file]>");
+			System.out.println("   or: ./java java PosTaggerMain crossvalidate <input_file_containing_training-dataset> <number_of_folds> "
+					+ "<optional smoothing-switch: -S> <optional threads: -T n> <optional trigram model: -3> <optional beam: -B k, -BT t> <optional emission cache size: -C n> "
+					+ "<optional metrics: --metrics[=file]>");
 			return;
 		}
 	}
+	
+	
+	/**
+	 * Reads the optional command-line switches.
+	 * 
+	 * @param args	the command-line arguments.
+	 * 
+	 * @param start	index of the first optional argument.
+	 * 
+	 */
+	private static void readOptions(String[] args, int start)
+	{
+		for (int index = start; index < args.length; index++ )
+		{
+			// Include Laplace smoothing.
+			if (args[index].equals("-S")){ smoothing = true; }	
+			// Build the models and tag the test dataset on several threads.
+			if (args[index].equals("-T") && index + 1 < args.length){ threads = Integer.parseInt(args[++index]); }
+			// Decode with the trigram tag/state model.
+			if (args[index].equals("-3")){ decoderSettings.setTagOrder(3); }
+			// Keep only the best 'k' states of each column when decoding (beam search).
+			if (args[index].equals("-B") && index + 1 < args.length){ decoderSettings.setBeamWidth(Integer.parseInt(args[++index])); }
+			// Keep only the states within 't' (log probability) of the best state of each column when decoding.
+			if (args[index].equals("-BT") && index + 1 < args.length){ decoderSettings.setBeamThreshold(Double.parseDouble(args[++index])); }
+			// Cache the candidate tags of at most 'n' unknown words (0 disables the cache).
+			if (args[index].equals("-C") && index + 1 < args.length){ decoderSettings.setEmissionCacheSize(Integer.parseInt(args[++index])); }
+			// Measure the pipeline stages, and print the metrics (or export them to a file) as JSON.
+			if (args[index].equals("--metrics") || args[index].startsWith("--metrics="))
+			{
+				PipelineMetrics.getInstance().setEnabled(true);
+				metricsFilePath = args[index].startsWith("--metrics=") ? args[index].substring("--metrics=".length()) : null;
+			}
+		}
+		ViterbiHMM.getInstance().setDecoderSettings(decoderSettings);
+	}
+	
+	
+	/**
+	 * Writes the metrics of the pipeline stages as JSON, to the
+	 * console or to the file given with '--metrics=file', if
+	 * they were measured.
+	 * 
+	 * @throws IOException	if an error occurs while writing the metrics file.
+	 */
+	private static void writeMetrics() throws IOException
+	{
+		PipelineMetrics metrics = PipelineMetrics.getInstance();
+		if (!metrics.isEnabled()) { return; }
+		
+		if (metricsFilePath == null) { metrics.writeJson(new OutputStreamWriter(System.out)); }
+		else
+		{
+			try (Writer out = new BufferedWriter(new FileWriter(metricsFilePath))) { metrics.writeJson(out); }
+		}
+	}
 }
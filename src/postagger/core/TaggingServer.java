@@ -0,0 +1,360 @@
+package postagger.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import postagger.compute.IncrementalTrainer;
+import postagger.compute.SentenceTagger;
+import postagger.structures.AnalyzedData;
+import postagger.structures.DecoderSettings;
+import postagger.structures.EmissionCache;
+import postagger.structures.TaggedToken;
+import postagger.structures.UnknownWordModel;
+import postagger.utils.TaggerEvents;
+
+
+/**
+ * This class serves tagging requests over a local
+ * socket, so that a tag/state model is loaded (or
+ * trained) once and each sentence is tagged without
+ * starting a JVM or going through files.
+ *
+ * The server listens on the loopback interface (for
+ * a port number) or on a Unix-domain socket (for a
+ * file path). It reads one sentence per line, its
+ * tokens separated by whitespace, and answers each
+ * line with one line of 'word/TAG' tokens separated
+ * by single spaces; an empty line is answered with an
+ * empty line, and a line that cannot be tagged with
+ * 'ERROR' and a message. Several lines may be sent
+ * before reading the answers, which keep their order.
+ *
+ * Each connection is served by its own thread, with
+ * its own sentence tagger; all connections share the
+ * read-only model and its cache of unknown word
+ * candidates.
+ *
+ * A server trained from a dataset also accepts newly
+ * annotated sentences: a line '#train word/TAG ...'
+ * adds a sentence to the counts (answered with 'OK'),
+ * and a line '#publish' builds a new model from them
+ * (answered with 'OK' and the number of sentences
+ * trained). Each connection switches to the newly
+ * published model before its next sentence; sentences
+ * being tagged finish with the model they started with.
+ *
+ * @author David Olorundare
+ *
+ */
+public class TaggingServer
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the finalized tag/state model shared by the connections, with its unknown word model and emission cache;
+	// replaced when the trainer publishes a new one.
+	private volatile ServedModel served;
+
+	// Represents the trainer of the model, or null if the model cannot be trained further (e.g. it was loaded from a model file).
+	private IncrementalTrainer trainer;
+
+	// Represents the options (e.g. beam) of the Viterbi decoding.
+	private DecoderSettings decoderSettings;
+
+	// Represents the listening socket, once the server is started.
+	private volatile ServerSocketChannel listener;
+
+	// Represents the threads serving the open connections.
+	private ExecutorService connections;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 * @param posModel	the finalized tag/state model used to compute the POS tags.
+	 *
+	 * @param settings	the options of the Viterbi decoders.
+	 *
+	 */
+	public TaggingServer(AnalyzedData posModel, DecoderSettings settings)
+	{
+		this.decoderSettings = settings;
+		this.served = new ServedModel(posModel, settings);
+	}
+
+
+	/**
+	 * Constructor of the class; a server whose model
+	 * the clients can train further.
+	 *
+	 * @param trainer	the trainer of the model, holding its published snapshot.
+	 *
+	 * @param settings	the options of the Viterbi decoders.
+	 *
+	 */
+	public TaggingServer(IncrementalTrainer trainer, DecoderSettings settings)
+	{
+		this(trainer.getSnapshot(), settings);
+		this.trainer = trainer;
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Listens on a local address and serves each connection
+	 * on its own thread, until the server is closed. The
+	 * file of a Unix-domain socket is replaced if it exists,
+	 * and deleted when the server is closed.
+	 *
+	 * @param address	a port number (on the loopback interface), or the file path of a Unix-domain socket.
+	 *
+	 * @throws IOException	if the address cannot be listened on, or an error occurs while accepting a connection.
+	 */
+	public void serve(String address) throws IOException
+	{
+		SocketAddress local = toSocketAddress(address);
+
+		// A socket file left by a server that was killed would keep the address in use.
+		if (local instanceof UnixDomainSocketAddress) { Files.deleteIfExists(((UnixDomainSocketAddress) local).getPath()); }
+		ServerSocketChannel channel = (local instanceof UnixDomainSocketAddress) ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+				: ServerSocketChannel.open();
+		channel.bind(local);
+		listener = channel;
+		connections = Executors.newCachedThreadPool(task ->
+		{
+			Thread thread = new Thread(task, "tagging-connection");
+			thread.setDaemon(true);
+			return thread;
+		});
+		System.out.println("Tagging sentences on " + channel.getLocalAddress());
+
+		try
+		{
+			while (true)
+			{
+				SocketChannel client = channel.accept();
+				connections.execute(() -> serveConnection(client));
+			}
+		}
+		catch (ClosedChannelException e) { /* The server was closed. */ }
+		finally
+		{
+			connections.shutdownNow();
+			if (local instanceof UnixDomainSocketAddress) { Files.deleteIfExists(((UnixDomainSocketAddress) local).getPath()); }
+		}
+	}
+
+
+	/**
+	 * Stops accepting connections; the connections
+	 * being served are closed as serve() returns.
+	 *
+	 * @throws IOException	if an error occurs while closing the listening socket.
+	 */
+	public void close() throws IOException
+	{
+		if (listener != null) { listener.close(); }
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that answers the sentences sent on a
+	 * connection, until the client closes it.
+	 *
+	 * @param client	the socket of the connection.
+	 *
+	 */
+	private void serveConnection(SocketChannel client)
+	{
+		ServedModel taggerModel = served;
+		SentenceTagger tagger = taggerModel.newTagger(decoderSettings);
+		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
+		StringBuilder answer = new StringBuilder();
+
+		try (SocketChannel socket = client;
+			BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(socket), StandardCharsets.UTF_8));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(socket), StandardCharsets.UTF_8)))
+		{
+			if (socket.getRemoteAddress() instanceof InetSocketAddress) { socket.setOption(StandardSocketOptions.TCP_NODELAY, true); }
+
+			String request;
+			while ( (request = in.readLine()) != null )
+			{
+				answer.setLength(0);
+				String trimmed = request.trim();
+				try
+				{
+					if (trimmed.startsWith("#")) { answerCommand(trimmed, answer); }
+					else if (!trimmed.isEmpty())
+					{
+						// Switch to the latest published model between sentences.
+						ServedModel latest = served;
+						if (latest != taggerModel) { taggerModel = latest; tagger = latest.newTagger(decoderSettings); }
+
+						tagged.clear();
+						tagger.tagSentence(trimmed.split("\\s+"), tagged, null);
+						for (TaggedToken token : tagged)
+						{
+							if (answer.length() > 0) { answer.append(' '); }
+							answer.append(token.matrixData.ColY).append('/').append(token.matrixData.rowX);
+						}
+					}
+				}
+				catch (RuntimeException e) { answer.setLength(0); answer.append("ERROR ").append(e); }
+				out.append(answer).append('\n');
+
+				// Answer pipelined requests together; flush once no further request is waiting.
+				if (!in.ready()) { flush(out); }
+			}
+		}
+		catch (IOException e) { /* The client went away; nothing is left to answer. */ }
+	}
+
+
+	/**
+	 * Helper method that answers a training command:
+	 * '#train' followed by the 'word/TAG' tokens of an
+	 * annotated sentence, or '#publish'.
+	 *
+	 * @param command	the command line (trimmed).
+	 *
+	 * @param answer	the answer to the command, appended to.
+	 *
+	 * @throws IllegalArgumentException	if the command is unknown or a token has no tag.
+	 * @throws IllegalStateException	if the model cannot be trained.
+	 */
+	private void answerCommand(String command, StringBuilder answer)
+	{
+		String[] tokens = command.split("\\s+");
+		if (!tokens[0].equals("#train") && !tokens[0].equals("#publish")) { throw new IllegalArgumentException("Unknown command: " + tokens[0]); }
+		if (trainer == null) { throw new IllegalStateException("The model was loaded from a model file and cannot be trained"); }
+
+		if (tokens[0].equals("#publish"))
+		{
+			// The connections keep tagging with the current model while the new one is built.
+			AnalyzedData published = trainer.publish();
+			ServedModel model = new ServedModel(published, decoderSettings);
+			synchronized (this) { if (published == trainer.getSnapshot()) { served = model; } }
+			answer.append("OK ").append(published.getSentenceCount());
+			return;
+		}
+
+		// Turn the 'word/TAG' tokens into the token lines ("word TAG") of the training counts.
+		String[] tokenLines = new String[tokens.length - 1];
+		for (int i = 1; i < tokens.length; i++)
+		{
+			int tagStart = tokens[i].lastIndexOf('/');
+			if (tagStart <= 0 || tagStart == tokens[i].length() - 1) { throw new IllegalArgumentException("Token without a tag: '" + tokens[i] + "'"); }
+			tokenLines[i - 1] = tokens[i].substring(0, tagStart) + ' ' + tokens[i].substring(tagStart + 1);
+		}
+		trainer.addSentence(tokenLines);
+		answer.append("OK");
+	}
+
+
+	/**
+	 * Helper method that flushes the answers
+	 * written to a connection.
+	 *
+	 * @param out	the writer of the connection.
+	 *
+	 * @throws IOException	if the client went away.
+	 */
+	private static void flush(BufferedWriter out) throws IOException
+	{
+		TaggerEvents.OutputFlush event = new TaggerEvents.OutputFlush();
+		event.begin();
+		out.flush();
+		if (event.shouldCommit()) { event.destination = "connection"; event.commit(); }
+	}
+
+
+	/**
+	 * Helper method that converts the address argument
+	 * into a socket address: a port on the loopback
+	 * interface, or a Unix-domain socket path.
+	 *
+	 * @param address	a port number, or a file path.
+	 *
+	 * @return the socket address to listen on.
+	 */
+	private static SocketAddress toSocketAddress(String address)
+	{
+		if (address.matches("\\d+")) { return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)); }
+		return UnixDomainSocketAddress.of(Path.of(address));
+	}
+
+
+	/**
+	 * A finalized tag/state model served to the connections,
+	 * with the unknown word model and the cache of unknown
+	 * word candidates built once for it and shared by all
+	 * the connections tagging with it.
+	 */
+	private static final class ServedModel
+	{
+		// Represents the finalized tag/state model (read-only).
+		final AnalyzedData posModel;
+
+		// Represents the emission model of the words not in the vocabulary of the model.
+		final UnknownWordModel unknownWords;
+
+		// Represents the cache of unknown word candidates of the model.
+		final EmissionCache cache;
+
+		/**
+		 * Builds the unknown word model and emission cache of a model.
+		 *
+		 * @param posModel	the finalized tag/state model.
+		 *
+		 * @param settings	the options of the Viterbi decoders (e.g. the size of the emission cache).
+		 */
+		ServedModel(AnalyzedData posModel, DecoderSettings settings)
+		{
+			this.posModel = posModel;
+			unknownWords = new UnknownWordModel(posModel);
+			cache = new EmissionCache(unknownWords, settings.getEmissionCacheSize());
+		}
+
+		/**
+		 * Returns a sentence tagger of a connection tagging with the model.
+		 *
+		 * @param settings	the options of the Viterbi decoder.
+		 *
+		 * @return the sentence tagger.
+		 */
+		SentenceTagger newTagger(DecoderSettings settings)
+		{
+			return new SentenceTagger(posModel, posModel.getSmoothingEnabled(), settings, unknownWords, cache);
+		}
+	}
+
+}
@@ -41,12 +41,33 @@ public class AnalyzedData
 	// Represents a mapping between each tag and its occurrence rate in the training dataset.
 	private HashMap<String, Integer> tagNumber;
 	
-	// Represents a mapping between each tag to the words associated with it.
-	private HashMap<String, ArrayList<String>> tagWord;
+	// Represents the interned POS tags in the training dataset, indexed by tag id.
+	private SymbolIndex tagIndex;
+	
+	// Represents the interned words in the training dataset, indexed by word id.
+	private SymbolIndex wordIndex;
+	
+	// Represents the number of times each word occurs with each tag (by word and tag id).
+	private EmissionTable emissionCounts;
 	
 	// Represents mapping between each bigram-tag and its occurrence rate in the training dataset.
 	private HashMap<BigramTag, Integer> bigramTags;
 	
+	// Determines if Laplace smoothing was applied when the model was finalized.
+	private Boolean smoothingEnabled = false;
+	
+	// Represents the log transition probabilities between tag ids, computed when the model is finalized.
+	private TransitionMatrix transitionMatrix;
+	
+	// Represents the candidate POS tags (and emission log probabilities) of each word, computed when the model is finalized.
+	private TagDictionary tagDictionary;
+	
+	// Represents the log transition probabilities of the second-order (trigram) tag/state model; built on first use.
+	private TrigramMatrix trigramMatrix;
+	
+	// Represents the tag counts the trigram matrix is built from on first use; null once it is built (or if it was loaded).
+	private TrainingCounts trigramCounts;
+	
 	// Represents the list of analyzed and tagged dataset.
 	private ArrayList<TaggedToken> taggedData;
 	
@@ -155,13 +176,30 @@ public class AnalyzedData
 	
 	
 	/**
-	 * Helper method that sets a mapping 
-	 * between each tag to the words associated 
-	 * with it.
+	 * Helper method that sets the index
+	 * of POS tag ids.
 	 * 
-	 * @param value mapping between tag and associated words.
+	 * @param value index of the POS tags in the training dataset.
 	 */
-	public void setTagWord(HashMap<String, ArrayList<String>> value) { tagWord = value; }
+	public void setTagIndex(SymbolIndex value) { tagIndex = value; }
+	
+	
+	/**
+	 * Helper method that sets the index
+	 * of word ids.
+	 * 
+	 * @param value index of the words in the training dataset.
+	 */
+	public void setWordIndex(SymbolIndex value) { wordIndex = value; }
+	
+	
+	/**
+	 * Helper method that sets the table of
+	 * word-tag emission counts.
+	 * 
+	 * @param value emission counts of each word with each tag.
+	 */
+	public void setEmissionCounts(EmissionTable value) { emissionCounts = value; }
 	
 	
 	/**
@@ -174,6 +212,55 @@ public class AnalyzedData
 	public void setBigramTags(HashMap<BigramTag, Integer> value) { bigramTags = value; }
 	
 	
+	/**
+	 * Helper method that sets the matrix
+	 * of log transition probabilities
+	 * between tag ids.
+	 * 
+	 * @param value the dense transition matrix of the finalized model.
+	 */
+	public void setTransitionMatrix(TransitionMatrix value) { transitionMatrix = value; }
+	
+	
+	/**
+	 * Helper method that sets the candidate
+	 * POS tags of each word.
+	 * 
+	 * @param value the tag dictionary of the finalized model.
+	 */
+	public void setTagDictionary(TagDictionary value) { tagDictionary = value; }
+	
+	
+	/**
+	 * Helper method that sets the log transition
+	 * probabilities of the trigram tag/state model.
+	 * 
+	 * @param value the trigram transition matrix of the model.
+	 */
+	public synchronized void setTrigramMatrix(TrigramMatrix value) { trigramMatrix = value; trigramCounts = null; }
+	
+	
+	/**
+	 * Helper method that sets the counts the
+	 * trigram tag/state model is estimated from,
+	 * when it is first used (e.g. by a trigram
+	 * decoder), so models decoded with the bigram
+	 * model never build it.
+	 * 
+	 * @param value the counts of the training dataset.
+	 */
+	public synchronized void setTrigramCounts(TrainingCounts value) { trigramCounts = value; trigramMatrix = null; }
+	
+	
+	/**
+	 * Helper method that sets whether
+	 * smoothing was applied to the model.
+	 * 
+	 * @param value	option that determines if smoothing is enabled.
+	 */
+	public void setSmoothingEnabled(Boolean value) { smoothingEnabled = value; }
+	
+	
 	/**
 	 * Helper method that returns the data
 	 * tagged by the HMM Viterbi system.
@@ -259,13 +346,30 @@ public class AnalyzedData
 
 
 	/**
-	 * Helper method that returns a mapping 
-	 * between each tag to the words associated 
-	 * with it.
+	 * Helper method that returns the index
+	 * of POS tag ids.
 	 * 
-	 * @return mapping between tags and words associated with them.
+	 * @return index of the POS tags in the training dataset.
 	 */
-	public HashMap<String, ArrayList<String>> getTagWord() { return tagWord; }
+	public SymbolIndex getTagIndex() { return tagIndex; }
+	
+	
+	/**
+	 * Helper method that returns the index
+	 * of word ids.
+	 * 
+	 * @return index of the words in the training dataset.
+	 */
+	public SymbolIndex getWordIndex() { return wordIndex; }
+	
+	
+	/**
+	 * Helper method that returns the table of
+	 * word-tag emission counts.
+	 * 
+	 * @return emission counts of each word with each tag.
+	 */
+	public EmissionTable getEmissionCounts() { return emissionCounts; }
 
 
 	/**
@@ -276,6 +380,47 @@ public class AnalyzedData
 	 * @return mapping between bigram-tags and their occurrence-rate.
 	 */
 	public HashMap<BigramTag, Integer> getBigramTags() { return bigramTags; }
+	
+	
+	/**
+	 * Helper method that returns the matrix
+	 * of log transition probabilities
+	 * between tag ids.
+	 * 
+	 * @return the dense transition matrix of the finalized model.
+	 */
+	public TransitionMatrix getTransitionMatrix() { return transitionMatrix; }
+	
+	
+	/**
+	 * Helper method that returns the candidate
+	 * POS tags of each word.
+	 * 
+	 * @return the tag dictionary of the finalized model.
+	 */
+	public TagDictionary getTagDictionary() { return tagDictionary; }
+	
+	
+	/**
+	 * Helper method that returns the log transition
+	 * probabilities of the trigram tag/state model.
+	 * 
+	 * @return the trigram transition matrix of the model, built from its counts on the first call.
+	 */
+	public synchronized TrigramMatrix getTrigramMatrix()
+	{
+		if (trigramMatrix == null && trigramCounts != null) { trigramMatrix = new TrigramMatrix(trigramCounts); trigramCounts = null; }
+		return trigramMatrix;
+	}
+	
+	
+	/**
+	 * Helper method that returns whether
+	 * smoothing was applied to the model.
+	 * 
+	 * @return true if the model was finalized with Laplace smoothing.
+	 */
+	public Boolean getSmoothingEnabled() { return smoothingEnabled; }
 
 	
 	//============================================ PRIVATE METHODS =============================================================
@@ -0,0 +1,170 @@
+package postagger.structures;
+
+
+/**
+ * This class represents a data structure
+ * holding the options of the Viterbi decoder.
+ *
+ * By default decoding is exact: every POS tag of a
+ * column is extended by every POS tag of the previous
+ * column. A beam keeps only the best states of each
+ * column: at most 'beam width' states, and only those
+ * within 'beam threshold' (in log probability) of the
+ * best state of the column.
+ *
+ * The tag order selects the tag/state model decoded:
+ * the bigram model (order 2), or the trigram model
+ * (order 3), whose states are pairs of tags.
+ *
+ * The emission cache size bounds the number of unknown
+ * words whose candidate tags are kept between sentences
+ * (see EmissionCache); 0 computes them every time.
+ *
+ * @author David Olorundare
+ *
+ */
+public class DecoderSettings
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the maximum number of states kept per column; 0 keeps every state.
+	private int beamWidth = 0;
+
+	// Represents the largest log probability margin below the best state of a column at which a state is kept.
+	private double beamThreshold = Double.POSITIVE_INFINITY;
+
+	// Represents the number of tags in the tag n-grams of the decoded model: 2 (bigram) or 3 (trigram).
+	private int tagOrder = 2;
+
+	// Represents the maximum number of unknown words whose candidate tags are cached; 0 disables the cache.
+	private int emissionCacheSize = 4096;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class; the
+	 * settings of exact decoding.
+	 *
+	 */
+	public DecoderSettings(){	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Helper method that sets the maximum number
+	 * of states kept in each column.
+	 *
+	 * @param width	the beam width; 0 keeps every state.
+	 *
+	 * @throws IllegalArgumentException	if the width is negative.
+	 */
+	public void setBeamWidth(int width)
+	{
+		if (width < 0) { throw new IllegalArgumentException("The beam width must not be negative: " + width); }
+		beamWidth = width;
+	}
+
+
+	/**
+	 * Helper method that returns the maximum number
+	 * of states kept in each column.
+	 *
+	 * @return the beam width; 0 keeps every state.
+	 */
+	public int getBeamWidth() { return beamWidth; }
+
+
+	/**
+	 * Helper method that sets the log probability
+	 * margin below the best state of a column at
+	 * which states are kept.
+	 *
+	 * @param threshold	the beam threshold; positive infinity keeps every state.
+	 *
+	 * @throws IllegalArgumentException	if the threshold is negative or not a number.
+	 */
+	public void setBeamThreshold(double threshold)
+	{
+		if (!(threshold >= 0)) { throw new IllegalArgumentException("The beam threshold must be a non-negative number: " + threshold); }
+		beamThreshold = threshold;
+	}
+
+
+	/**
+	 * Helper method that returns the log probability
+	 * margin below the best state of a column at
+	 * which states are kept.
+	 *
+	 * @return the beam threshold; positive infinity keeps every state.
+	 */
+	public double getBeamThreshold() { return beamThreshold; }
+
+
+	/**
+	 * Helper method that sets the order of
+	 * the tag/state model decoded.
+	 *
+	 * @param order	2 for the bigram model, 3 for the trigram model.
+	 *
+	 * @throws IllegalArgumentException	if the order is neither 2 nor 3.
+	 */
+	public void setTagOrder(int order)
+	{
+		if (order != 2 && order != 3) { throw new IllegalArgumentException("The tag order must be 2 (bigram) or 3 (trigram): " + order); }
+		tagOrder = order;
+	}
+
+
+	/**
+	 * Helper method that returns the order of
+	 * the tag/state model decoded.
+	 *
+	 * @return 2 for the bigram model, 3 for the trigram model.
+	 */
+	public int getTagOrder() { return tagOrder; }
+
+
+	/**
+	 * Helper method that sets the maximum number of
+	 * unknown words whose candidate tags are cached.
+	 *
+	 * @param size	the emission cache size; 0 disables the cache.
+	 *
+	 * @throws IllegalArgumentException	if the size is negative.
+	 */
+	public void setEmissionCacheSize(int size)
+	{
+		if (size < 0) { throw new IllegalArgumentException("The emission cache size must not be negative: " + size); }
+		emissionCacheSize = size;
+	}
+
+
+	/**
+	 * Helper method that returns the maximum number of
+	 * unknown words whose candidate tags are cached.
+	 *
+	 * @return the emission cache size; 0 disables the cache.
+	 */
+	public int getEmissionCacheSize() { return emissionCacheSize; }
+
+
+	/**
+	 * Helper method that determines if decoding
+	 * is exact (no states are pruned).
+	 *
+	 * @return true if every state of each column is kept.
+	 */
+	public boolean isExact() { return beamWidth == 0 && beamThreshold == Double.POSITIVE_INFINITY; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+	// No Private Methods.
+
+}
@@ -0,0 +1,125 @@
+package postagger.structures;
+
+import java.util.Arrays;
+
+
+/**
+ * This class represents a data structure that
+ * estimates the number of distinct words in a
+ * stream in a fixed amount of memory, however many
+ * words (or distinct words) the stream holds.
+ *
+ * It is a HyperLogLog counter: each word is hashed
+ * to 64 bits, the first bits of the hash select one
+ * of REGISTERS registers, and the register keeps the
+ * largest position of the first 1-bit among the other
+ * bits of the hashes it sees. The harmonic mean of the
+ * registers then estimates the number of distinct
+ * hashes, within about 1.6% (one standard error) with
+ * 4096 registers. Small counts, for which some registers
+ * are still empty, are estimated from the number of
+ * empty registers instead (linear counting), which is
+ * close to exact.
+ *
+ * @author David Olorundare
+ *
+ */
+public class DistinctCounter
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the number of bits of a hash that select its register.
+	private static final int INDEX_BITS = 12;
+
+	// Represents the number of registers (4 KB of counter, however many words are counted).
+	private static final int REGISTERS = 1 << INDEX_BITS;
+
+	// Represents the bias correction of the harmonic mean of the registers, for REGISTERS registers.
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+	// Represents the largest position of the first 1-bit seen by each register; 0 for an empty register.
+	private byte[] registers = new byte[REGISTERS];
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 */
+	public DistinctCounter(){	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Counts a word; words already
+	 * counted do not change the estimate.
+	 *
+	 * @param word	the word to count.
+	 */
+	public void add(CharSequence word)
+	{
+		long hash = hash(word);
+		int register = (int) (hash >>> (64 - INDEX_BITS));
+
+		// The position of the first 1-bit after the index bits; the sentinel bit bounds it when those bits are all 0.
+		int rank = Long.numberOfLeadingZeros((hash << INDEX_BITS) | (1L << (INDEX_BITS - 1))) + 1;
+		if (rank > registers[register]) { registers[register] = (byte) rank; }
+	}
+
+
+	/**
+	 * Helper method that returns the estimated
+	 * number of distinct words counted.
+	 *
+	 * @return the estimated number of distinct words.
+	 */
+	public long getEstimate()
+	{
+		double sum = 0; int empty = 0;
+		for (byte rank : registers)
+		{
+			sum += 1.0 / (1L << rank);
+			if (rank == 0) { empty++; }
+		}
+		double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		if (estimate <= 2.5 * REGISTERS && empty > 0) { estimate = REGISTERS * Math.log((double) REGISTERS / empty); }
+		return Math.round(estimate);
+	}
+
+
+	/**
+	 * Resets the counter, as if no
+	 * word had been counted.
+	 *
+	 */
+	public void clear() { Arrays.fill(registers, (byte) 0); }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that hashes a word to 64 bits:
+	 * FNV-1a over its characters, then the final
+	 * mix of MurmurHash3, which spreads the bits.
+	 *
+	 * @param word	the word to hash.
+	 *
+	 * @return the hash of the word.
+	 */
+	private static long hash(CharSequence word)
+	{
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < word.length(); i++) { hash = (hash ^ word.charAt(i)) * 0x100000001b3L; }
+		hash ^= hash >>> 33; hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33; hash *= 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+}
@@ -0,0 +1,306 @@
+package postagger.structures;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import postagger.utils.TaggerEvents;
+
+
+/**
+ * This class represents a bounded cache of the
+ * candidate tags of unknown words, and their emission
+ * log probabilities, keyed by (negative) word id.
+ *
+ * The candidates of a known word are precomputed in the
+ * TagDictionary, but those of an unknown word are computed
+ * from the UnknownWordModel each time the word appears.
+ * Word frequencies follow a Zipf distribution, so the same
+ * few unknown word ids (suffix/shape trie nodes) make up
+ * most unknown tokens, and their candidates are kept here.
+ *
+ * The cache is shared by the decoders of every tagging
+ * thread. It is split into stripes, each guarded by its
+ * own lock, that evict with the CLOCK algorithm (an
+ * approximation of LRU): a hit marks its entry, and the
+ * clock hand evicts the first unmarked entry it meets,
+ * unmarking the entries it passes. Cached candidates are
+ * never modified, so a decoder may keep reading them
+ * after they are evicted.
+ *
+ * @author David Olorundare
+ *
+ */
+public class EmissionCache
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the number of stripes of a cache holding at least STRIPED_CAPACITY entries (a power of two).
+	private static final int STRIPES = 16;
+
+	// Represents the smallest capacity at which the cache is split into stripes.
+	private static final int STRIPED_CAPACITY = 256;
+
+	// Represents the model computing the candidates of the unknown words missing from the cache.
+	private UnknownWordModel unknownWordModel;
+
+	// Represents the maximum number of cached words; 0 disables the cache.
+	private int capacity;
+
+	// Represents the stripes of the cache; a word id is held by the stripe selected by the low bits of its hash.
+	private Stripe[] stripes;
+
+	// Represents the number of lookups that found, or did not find, the word in the cache.
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class; an empty cache.
+	 *
+	 * @param unknownWordModel	the model computing the candidates of unknown words.
+	 *
+	 * @param capacity	the maximum number of cached words; 0 disables the cache.
+	 *
+	 * @throws IllegalArgumentException	if the capacity is negative.
+	 */
+	public EmissionCache(UnknownWordModel unknownWordModel, int capacity)
+	{
+		if (capacity < 0) { throw new IllegalArgumentException("The emission cache size must not be negative: " + capacity); }
+		this.unknownWordModel = unknownWordModel;
+		this.capacity = capacity;
+
+		int stripeCount = (capacity >= STRIPED_CAPACITY) ? STRIPES : 1;
+		stripes = new Stripe[(capacity == 0) ? 0 : stripeCount];
+		for (int stripe = 0; stripe < stripes.length; stripe++)
+		{
+			// Spread the capacity over the stripes, the first ones taking the remainder.
+			stripes[stripe] = new Stripe(capacity / stripeCount + ((stripe < capacity % stripeCount) ? 1 : 0));
+		}
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Returns the candidate tags of an unknown word, and
+	 * its emission log probability with each of them,
+	 * computing and caching them if they are not cached.
+	 *
+	 * @param wordId	the (negative) id of the unknown word.
+	 *
+	 * @return the candidates of the word (read-only).
+	 *
+	 * @throws IllegalStateException	if the cache is disabled.
+	 */
+	public Candidates get(int wordId)
+	{
+		if (capacity == 0) { throw new IllegalStateException("The emission cache is disabled"); }
+
+		int hash = hash(wordId);
+		Stripe stripe = stripes[hash & (stripes.length - 1)];
+		Candidates cached = stripe.get(wordId, hash);
+		if (cached != null) { hits.increment(); return cached; }
+
+		// Compute the candidates outside the lock; if another thread cached them meanwhile, keep its copy.
+		misses.increment();
+		TaggerEvents.EmissionCacheMiss event = new TaggerEvents.EmissionCacheMiss();
+		event.begin();
+		int[] tags = new int[unknownWordModel.size()];
+		double[] logEmissions = new double[tags.length];
+		int count = unknownWordModel.computeCandidates(wordId, tags, logEmissions);
+		if (event.shouldCommit()) { event.wordId = wordId; event.candidates = count; event.commit(); }
+		return stripe.putIfAbsent(wordId, hash, new Candidates(Arrays.copyOf(tags, count), Arrays.copyOf(logEmissions, count)));
+	}
+
+
+	/**
+	 * Helper method that determines if
+	 * the cache holds any words.
+	 *
+	 * @return false if the cache is disabled (its capacity is 0).
+	 */
+	public boolean isEnabled() { return capacity > 0; }
+
+
+	/**
+	 * Helper method that returns the maximum
+	 * number of cached words.
+	 *
+	 * @return the capacity of the cache; 0 if it is disabled.
+	 */
+	public int getCapacity() { return capacity; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * lookups that found the word in the cache.
+	 *
+	 * @return number of cache hits.
+	 */
+	public long getHits() { return hits.sum(); }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * lookups that did not find the word in the
+	 * cache (and computed its candidates).
+	 *
+	 * @return number of cache misses.
+	 */
+	public long getMisses() { return misses.sum(); }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that mixes the bits
+	 * of a word id into a hash code.
+	 *
+	 */
+	private static int hash(int wordId)
+	{
+		int hash = wordId * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+
+	/**
+	 * The candidate tags of an unknown word, in ascending
+	 * order, and its emission log probability with each
+	 * of them, at the same positions.
+	 */
+	public static final class Candidates
+	{
+		// Represents the candidate tag ids.
+		public final int[] tags;
+
+		// Represents the emission log probability of the word with each candidate tag.
+		public final double[] logEmissions;
+
+		/**
+		 * Constructor of the class.
+		 *
+		 * @param tags	the candidate tag ids, in ascending order.
+		 *
+		 * @param logEmissions	the emission log probability of the word with each candidate tag.
+		 */
+		Candidates(int[] tags, double[] logEmissions) { this.tags = tags; this.logEmissions = logEmissions; }
+	}
+
+
+	/**
+	 * A stripe of the cache: a fixed number of entry
+	 * slots, replaced with the CLOCK algorithm, and an
+	 * open-addressing index from word id to slot.
+	 */
+	private static final class Stripe
+	{
+		// Represents the cached candidates, the word id and the reference mark of each slot.
+		private final Candidates[] entries;
+		private final int[] entryWords;
+		private final boolean[] referenced;
+
+		// Represents the number of slots filled, and the slot the clock hand points at.
+		private int used, hand;
+
+		// Represents the index: the word id and slot of each index position; a slot of -1 marks a free position.
+		private final int[] indexWords;
+		private final int[] indexSlots;
+
+		/**
+		 * Constructor of the class; an empty stripe.
+		 *
+		 * @param size	the number of slots of the stripe.
+		 */
+		Stripe(int size)
+		{
+			entries = new Candidates[size]; entryWords = new int[size]; referenced = new boolean[size];
+
+			// Keep the index at most half full, so probe sequences stay short.
+			int positions = Integer.highestOneBit(Math.max(size, 1)) << 2;
+			indexWords = new int[positions]; indexSlots = new int[positions];
+			Arrays.fill(indexSlots, -1);
+		}
+
+		/**
+		 * Returns the cached candidates of a word, marking
+		 * them as recently used, or null if not cached.
+		 */
+		synchronized Candidates get(int wordId, int hash)
+		{
+			int slot = indexSlots[find(wordId, hash)];
+			if (slot < 0) { return null; }
+
+			referenced[slot] = true;
+			return entries[slot];
+		}
+
+		/**
+		 * Caches the candidates of a word, unless they are
+		 * already cached, evicting an entry if the stripe
+		 * is full.
+		 *
+		 * @return the candidates cached for the word.
+		 */
+		synchronized Candidates putIfAbsent(int wordId, int hash, Candidates candidates)
+		{
+			int position = find(wordId, hash);
+			if (indexSlots[position] >= 0) { return entries[indexSlots[position]]; }
+
+			int slot;
+			if (used < entries.length) { slot = used++; }
+			else
+			{
+				// Advance the clock hand past the recently used entries, giving each a second chance.
+				while (referenced[hand]) { referenced[hand] = false; hand = (hand + 1) % entries.length; }
+				slot = hand; hand = (hand + 1) % entries.length;
+				remove(entryWords[slot]);
+				position = find(wordId, hash);
+			}
+			entries[slot] = candidates; entryWords[slot] = wordId; referenced[slot] = false;
+			indexWords[position] = wordId; indexSlots[position] = slot;
+			return candidates;
+		}
+
+		/**
+		 * Returns the index position of a word id, or the
+		 * free position at which it would be inserted.
+		 */
+		private int find(int wordId, int hash)
+		{
+			int mask = indexSlots.length - 1;
+			int position = (hash >>> 4) & mask;
+			while (indexSlots[position] >= 0 && indexWords[position] != wordId) { position = (position + 1) & mask; }
+			return position;
+		}
+
+		/**
+		 * Removes a word id from the index, shifting back the
+		 * entries after it so no probe sequence is broken.
+		 */
+		private void remove(int wordId)
+		{
+			int mask = indexSlots.length - 1;
+			int free = find(wordId, hash(wordId));
+			for (int position = (free + 1) & mask; indexSlots[position] >= 0; position = (position + 1) & mask)
+			{
+				// An entry may move back to the free position unless its home lies cyclically after that position.
+				int home = (hash(indexWords[position]) >>> 4) & mask;
+				boolean stays = (free <= position) ? (free < home && home <= position) : (free < home || home <= position);
+				if (stays) { continue; }
+
+				indexWords[free] = indexWords[position]; indexSlots[free] = indexSlots[position];
+				free = position;
+			}
+			indexSlots[free] = -1;
+		}
+	}
+
+}
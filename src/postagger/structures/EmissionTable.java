@@ -0,0 +1,258 @@
+package postagger.structures;
+
+import java.util.Arrays;
+
+
+/**
+ * This class represents a data structure
+ * that stores the emission counts of the
+ * tag/state model, i.e. the number of times
+ * a given word (id) occurs with a given POS
+ * tag (id) in the training dataset.
+ *
+ * The counts are kept in a primitive open-addressing
+ * hash table keyed by the (word, tag) pair, so only
+ * pairs that actually occur take up space and each
+ * lookup is a constant-time probe.
+ *
+ * @author David Olorundare
+ *
+ */
+public class EmissionTable
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents a key slot that holds no (word, tag) pair.
+	private static final long EMPTY_KEY = -1L;
+
+	// Represents the initial number of slots in the table (must be a power of two).
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// Represents the (word, tag) pair stored in each slot.
+	private long[] keys;
+
+	// Represents the occurrence count stored in each slot.
+	private int[] counts;
+
+	// Represents the number of (word, tag) pairs stored in the table.
+	private int size = 0;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 */
+	public EmissionTable()
+	{
+		this(INITIAL_CAPACITY / 2);
+	}
+
+
+	/**
+	 * Constructor of the class, sized to hold a
+	 * given number of (word, tag) pairs without
+	 * growing.
+	 *
+	 * @param expectedSize	the number of pairs the table is expected to hold.
+	 *
+	 */
+	public EmissionTable(int expectedSize)
+	{
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < expectedSize * 2 + 2) { capacity *= 2; }
+		keys = new long[capacity];
+		counts = new int[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Increments the number of times a given
+	 * word occurs with a given POS tag.
+	 *
+	 * @param wordId	id of the word.
+	 *
+	 * @param tagId	id of the POS tag.
+	 */
+	public void increment(int wordId, int tagId)
+	{
+		add(wordId, tagId, 1);
+	}
+
+
+	/**
+	 * Adds a given amount to the number of
+	 * times a given word occurs with a given
+	 * POS tag.
+	 *
+	 * @param wordId	id of the word.
+	 *
+	 * @param tagId	id of the POS tag.
+	 *
+	 * @param amount	the amount to add to the count.
+	 */
+	public void add(int wordId, int tagId, int amount)
+	{
+		// Keep the table at most half full so probe sequences stay short.
+		if ((size + 1) * 2 > keys.length) { resize(keys.length * 2); }
+
+		long key = toKey(wordId, tagId);
+		int slot = findSlot(keys, key);
+		if (keys[slot] == EMPTY_KEY) { keys[slot] = key; size++; }
+		counts[slot] += amount;
+	}
+
+
+	/**
+	 * Helper method that returns the number of
+	 * times a given word occurs with a given
+	 * POS tag.
+	 *
+	 * @param wordId	id of the word (a negative id denotes an unknown word).
+	 *
+	 * @param tagId	id of the POS tag.
+	 *
+	 * @return the occurrence count of the word with the POS tag.
+	 */
+	public int getCount(int wordId, int tagId)
+	{
+		if (wordId < 0 || tagId < 0) { return 0; }
+		int slot = findSlot(keys, toKey(wordId, tagId));
+		return counts[slot];
+	}
+
+
+	/**
+	 * Helper method that returns the number
+	 * of distinct (word, tag) pairs in the table.
+	 *
+	 * @return number of distinct (word, tag) pairs.
+	 */
+	public int size() { return size; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * slots in the table, for iterating over
+	 * the stored pairs.
+	 *
+	 * @return number of slots in the table.
+	 */
+	public int getSlotCount() { return keys.length; }
+
+
+	/**
+	 * Helper method that determines if a
+	 * slot of the table holds a (word, tag) pair.
+	 *
+	 * @param slot	index of the slot.
+	 *
+	 * @return true if the slot holds a pair.
+	 */
+	public boolean isUsed(int slot) { return keys[slot] != EMPTY_KEY; }
+
+
+	/**
+	 * Helper method that returns the word id
+	 * of the pair stored in a slot.
+	 *
+	 * @param slot	index of a used slot.
+	 *
+	 * @return the word id of the pair.
+	 */
+	public int getWordIdAt(int slot) { return (int) (keys[slot] >>> 32); }
+
+
+	/**
+	 * Helper method that returns the tag id
+	 * of the pair stored in a slot.
+	 *
+	 * @param slot	index of a used slot.
+	 *
+	 * @return the tag id of the pair.
+	 */
+	public int getTagIdAt(int slot) { return (int) keys[slot]; }
+
+
+	/**
+	 * Helper method that returns the count
+	 * of the pair stored in a slot.
+	 *
+	 * @param slot	index of a used slot.
+	 *
+	 * @return the occurrence count of the pair.
+	 */
+	public int getCountAt(int slot) { return counts[slot]; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Packs a (word, tag) pair into a single table key.
+	 *
+	 * @param wordId	id of the word.
+	 *
+	 * @param tagId	id of the POS tag.
+	 *
+	 * @return the table key of the pair.
+	 */
+	private static long toKey(int wordId, int tagId)
+	{
+		return ((long) wordId << 32) | (tagId & 0xFFFFFFFFL);
+	}
+
+
+	/**
+	 * Finds the slot that holds a given key, or the
+	 * empty slot where it would be inserted.
+	 *
+	 * @param table	the key slots to search.
+	 *
+	 * @param key	the key to find.
+	 *
+	 * @return index of the slot.
+	 */
+	private static int findSlot(long[] table, long key)
+	{
+		int mask = table.length - 1;
+		// Mix the bits of the key (MurmurHash3 finalizer) so that neighbouring ids spread across the table.
+		long hash = key;
+		hash ^= hash >>> 33; hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33; hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		int slot = (int) hash & mask;
+		while (table[slot] != EMPTY_KEY && table[slot] != key) { slot = (slot + 1) & mask; }
+		return slot;
+	}
+
+
+	/**
+	 * Moves all the stored pairs into a larger table.
+	 *
+	 * @param capacity	the new number of slots (a power of two).
+	 */
+	private void resize(int capacity)
+	{
+		long[] oldKeys = keys; int[] oldCounts = counts;
+		keys = new long[capacity]; counts = new int[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] == EMPTY_KEY) { continue; }
+			int slot = findSlot(keys, oldKeys[i]);
+			keys[slot] = oldKeys[i]; counts[slot] = oldCounts[i];
+		}
+	}
+
+}
@@ -0,0 +1,274 @@
+package postagger.structures;
+
+import java.util.Arrays;
+
+
+/**
+ * This class represents a data structure
+ * that accumulates the evaluation of tagged
+ * tokens against their labelled tags, in a
+ * single pass: a confusion matrix of labelled
+ * by assigned tag (id), from which the per-tag
+ * precision, recall and F1 are computed, and the
+ * accuracy on the known and unknown words.
+ *
+ * Counts of separate shards (e.g. of the folds of a
+ * cross-validation, evaluated in parallel) can be
+ * merged; tags are matched by name.
+ *
+ * @author David Olorundare
+ *
+ */
+public class EvaluationCounts
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the ids assigned to the labelled and assigned POS tags.
+	private SymbolIndex tagIndex = new SymbolIndex();
+
+	// Represents the number of tokens with each labelled tag tagged with each tag, indexed by [labelledTag][assignedTag].
+	private int[][] confusion = new int[0][0];
+
+	// Represents the number of tokens labelled with each tag, and tagged with each tag, indexed by tag id.
+	private int[] labelledCounts = new int[0];
+	private int[] assignedCounts = new int[0];
+
+	// Represents the number of tokens evaluated, and of tokens whose assigned tag is their labelled tag.
+	private int tokenCount = 0, correctCount = 0;
+
+	// Represents the number of unknown-word tokens evaluated, and of those tagged correctly.
+	private int unknownCount = 0, unknownCorrectCount = 0;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 */
+	public EvaluationCounts(){	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Returns the id of a POS tag, assigning
+	 * it the next free id if it has not been
+	 * encountered before.
+	 *
+	 * @param tag	the POS tag.
+	 *
+	 * @return the id of the tag.
+	 */
+	public int getTagId(String tag)
+	{
+		int id = tagIndex.intern(tag);
+		ensureTagCapacity(id + 1);
+		return id;
+	}
+
+
+	/**
+	 * Counts a tagged token.
+	 *
+	 * @param labelledTag	id of the tag the token is labelled with.
+	 *
+	 * @param assignedTag	id of the tag assigned to the token.
+	 *
+	 * @param unknownWord	true if the token's word was not in the training dataset.
+	 *
+	 */
+	public void addToken(int labelledTag, int assignedTag, boolean unknownWord)
+	{
+		confusion[labelledTag][assignedTag]++;
+		labelledCounts[labelledTag]++; assignedCounts[assignedTag]++;
+		tokenCount++;
+		if (unknownWord) { unknownCount++; }
+		if (labelledTag == assignedTag)
+		{
+			correctCount++;
+			if (unknownWord) { unknownCorrectCount++; }
+		}
+	}
+
+
+	/**
+	 * Adds the counts of another evaluation (e.g.
+	 * of another shard of the tagged tokens) to
+	 * these counts.
+	 *
+	 * @param other	the counts to merge into these counts.
+	 *
+	 */
+	public void merge(EvaluationCounts other)
+	{
+		// Map the other counts' tag ids onto the ids of these counts.
+		int[] tagMap = new int[other.tagIndex.size()];
+		for (int tag = 0; tag < tagMap.length; tag++) { tagMap[tag] = getTagId(other.tagIndex.getSymbol(tag)); }
+
+		for (int labelled = 0; labelled < tagMap.length; labelled++)
+		{
+			labelledCounts[tagMap[labelled]] += other.labelledCounts[labelled];
+			assignedCounts[tagMap[labelled]] += other.assignedCounts[labelled];
+			for (int assigned = 0; assigned < tagMap.length; assigned++)
+			{
+				confusion[tagMap[labelled]][tagMap[assigned]] += other.confusion[labelled][assigned];
+			}
+		}
+		tokenCount += other.tokenCount; correctCount += other.correctCount;
+		unknownCount += other.unknownCount; unknownCorrectCount += other.unknownCorrectCount;
+	}
+
+
+	/**
+	 * Helper method that returns the index
+	 * of tag ids.
+	 *
+	 * @return index of the evaluated tags.
+	 */
+	public SymbolIndex getTagIndex() { return tagIndex; }
+
+
+	/**
+	 * Helper method that returns a cell of
+	 * the confusion matrix.
+	 *
+	 * @param labelledTag	id of the labelled tag.
+	 *
+	 * @param assignedTag	id of the assigned tag.
+	 *
+	 * @return number of tokens labelled with the first tag and tagged with the second.
+	 */
+	public int getCount(int labelledTag, int assignedTag) { return confusion[labelledTag][assignedTag]; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of tokens labelled with a tag.
+	 *
+	 * @param tag	id of the tag.
+	 *
+	 * @return number of tokens labelled with the tag.
+	 */
+	public int getLabelledCount(int tag) { return labelledCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of tokens tagged with a tag.
+	 *
+	 * @param tag	id of the tag.
+	 *
+	 * @return number of tokens tagged with the tag.
+	 */
+	public int getAssignedCount(int tag) { return assignedCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the precision of
+	 * a tag: the share of the tokens tagged with it
+	 * that are labelled with it.
+	 *
+	 * @param tag	id of the tag.
+	 *
+	 * @return the precision, or NaN if no token was tagged with the tag.
+	 */
+	public double getPrecision(int tag) { return (assignedCounts[tag] == 0) ? Double.NaN : (double) confusion[tag][tag] / assignedCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the recall of
+	 * a tag: the share of the tokens labelled with
+	 * it that are tagged with it.
+	 *
+	 * @param tag	id of the tag.
+	 *
+	 * @return the recall, or NaN if no token is labelled with the tag.
+	 */
+	public double getRecall(int tag) { return (labelledCounts[tag] == 0) ? Double.NaN : (double) confusion[tag][tag] / labelledCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the F1 score
+	 * of a tag: the harmonic mean of its
+	 * precision and recall.
+	 *
+	 * @param tag	id of the tag.
+	 *
+	 * @return the F1 score, or NaN if no token is labelled or tagged with the tag.
+	 */
+	public double getF1(int tag)
+	{
+		// 2PR / (P + R) simplifies to twice the correct tokens over the tokens labelled or tagged with the tag.
+		int total = labelledCounts[tag] + assignedCounts[tag];
+		return (total == 0) ? Double.NaN : 2.0 * confusion[tag][tag] / total;
+	}
+
+
+	/**
+	 * Helper method that returns the number
+	 * of tokens evaluated.
+	 *
+	 * @return number of tokens.
+	 */
+	public int getTokenCount() { return tokenCount; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * tokens tagged with their labelled tag.
+	 *
+	 * @return number of correct tokens.
+	 */
+	public int getCorrectCount() { return correctCount; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of unknown-word tokens evaluated.
+	 *
+	 * @return number of unknown-word tokens.
+	 */
+	public int getUnknownCount() { return unknownCount; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * unknown-word tokens tagged with their
+	 * labelled tag.
+	 *
+	 * @return number of correct unknown-word tokens.
+	 */
+	public int getUnknownCorrectCount() { return unknownCorrectCount; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Grows the per-tag tables so they can hold a given number of tags.
+	 *
+	 * @param tagTotal	the number of tags the tables must hold.
+	 *
+	 */
+	private void ensureTagCapacity(int tagTotal)
+	{
+		if (tagTotal <= labelledCounts.length) { return; }
+
+		int capacity = Math.max(tagTotal, labelledCounts.length * 2);
+		labelledCounts = Arrays.copyOf(labelledCounts, capacity);
+		assignedCounts = Arrays.copyOf(assignedCounts, capacity);
+
+		int[][] grown = new int[capacity][];
+		for (int labelled = 0; labelled < capacity; labelled++)
+		{
+			grown[labelled] = (labelled < confusion.length) ? Arrays.copyOf(confusion[labelled], capacity) : new int[capacity];
+		}
+		confusion = grown;
+	}
+
+}
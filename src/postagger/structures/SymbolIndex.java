@@ -0,0 +1,815 @@
+package postagger.structures;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * This class represents a data structure
+ * that interns symbols (words or POS tags)
+ * to dense integer ids, in the order in which
+ * they are first encountered, so that the
+ * tag/state models can be stored in primitive
+ * arrays indexed by those ids.
+ *
+ * Each symbol is stored once, as its UTF-8 bytes in an
+ * open-addressing hash table of ids; a String is only
+ * created when a symbol is read back. Symbols can be
+ * looked up (and interned) from a range of UTF-8 bytes,
+ * e.g. a column of a memory-mapped dataset, and ASCII
+ * symbols from a String, without encoding them.
+ *
+ * A read-only index can be moved off the heap: its
+ * symbols, and the hash table of their ids, are then
+ * packed into a single direct buffer, so that a
+ * vocabulary of millions of words does not keep millions
+ * of small objects for the garbage collector to trace.
+ * Looking up an ASCII symbol then creates no objects.
+ *
+ * The symbols off the heap are front-coded: sorted, and
+ * split into blocks of BLOCK_SIZE symbols, each stored as
+ * the length of the prefix it shares with the symbol
+ * before it and the length of the bytes that follow it
+ * (packed in a byte if both are short), and those bytes;
+ * the first symbol of a block shares nothing. Sorted words
+ * share long prefixes with their neighbours, so the
+ * vocabulary takes fewer bytes than its words, and a
+ * symbol is read (or compared) by decoding its block
+ * forward from its first symbol.
+ *
+ * @author David Olorundare
+ *
+ */
+public class SymbolIndex
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the UTF-8 bytes of each symbol, indexed by id; the only copy of the symbols on the heap.
+	private byte[][] symbolBytes = new byte[16][];
+
+	// Represents the number of symbols interned on the heap.
+	private int heapCount = 0;
+
+	// Represents an open-addressing hash table of the symbol ids, keyed by the symbols' UTF-8 bytes (-1 marks a free slot).
+	private int[] byteTable = newByteTable(32);
+
+	// Determines if the index is read-only (no new symbols can be interned).
+	private boolean frozen = false;
+
+	// Represents the number of front-coded symbols in a block.
+	private static final int BLOCK_SIZE = 8;
+
+	// Represents the entry header that marks shared and suffix lengths stored as separate numbers, rather than packed in the header.
+	private static final int LONG_HEADER = 0xFF;
+
+	// Represents the symbols of an index moved off the heap (null while it is on the heap): the hash table
+	// of the symbol ids, the sorted rank of each id, the offset of the first entry of each block, then the entries.
+	private ByteBuffer region;
+
+	// Represents the number of symbols, and the number of slots of the hash table, of an index moved off the heap.
+	private int regionSize, regionSlots;
+
+	// Represents the position in the region of the ranks, of the block offsets, and of the entries.
+	private int ranksStart, blocksStart, bytesStart;
+
+	// Represents the length of the longest symbol (in UTF-8 bytes) of an index moved off the heap.
+	private int longestSymbol;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 */
+	public SymbolIndex(){	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Returns the id of a given symbol, assigning
+	 * it the next free id if it has not been
+	 * encountered before.
+	 *
+	 * @param symbol	the symbol to intern.
+	 *
+	 * @return the id of the symbol.
+	 * 
+	 * @throws IllegalStateException	if the symbol is new and the index is read-only.
+	 */
+	public int intern(String symbol)
+	{
+		int id = getId(symbol);
+		if (id < 0)
+		{
+			if (frozen) { throw new IllegalStateException("Cannot add '" + symbol + "' to a read-only symbol index"); }
+			id = add(symbol.getBytes(StandardCharsets.UTF_8));
+		}
+		return id;
+	}
+
+
+	/**
+	 * Returns the id of the symbol stored in a given
+	 * range of UTF-8 bytes, assigning it the next free
+	 * id if it has not been encountered before.
+	 *
+	 * @param bytes	the buffer holding the symbol.
+	 *
+	 * @param start	offset of the first byte of the symbol.
+	 *
+	 * @param end	offset just past the last byte of the symbol.
+	 *
+	 * @return the id of the symbol.
+	 *
+	 * @throws IllegalStateException	if the symbol is new and the index is read-only.
+	 */
+	public int intern(ByteBuffer bytes, int start, int end)
+	{
+		int id = getId(bytes, start, end);
+		if (id < 0)
+		{
+			byte[] symbol = new byte[end - start];
+			bytes.get(start, symbol);
+			if (frozen) { throw new IllegalStateException("Cannot add '" + new String(symbol, StandardCharsets.UTF_8) + "' to a read-only symbol index"); }
+			id = add(symbol);
+		}
+		return id;
+	}
+
+
+	/**
+	 * Returns the id of the symbol with a given id in
+	 * another index, assigning it the next free id if
+	 * it has not been encountered before (e.g. to merge
+	 * the counts of two datasets); its bytes are copied
+	 * without creating a String.
+	 *
+	 * @param other	the index holding the symbol.
+	 *
+	 * @param otherId	the id of the symbol in the other index.
+	 *
+	 * @return the id of the symbol in this index.
+	 *
+	 * @throws IllegalStateException	if the symbol is new and the index is read-only.
+	 */
+	public int intern(SymbolIndex other, int otherId)
+	{
+		if (other.region != null) { return intern(other.getSymbol(otherId)); }
+
+		byte[] bytes = other.symbolBytes[otherId];
+		return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+
+	/**
+	 * Helper method that returns the id
+	 * of a given symbol.
+	 *
+	 * @param symbol	the symbol to look up.
+	 *
+	 * @return the id of the symbol, or -1 if the symbol is not in the index.
+	 */
+	public int getId(String symbol)
+	{
+		int length = symbol.length();
+		int hash = 0x811C9DC5;
+		for (int i = 0; i < length; i++)
+		{
+			char c = symbol.charAt(i);
+			if (c >= 0x80)
+			{
+				// Other characters take several UTF-8 bytes; look their encoding up instead.
+				byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+				return getId(ByteBuffer.wrap(bytes), 0, bytes.length);
+			}
+			hash = (hash ^ c) * 0x01000193;
+		}
+		hash ^= (hash >>> 16);
+
+		// An ASCII symbol hashes (and compares) char by char as its bytes would.
+		if (region != null)
+		{
+			int mask = regionSlots - 1;
+			for (int slot = hash & mask; ; slot = (slot + 1) & mask)
+			{
+				int id = region.getInt(slot * 4);
+				if (id < 0 || regionEquals(id, null, symbol, 0, length)) { return id; }
+			}
+		}
+
+		int mask = byteTable.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask)
+		{
+			int id = byteTable[slot];
+			if (id < 0 || equals(symbolBytes[id], symbol)) { return id; }
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the id of
+	 * the symbol stored in a given range of
+	 * UTF-8 bytes.
+	 *
+	 * @param bytes	the buffer holding the symbol.
+	 *
+	 * @param start	offset of the first byte of the symbol.
+	 *
+	 * @param end	offset just past the last byte of the symbol.
+	 *
+	 * @return the id of the symbol, or -1 if the symbol is not in the index.
+	 */
+	public int getId(ByteBuffer bytes, int start, int end)
+	{
+		if (region != null)
+		{
+			int mask = regionSlots - 1;
+			for (int slot = hash(bytes, start, end) & mask; ; slot = (slot + 1) & mask)
+			{
+				int id = region.getInt(slot * 4);
+				if (id < 0 || regionEquals(id, bytes, null, start, end - start)) { return id; }
+			}
+		}
+
+		int mask = byteTable.length - 1;
+		for (int slot = hash(bytes, start, end) & mask; ; slot = (slot + 1) & mask)
+		{
+			int id = byteTable[slot];
+			if (id < 0 || equals(symbolBytes[id], bytes, start, end)) { return id; }
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the symbol
+	 * with a given id.
+	 *
+	 * @param id	the id of the symbol.
+	 *
+	 * @return the symbol with the given id.
+	 */
+	public String getSymbol(int id)
+	{
+		if (region == null) { return new String(symbolBytes[id], StandardCharsets.UTF_8); }
+
+		// Decode the block forward, each entry replacing the bytes after the prefix it shares.
+		byte[] symbol = new byte[longestSymbol];
+		int length = 0;
+		for (int entry = findHead(id), step = getRank(id) % BLOCK_SIZE; step >= 0; entry = getBytes(entry) + getSuffix(entry), step--)
+		{
+			int shared = getShared(entry), suffix = getSuffix(entry);
+			region.get(getBytes(entry), symbol, shared, suffix);
+			length = shared + suffix;
+		}
+		return new String(symbol, 0, length, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Replaces the contents of a string builder with
+	 * the symbol with a given id, so that the symbols
+	 * (e.g. their suffixes) can be read one after another
+	 * without creating a String for each of them.
+	 *
+	 * @param id	the id of the symbol.
+	 *
+	 * @param into	the string builder receiving the symbol.
+	 *
+	 */
+	public void getSymbol(int id, StringBuilder into)
+	{
+		into.setLength(0);
+
+		// Read the bytes as if every byte were an (ASCII) char.
+		if (region == null) { for (byte symbolByte : symbolBytes[id]) { into.append((char) (symbolByte & 0xFF)); } }
+		else
+		{
+			for (int entry = findHead(id), step = getRank(id) % BLOCK_SIZE; step >= 0; entry = getBytes(entry) + getSuffix(entry), step--)
+			{
+				int suffix = getSuffix(entry), position = getBytes(entry);
+				into.setLength(getShared(entry));
+				for (int i = 0; i < suffix; i++) { into.append((char) (region.get(position + i) & 0xFF)); }
+			}
+		}
+
+		// Other characters take several UTF-8 bytes; decode the symbol instead.
+		for (int i = 0; i < into.length(); i++)
+		{
+			if (into.charAt(i) >= 0x80) { into.setLength(0); into.append(getSymbol(id)); return; }
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the number
+	 * of symbols in the index.
+	 *
+	 * @return number of symbols in the index.
+	 */
+	public int size() { return (region != null) ? regionSize : heapCount; }
+
+
+	/**
+	 * Makes the index read-only, so that it
+	 * can be safely shared by readers once
+	 * the model has been built.
+	 *
+	 */
+	public void freeze() { frozen = true; }
+
+
+	/**
+	 * Helper method that determines if
+	 * the index is read-only.
+	 *
+	 * @return true if no new symbols can be interned.
+	 */
+	public boolean isFrozen() { return frozen; }
+
+
+	/**
+	 * Moves the symbols of a read-only index off the
+	 * heap, into a single direct buffer; the index keeps
+	 * the same ids. The heap copies of the symbols are
+	 * released.
+	 *
+	 * @throws IllegalStateException	if the index is not read-only, or its symbols do not fit in a buffer.
+	 */
+	public void moveOffHeap()
+	{
+		if (!frozen) { throw new IllegalStateException("Only a read-only symbol index can be moved off the heap"); }
+		if (region != null) { return; }
+
+		// Lay the symbols out one after another, to front-code them from there.
+		int[] starts = new int[heapCount], lengths = new int[starts.length];
+		long byteTotal = 0;
+		for (int id = 0; id < starts.length; id++) { lengths[id] = symbolBytes[id].length; byteTotal += lengths[id]; }
+		if (byteTotal > Integer.MAX_VALUE) { throw new IllegalStateException("The " + starts.length + " symbols (" + byteTotal + " bytes) do not fit in an off-heap symbol index"); }
+		ByteBuffer source = ByteBuffer.allocate((int) byteTotal);
+		for (int id = 0; id < starts.length; id++) { starts[id] = source.position(); source.put(symbolBytes[id]); }
+
+		packRegion(source, starts, lengths);
+		symbolBytes = null; byteTable = null;
+	}
+
+
+	/**
+	 * Helper method that determines if the
+	 * symbols of the index are off the heap.
+	 *
+	 * @return true if the index was moved off the heap.
+	 */
+	public boolean isOffHeap() { return region != null; }
+
+
+	/**
+	 * Reads a read-only index straight off the heap
+	 * from a buffer (e.g. a memory-mapped model file)
+	 * holding its symbols in id order, each stored as
+	 * its length followed by its UTF-8 bytes; no String
+	 * is created for the symbols.
+	 *
+	 * @param in	the buffer, positioned on the first symbol; it is positioned past the last symbol on return.
+	 *
+	 * @param symbolCount	the number of symbols.
+	 *
+	 * @return the read-only index, off the heap.
+	 *
+	 * @throws IllegalStateException	if the symbols do not fit in a buffer.
+	 */
+	public static SymbolIndex readOffHeap(ByteBuffer in, int symbolCount)
+	{
+		int[] starts = new int[symbolCount], lengths = new int[symbolCount];
+		for (int id = 0; id < symbolCount; id++)
+		{
+			lengths[id] = in.getInt();
+			starts[id] = in.position();
+			in.position(starts[id] + lengths[id]);
+		}
+
+		SymbolIndex index = new SymbolIndex();
+		index.frozen = true;
+		index.symbolBytes = null; index.byteTable = null;
+		index.packRegion(in, starts, lengths);
+		return index;
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Front-codes a set of symbols into the region of an
+	 * index moved off the heap, and indexes their ids.
+	 *
+	 * @param source	the buffer holding the UTF-8 bytes of the symbols.
+	 *
+	 * @param starts	the offset in the buffer of each symbol, indexed by id.
+	 *
+	 * @param lengths	the length of each symbol, indexed by id.
+	 *
+	 * @throws IllegalStateException	if the region would exceed the capacity of a buffer.
+	 */
+	private void packRegion(ByteBuffer source, int[] starts, int[] lengths)
+	{
+		int symbolCount = starts.length;
+		int[] order = new int[symbolCount];
+		for (int id = 0; id < symbolCount; id++) { order[id] = id; }
+		sortSymbols(order, source, starts, lengths);
+
+		// Measure the entries first, so the region is allocated once.
+		int[] shared = new int[symbolCount];
+		long byteTotal = 0;
+		for (int rank = 0; rank < symbolCount; rank++)
+		{
+			int id = order[rank];
+			if (rank % BLOCK_SIZE != 0)
+			{
+				int previous = order[rank - 1];
+				int limit = Math.min(lengths[previous], lengths[id]);
+				while (shared[rank] < limit && source.get(starts[previous] + shared[rank]) == source.get(starts[id] + shared[rank])) { shared[rank]++; }
+			}
+			int suffix = lengths[id] - shared[rank];
+			byteTotal += headerSize(shared[rank], suffix) + suffix;
+			longestSymbol = Math.max(longestSymbol, lengths[id]);
+		}
+
+		int blockCount = (symbolCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		regionSize = symbolCount;
+		regionSlots = Integer.highestOneBit(Math.max(symbolCount, 16)) << 2;
+		long capacity = (long) regionSlots * 4 + (long) symbolCount * 4 + (long) blockCount * 4 + byteTotal;
+		if (capacity > Integer.MAX_VALUE) { throw new IllegalStateException("The " + symbolCount + " symbols (" + byteTotal + " front-coded bytes) do not fit in an off-heap symbol index"); }
+		region = ByteBuffer.allocateDirect((int) capacity);
+		ranksStart = regionSlots * 4;
+		blocksStart = ranksStart + symbolCount * 4;
+		bytesStart = blocksStart + blockCount * 4;
+
+		int position = bytesStart;
+		for (int rank = 0; rank < symbolCount; rank++)
+		{
+			int id = order[rank], suffix = lengths[id] - shared[rank];
+			if (rank % BLOCK_SIZE == 0) { region.putInt(blocksStart + (rank / BLOCK_SIZE) * 4, position - bytesStart); }
+			region.putInt(ranksStart + id * 4, rank);
+			if (headerSize(shared[rank], suffix) == 1) { region.put(position++, (byte) (shared[rank] << 4 | suffix)); }
+			else { region.put(position++, (byte) LONG_HEADER); position = putVarint(putVarint(position, shared[rank]), suffix); }
+			region.put(position, source, starts[id] + shared[rank], suffix);
+			position += suffix;
+		}
+
+		int mask = regionSlots - 1;
+		for (int slot = 0; slot < regionSlots; slot++) { region.putInt(slot * 4, -1); }
+		for (int id = 0; id < symbolCount; id++)
+		{
+			int slot = hash(source, starts[id], starts[id] + lengths[id]) & mask;
+			while (region.getInt(slot * 4) >= 0) { slot = (slot + 1) & mask; }
+			region.putInt(slot * 4, id);
+		}
+	}
+
+
+	/**
+	 * Helper method that determines if a front-coded
+	 * symbol is equal to a range of UTF-8 bytes, or to
+	 * an ASCII string.
+	 *
+	 * @param id	the id of the front-coded symbol.
+	 *
+	 * @param bytes	the buffer holding the compared bytes, or null to compare the ASCII string.
+	 *
+	 * @param ascii	the compared ASCII string, if 'bytes' is null.
+	 *
+	 * @param start	offset of the first compared byte (or char).
+	 *
+	 * @param length	the number of compared bytes (or chars).
+	 *
+	 * @return true if the symbols are equal.
+	 */
+	private boolean regionEquals(int id, ByteBuffer bytes, String ascii, int start, int length)
+	{
+		// Decode the block forward, keeping the length of the prefix the symbol decoded so far
+		// has in common with the compared one: an entry sharing less of the symbol before it
+		// cuts that prefix short, one sharing more keeps it, and one sharing exactly that
+		// prefix may extend it with its own bytes.
+		int matched = 0;
+		for (int entry = findHead(id), step = getRank(id) % BLOCK_SIZE; ; step--)
+		{
+			// Read a short header once, rather than through getShared, getSuffix and getBytes.
+			int header = region.get(entry) & 0xFF, shared, suffix;
+			if (header != LONG_HEADER) { shared = header >>> 4; suffix = header & 0x0F; entry++; }
+			else { shared = getShared(entry); suffix = getSuffix(entry); entry = getBytes(entry); }
+
+			if (step == 0 && shared + suffix != length) { return false; }
+			if (shared < matched) { matched = shared; }
+			else if (shared == matched)
+			{
+				int limit = Math.min(shared + suffix, length), position = entry - shared;
+				while (matched < limit && region.get(position + matched) == ((bytes != null) ? bytes.get(start + matched) : (byte) ascii.charAt(start + matched))) { matched++; }
+			}
+			if (step == 0) { return matched == length; }
+			entry += suffix;
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the rank of a
+	 * symbol among the sorted symbols of an index
+	 * moved off the heap.
+	 *
+	 * @param id	the id of the symbol.
+	 *
+	 * @return the rank of the symbol.
+	 */
+	private int getRank(int id) { return region.getInt(ranksStart + id * 4); }
+
+
+	/**
+	 * Helper method that returns the region position
+	 * of the header of the first entry of a front-coded
+	 * symbol's block.
+	 *
+	 * @param id	the id of the symbol.
+	 *
+	 * @return the position of the header of the block's first entry.
+	 */
+	private int findHead(int id) { return bytesStart + region.getInt(blocksStart + (getRank(id) / BLOCK_SIZE) * 4); }
+
+
+	/**
+	 * Helper method that returns the length of the
+	 * prefix an entry shares with the entry before
+	 * it in its block.
+	 *
+	 * @param entry	the position of the header of the entry.
+	 *
+	 * @return the shared length.
+	 */
+	private int getShared(int entry)
+	{
+		int header = region.get(entry) & 0xFF;
+		return (header != LONG_HEADER) ? header >>> 4 : getVarint(entry + 1);
+	}
+
+
+	/**
+	 * Helper method that returns the length of
+	 * the bytes an entry stores after its shared
+	 * prefix.
+	 *
+	 * @param entry	the position of the header of the entry.
+	 *
+	 * @return the suffix length.
+	 */
+	private int getSuffix(int entry)
+	{
+		int header = region.get(entry) & 0xFF;
+		return (header != LONG_HEADER) ? header & 0x0F : getVarint(entry + 1 + varintSize(getVarint(entry + 1)));
+	}
+
+
+	/**
+	 * Helper method that returns the region position
+	 * of the bytes an entry stores after its shared
+	 * prefix.
+	 *
+	 * @param entry	the position of the header of the entry.
+	 *
+	 * @return the position of the suffix bytes.
+	 */
+	private int getBytes(int entry)
+	{
+		if ((region.get(entry) & 0xFF) != LONG_HEADER) { return entry + 1; }
+		int position = entry + 1 + varintSize(getVarint(entry + 1));
+		return position + varintSize(getVarint(position));
+	}
+
+
+	/**
+	 * Helper method that returns the size of
+	 * an entry header: one byte if the shared
+	 * and suffix lengths are short enough to
+	 * be packed into it.
+	 *
+	 * @return the size of the header.
+	 */
+	private static int headerSize(int shared, int suffix)
+	{
+		return (shared < 15 && suffix < 15) ? 1 : 1 + varintSize(shared) + varintSize(suffix);
+	}
+
+
+	/**
+	 * Helper method that sorts symbol ids by the
+	 * (unsigned) UTF-8 bytes of their symbols, with
+	 * a bottom-up merge sort.
+	 *
+	 * @param order	the symbol ids to sort.
+	 *
+	 * @param source	the buffer holding the UTF-8 bytes of the symbols.
+	 *
+	 * @param starts	the offset in the buffer of each symbol, indexed by id.
+	 *
+	 * @param lengths	the length of each symbol, indexed by id.
+	 *
+	 */
+	private static void sortSymbols(int[] order, ByteBuffer source, int[] starts, int[] lengths)
+	{
+		int[] from = order, to = new int[order.length];
+		for (int width = 1; width < order.length; width *= 2)
+		{
+			for (int low = 0; low < order.length; low += 2 * width)
+			{
+				int middle = Math.min(low + width, order.length), high = Math.min(low + 2 * width, order.length);
+				int left = low, right = middle;
+				for (int next = low; next < high; next++)
+				{
+					boolean takeLeft = right >= high || (left < middle && compareSymbols(source, starts, lengths, from[left], from[right]) <= 0);
+					to[next] = takeLeft ? from[left++] : from[right++];
+				}
+			}
+			int[] swap = from; from = to; to = swap;
+		}
+		if (from != order) { System.arraycopy(from, 0, order, 0, order.length); }
+	}
+
+
+	/**
+	 * Helper method that compares the (unsigned)
+	 * UTF-8 bytes of two symbols.
+	 *
+	 * @return a negative number, zero, or a positive number if the first symbol sorts before, with, or after the second.
+	 */
+	private static int compareSymbols(ByteBuffer source, int[] starts, int[] lengths, int first, int second)
+	{
+		int limit = Math.min(lengths[first], lengths[second]);
+		for (int i = 0; i < limit; i++)
+		{
+			int difference = (source.get(starts[first] + i) & 0xFF) - (source.get(starts[second] + i) & 0xFF);
+			if (difference != 0) { return difference; }
+		}
+		return lengths[first] - lengths[second];
+	}
+
+
+	/**
+	 * Helper method that writes a non-negative number
+	 * to the region in 7-bit groups, lowest first, the
+	 * high bit of a byte marking that another follows.
+	 *
+	 * @return the position past the number.
+	 */
+	private int putVarint(int position, int value)
+	{
+		while (value >= 0x80) { region.put(position++, (byte) (value | 0x80)); value >>>= 7; }
+		region.put(position++, (byte) value);
+		return position;
+	}
+
+
+	/**
+	 * Helper method that reads a number
+	 * written by putVarint.
+	 *
+	 * @return the number.
+	 */
+	private int getVarint(int position)
+	{
+		int value = 0;
+		for (int shift = 0; ; shift += 7)
+		{
+			byte part = region.get(position++);
+			value |= (part & 0x7F) << shift;
+			if (part >= 0) { return value; }
+		}
+	}
+
+
+	/**
+	 * Helper method that returns the number of
+	 * bytes putVarint writes for a number.
+	 *
+	 * @return the size of the number.
+	 */
+	private static int varintSize(int value)
+	{
+		int size = 1;
+		while (value >= 0x80) { value >>>= 7; size++; }
+		return size;
+	}
+
+
+	/**
+	 * Assigns the next free id to a new symbol.
+	 *
+	 * @param bytes	the UTF-8 bytes of the new symbol.
+	 *
+	 * @return the id of the symbol.
+	 */
+	private int add(byte[] bytes)
+	{
+		int id = heapCount++;
+		if (id == symbolBytes.length) { symbolBytes = Arrays.copyOf(symbolBytes, id * 2); }
+		symbolBytes[id] = bytes;
+		// Keep the byte table at most half full.
+		if ((id + 1) * 2 > byteTable.length) { rehash(byteTable.length * 2); }
+		else { insert(byteTable, id); }
+		return id;
+	}
+
+
+	/**
+	 * Grows the byte table and re-inserts every symbol id.
+	 *
+	 * @param capacity	the new (power of two) capacity of the table.
+	 *
+	 */
+	private void rehash(int capacity)
+	{
+		int[] table = newByteTable(capacity);
+		for (int id = 0; id < heapCount; id++) { insert(table, id); }
+		byteTable = table;
+	}
+
+
+	/**
+	 * Inserts a symbol id into a byte table.
+	 *
+	 * @param table	the byte table.
+	 *
+	 * @param id	the id of the symbol.
+	 *
+	 */
+	private void insert(int[] table, int id)
+	{
+		byte[] bytes = symbolBytes[id];
+		int mask = table.length - 1;
+		int slot = hash(ByteBuffer.wrap(bytes), 0, bytes.length) & mask;
+		while (table[slot] >= 0) { slot = (slot + 1) & mask; }
+		table[slot] = id;
+	}
+
+
+	/**
+	 * Helper method that creates an empty byte table.
+	 *
+	 * @param capacity	the (power of two) capacity of the table.
+	 *
+	 * @return the empty table.
+	 */
+	private static int[] newByteTable(int capacity)
+	{
+		int[] table = new int[capacity];
+		Arrays.fill(table, -1);
+		return table;
+	}
+
+
+	/**
+	 * Helper method that hashes a range of bytes (FNV-1a,
+	 * with a final mix so that the low bits are spread).
+	 *
+	 * @return the hash of the bytes.
+	 */
+	private static int hash(ByteBuffer bytes, int start, int end)
+	{
+		int hash = 0x811C9DC5;
+		for (int i = start; i < end; i++) { hash = (hash ^ bytes.get(i)) * 0x01000193; }
+		return hash ^ (hash >>> 16);
+	}
+
+
+	/**
+	 * Helper method that determines if a symbol's
+	 * bytes are equal to a range of bytes.
+	 *
+	 * @return true if the bytes are equal.
+	 */
+	private static boolean equals(byte[] symbol, ByteBuffer bytes, int start, int end)
+	{
+		if (symbol.length != end - start) { return false; }
+		for (int i = 0; i < symbol.length; i++) { if (symbol[i] != bytes.get(start + i)) { return false; } }
+		return true;
+	}
+
+
+	/**
+	 * Helper method that determines if a symbol's
+	 * bytes are equal to an ASCII string.
+	 *
+	 * @return true if the bytes are equal to the chars.
+	 */
+	private static boolean equals(byte[] symbol, String ascii)
+	{
+		if (symbol.length != ascii.length()) { return false; }
+		for (int i = 0; i < symbol.length; i++) { if (symbol[i] != ascii.charAt(i)) { return false; } }
+		return true;
+	}
+
+}
@@ -0,0 +1,139 @@
+package postagger.structures;
+
+
+/**
+ * This class represents a data structure
+ * that stores, for each word of the vocabulary,
+ * the POS tags it was seen with in the training
+ * dataset (its ambiguity class) and the emission
+ * log probability of the word with each of them.
+ *
+ * Most words are seen with only one to three tags,
+ * so the Viterbi decoder only has to score those
+ * candidate tags for a known word, instead of the
+ * whole tag set. The candidates of every word are
+ * stored contiguously (compressed sparse rows):
+ * the entries of word 'w' are those from
+ * getStart(w) to getEnd(w), in ascending tag id order.
+ *
+ * @author David Olorundare
+ *
+ */
+public class TagDictionary
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the index of the first entry of each word; the entries of word 'w' end where those of 'w + 1' start.
+	private int[] wordStarts;
+
+	// Represents the candidate tag id of each entry.
+	private int[] tags;
+
+	// Represents the emission log probability, log(count(word, tag) / count(tag)), of each entry.
+	private double[] logEmissions;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class; builds the candidate
+	 * tags of every word from the emission counts of
+	 * a tag/state model.
+	 *
+	 * @param posModel	the tag/state model, with its word and tag indexes, tag counts and emission counts.
+	 *
+	 */
+	public TagDictionary(AnalyzedData posModel)
+	{
+		EmissionTable emissions = posModel.getEmissionCounts();
+		SymbolIndex tagIndex = posModel.getTagIndex();
+		int wordTotal = posModel.getWordIndex().size();
+
+		double[] logTagCount = new double[tagIndex.size()];
+		for (int tag = 0; tag < logTagCount.length; tag++) { logTagCount[tag] = Math.log(posModel.getTagNumber().get(tagIndex.getSymbol(tag))); }
+
+		// Count the entries of each word, and lay the words out one after another.
+		wordStarts = new int[wordTotal + 1];
+		for (int slot = 0; slot < emissions.getSlotCount(); slot++)
+		{
+			if (emissions.isUsed(slot) && emissions.getCountAt(slot) > 0) { wordStarts[emissions.getWordIdAt(slot) + 1]++; }
+		}
+		for (int word = 0; word < wordTotal; word++) { wordStarts[word + 1] += wordStarts[word]; }
+
+		tags = new int[wordStarts[wordTotal]]; logEmissions = new double[tags.length];
+		int[] filled = new int[wordTotal];
+		for (int slot = 0; slot < emissions.getSlotCount(); slot++)
+		{
+			if (!emissions.isUsed(slot) || emissions.getCountAt(slot) == 0) { continue; }
+
+			// Insert the entry into its word's entries, keeping them in ascending tag id order.
+			int word = emissions.getWordIdAt(slot), tag = emissions.getTagIdAt(slot);
+			double logEmission = Math.log(emissions.getCountAt(slot)) - logTagCount[tag];
+			int start = wordStarts[word];
+			int entry = start + filled[word]++;
+			while (entry > start && tags[entry - 1] > tag) { tags[entry] = tags[entry - 1]; logEmissions[entry] = logEmissions[entry - 1]; entry--; }
+			tags[entry] = tag; logEmissions[entry] = logEmission;
+		}
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Helper method that returns the index of
+	 * the first candidate entry of a word.
+	 *
+	 * @param wordId	id of the word.
+	 *
+	 * @return index of the word's first entry.
+	 */
+	public int getStart(int wordId) { return wordStarts[wordId]; }
+
+
+	/**
+	 * Helper method that returns the index just
+	 * past the last candidate entry of a word.
+	 *
+	 * @param wordId	id of the word.
+	 *
+	 * @return index past the word's last entry.
+	 */
+	public int getEnd(int wordId) { return wordStarts[wordId + 1]; }
+
+
+	/**
+	 * Helper method that returns the candidate
+	 * tag ids of all entries (read-only).
+	 *
+	 * @return the tag id of each entry.
+	 */
+	public int[] getTags() { return tags; }
+
+
+	/**
+	 * Helper method that returns the emission log
+	 * probabilities of all entries (read-only).
+	 *
+	 * @return the emission log probability of each entry.
+	 */
+	public double[] getLogEmissions() { return logEmissions; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of (word, tag) entries in the dictionary.
+	 *
+	 * @return number of entries.
+	 */
+	public int size() { return tags.length; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+	// No Private Methods.
+
+}
@@ -19,6 +19,9 @@ public class TaggedToken
 	// Represent the sentence-token POS tag data.
 	public MatrixCell matrixData;
 	
+	// Determines if the token's word was not in the training dataset.
+	public boolean unknownWord = false;
+	
 	//============================================ CONSTRUCTOR =============================================================
 	
 	// No Constructor
@@ -0,0 +1,397 @@
+package postagger.structures;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import postagger.utils.CorpusReader;
+
+
+/**
+ * This class represents a data structure
+ * that accumulates the emission, transition
+ * and tag counts of a training dataset (or of
+ * a shard of it) in primitive tables indexed by
+ * word and tag id.
+ *
+ * Counts of separate shards can be merged; merging
+ * shards in the order they appear in the dataset
+ * assigns the same ids as counting the whole dataset
+ * in a single pass.
+ *
+ * @author David Olorundare
+ *
+ */
+public class TrainingCounts
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the tag id standing for a sentence boundary in a trigram: <START> as a first or second tag, <STOP> as a third tag.
+	public static final int BOUNDARY = -1;
+
+
+	// Represents the ids assigned to the words in the counted sentences.
+	private SymbolIndex wordIndex = new SymbolIndex();
+
+	// Represents the ids assigned to the POS tags in the counted sentences.
+	private SymbolIndex tagIndex = new SymbolIndex();
+
+	// Represents the number of times each word (id) occurs with each tag (id).
+	private EmissionTable emissionCounts = new EmissionTable();
+
+	// Represents the number of times each tag occurs, indexed by tag id.
+	private int[] tagCounts = new int[0];
+
+	// Represents the number of times each tag starts a sentence, indexed by tag id.
+	private int[] startCounts = new int[0];
+
+	// Represents the number of times each tag ends a sentence, indexed by tag id.
+	private int[] stopCounts = new int[0];
+
+	// Represents the number of times each tag bigram occurs, indexed by [previousTag][followTag].
+	private int[][] transitionCounts = new int[0][0];
+
+	// Represents the number of times each tag trigram occurs, keyed by its (first, second) tag pair and its third tag (see trigramKey).
+	private EmissionTable trigramCounts = new EmissionTable();
+
+	// Represents the number of sentences counted.
+	private int sentenceCount = 0;
+
+	// Represents the number of word tokens counted.
+	private int tokenCount = 0;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 */
+	public TrainingCounts(){	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Counts the emissions, transitions (tag bigrams
+	 * and trigrams) and tags of the word-tag-tokens
+	 * in a given sentence.
+	 *
+	 * @param tokens	the token lines ("word TAG ...") of the sentence.
+	 *
+	 */
+	public void addSentence(String[] tokens)
+	{
+		if (tokens.length == 0) { return; }
+
+		int previousTag = BOUNDARY, earlierTag = BOUNDARY;
+		for (String token : tokens)
+		{
+			int wordEnd = token.indexOf(' ');
+			int tagEnd = token.indexOf(' ', wordEnd + 1);
+			int word = wordIndex.intern(token.substring(0, wordEnd));
+			int tag = tagIndex.intern(token.substring(wordEnd + 1, (tagEnd < 0) ? token.length() : tagEnd));
+
+			addToken(word, tag, previousTag, earlierTag);
+			earlierTag = previousTag; previousTag = tag;
+		}
+		addStop(previousTag, earlierTag);
+	}
+
+
+	/**
+	 * Counts the emissions, transitions and tags of
+	 * the word-tag-tokens in the current sentence of a
+	 * dataset reader, looking the words and tags up
+	 * directly from the dataset bytes.
+	 *
+	 * @param corpus	the dataset reader, positioned on a sentence.
+	 *
+	 */
+	public void addSentence(CorpusReader corpus)
+	{
+		int tokens = corpus.getTokenCount();
+		if (tokens == 0) { return; }
+
+		ByteBuffer bytes = corpus.getBytes();
+		int previousTag = BOUNDARY, earlierTag = BOUNDARY;
+		for (int i = 0; i < tokens; i++)
+		{
+			int word = wordIndex.intern(bytes, corpus.getWordStart(i), corpus.getWordEnd(i));
+			int tag = tagIndex.intern(bytes, corpus.getTagStart(i), corpus.getTagEnd(i));
+
+			addToken(word, tag, previousTag, earlierTag);
+			earlierTag = previousTag; previousTag = tag;
+		}
+		addStop(previousTag, earlierTag);
+	}
+
+
+	/**
+	 * Adds the counts of another set of counts (e.g. a
+	 * later shard of the same dataset) to these counts.
+	 *
+	 * @param other	the counts to merge into these counts.
+	 *
+	 */
+	public void merge(TrainingCounts other)
+	{
+		// Map the other counts' ids onto the ids of these counts.
+		int[] wordMap = new int[other.wordIndex.size()];
+		for (int word = 0; word < wordMap.length; word++) { wordMap[word] = wordIndex.intern(other.wordIndex, word); }
+		int[] tagMap = new int[other.tagIndex.size()];
+		for (int tag = 0; tag < tagMap.length; tag++) { tagMap[tag] = tagIndex.intern(other.tagIndex, tag); }
+		ensureTagCapacity(tagIndex.size());
+
+		EmissionTable otherEmissions = other.emissionCounts;
+		for (int slot = 0; slot < otherEmissions.getSlotCount(); slot++)
+		{
+			if (!otherEmissions.isUsed(slot)) { continue; }
+			emissionCounts.add(wordMap[otherEmissions.getWordIdAt(slot)], tagMap[otherEmissions.getTagIdAt(slot)], otherEmissions.getCountAt(slot));
+		}
+
+		for (int previous = 0; previous < tagMap.length; previous++)
+		{
+			tagCounts[tagMap[previous]] += other.tagCounts[previous];
+			startCounts[tagMap[previous]] += other.startCounts[previous];
+			stopCounts[tagMap[previous]] += other.stopCounts[previous];
+			for (int follow = 0; follow < tagMap.length; follow++)
+			{
+				transitionCounts[tagMap[previous]][tagMap[follow]] += other.transitionCounts[previous][follow];
+			}
+		}
+
+		EmissionTable otherTrigrams = other.trigramCounts;
+		for (int slot = 0; slot < otherTrigrams.getSlotCount(); slot++)
+		{
+			if (!otherTrigrams.isUsed(slot)) { continue; }
+			int pair = otherTrigrams.getWordIdAt(slot);
+			int earlier = mapTag(tagMap, (pair >>> 16) - 1), previous = mapTag(tagMap, (pair & 0xFFFF) - 1), follow = mapTag(tagMap, otherTrigrams.getTagIdAt(slot) - 1);
+			trigramCounts.add(trigramKey(earlier, previous), follow + 1, otherTrigrams.getCountAt(slot));
+		}
+
+		sentenceCount += other.sentenceCount;
+		tokenCount += other.tokenCount;
+	}
+
+
+	/**
+	 * Returns a deep copy of these counts, with the
+	 * same word and tag ids; further counts added to
+	 * either set do not change the other.
+	 *
+	 * @return a copy of the counts.
+	 *
+	 */
+	public TrainingCounts copy()
+	{
+		// Merging into empty counts interns the symbols in id order, so every id is kept.
+		TrainingCounts copy = new TrainingCounts();
+		copy.merge(this);
+		return copy;
+	}
+
+
+	/**
+	 * Helper method that returns the index
+	 * of word ids.
+	 *
+	 * @return index of the counted words.
+	 */
+	public SymbolIndex getWordIndex() { return wordIndex; }
+
+
+	/**
+	 * Helper method that returns the index
+	 * of POS tag ids.
+	 *
+	 * @return index of the counted POS tags.
+	 */
+	public SymbolIndex getTagIndex() { return tagIndex; }
+
+
+	/**
+	 * Helper method that returns the table of
+	 * word-tag emission counts.
+	 *
+	 * @return emission counts of each word with each tag.
+	 */
+	public EmissionTable getEmissionCounts() { return emissionCounts; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of times a POS tag occurs.
+	 *
+	 * @param tag	id of the POS tag.
+	 *
+	 * @return occurrence count of the tag.
+	 */
+	public int getTagCount(int tag) { return tagCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of times a POS tag starts a sentence.
+	 *
+	 * @param tag	id of the POS tag.
+	 *
+	 * @return count of the bigram (START, tag).
+	 */
+	public int getStartCount(int tag) { return startCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of times a POS tag ends a sentence.
+	 *
+	 * @param tag	id of the POS tag.
+	 *
+	 * @return count of the bigram (tag, STOP).
+	 */
+	public int getStopCount(int tag) { return stopCounts[tag]; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of times a tag bigram occurs.
+	 *
+	 * @param previousTag	id of the first POS tag in the bigram.
+	 *
+	 * @param followTag	id of the second POS tag in the bigram.
+	 *
+	 * @return count of the bigram.
+	 */
+	public int getTransitionCount(int previousTag, int followTag) { return transitionCounts[previousTag][followTag]; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of times a tag trigram occurs.
+	 *
+	 * @param earlierTag	id of the first POS tag in the trigram, or BOUNDARY for <START>.
+	 *
+	 * @param previousTag	id of the second POS tag in the trigram, or BOUNDARY for <START>.
+	 *
+	 * @param followTag	id of the third POS tag in the trigram, or BOUNDARY for <STOP>.
+	 *
+	 * @return count of the trigram.
+	 */
+	public int getTrigramCount(int earlierTag, int previousTag, int followTag) { return trigramCounts.getCount(trigramKey(earlierTag, previousTag), followTag + 1); }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of sentences counted.
+	 *
+	 * @return number of sentences.
+	 */
+	public int getSentenceCount() { return sentenceCount; }
+
+
+	/**
+	 * Helper method that returns the number
+	 * of word tokens counted.
+	 *
+	 * @return number of word tokens.
+	 */
+	public int getTokenCount() { return tokenCount; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Counts a single word-tag-token.
+	 *
+	 * @param word	id of the word.
+	 *
+	 * @param tag	id of the POS tag.
+	 *
+	 * @param previousTag	id of the preceding POS tag, or BOUNDARY at the start of a sentence.
+	 *
+	 * @param earlierTag	id of the POS tag before the preceding one, or BOUNDARY.
+	 *
+	 */
+	private void addToken(int word, int tag, int previousTag, int earlierTag)
+	{
+		ensureTagCapacity(tag + 1);
+		emissionCounts.increment(word, tag);
+		tagCounts[tag]++;
+		if (previousTag == BOUNDARY) { startCounts[tag]++; }
+		else { transitionCounts[previousTag][tag]++; }
+		trigramCounts.increment(trigramKey(earlierTag, previousTag), tag + 1);
+		tokenCount++;
+	}
+
+
+	/**
+	 * Counts the end of a sentence.
+	 *
+	 * @param lastTag	id of the POS tag of the last token.
+	 *
+	 * @param earlierTag	id of the POS tag before the last one, or BOUNDARY.
+	 *
+	 */
+	private void addStop(int lastTag, int earlierTag)
+	{
+		stopCounts[lastTag]++;
+		trigramCounts.increment(trigramKey(earlierTag, lastTag), BOUNDARY + 1);
+		sentenceCount++;
+	}
+
+
+	/**
+	 * Helper method that packs the first two tags of a
+	 * trigram into the key its counts are stored under
+	 * (the tags are shifted by one so BOUNDARY packs as 0).
+	 *
+	 * @param earlierTag	id of the first POS tag in the trigram, or BOUNDARY.
+	 *
+	 * @param previousTag	id of the second POS tag in the trigram, or BOUNDARY.
+	 *
+	 * @return the key of the tag pair.
+	 */
+	private static int trigramKey(int earlierTag, int previousTag) { return ((earlierTag + 1) << 16) | (previousTag + 1); }
+
+
+	/**
+	 * Helper method that maps a tag id of other
+	 * counts onto the ids of these counts.
+	 *
+	 * @param tagMap	the ids of these counts, indexed by the other counts' ids.
+	 *
+	 * @param tag	a tag id of the other counts, or BOUNDARY.
+	 *
+	 * @return the tag id in these counts, or BOUNDARY.
+	 */
+	private static int mapTag(int[] tagMap, int tag) { return (tag == BOUNDARY) ? BOUNDARY : tagMap[tag]; }
+
+
+	/**
+	 * Grows the per-tag tables so they can hold a given number of tags.
+	 *
+	 * @param tagTotal	the number of tags the tables must hold.
+	 *
+	 */
+	private void ensureTagCapacity(int tagTotal)
+	{
+		if (tagTotal <= tagCounts.length) { return; }
+
+		int capacity = Math.max(tagTotal, tagCounts.length * 2);
+		tagCounts = Arrays.copyOf(tagCounts, capacity);
+		startCounts = Arrays.copyOf(startCounts, capacity);
+		stopCounts = Arrays.copyOf(stopCounts, capacity);
+
+		int[][] grown = new int[capacity][];
+		for (int previous = 0; previous < capacity; previous++)
+		{
+			grown[previous] = (previous < transitionCounts.length) ? Arrays.copyOf(transitionCounts[previous], capacity) : new int[capacity];
+		}
+		transitionCounts = grown;
+	}
+
+}
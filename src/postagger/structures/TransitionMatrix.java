@@ -0,0 +1,122 @@
+package postagger.structures;
+
+
+/**
+ * This class represents a data structure
+ * that stores the (smoothed) log transition
+ * probabilities of the bigram tag/state model
+ * as a dense matrix indexed by tag id.
+ *
+ * Rows are indexed by the follow tag and columns
+ * by the previous tag, so the Viterbi maximum over
+ * previous tags reads a single contiguous row.
+ * The extra index 'tagTotal' stands for the <START>
+ * tag as a previous tag and the <STOP> tag as a
+ * follow tag.
+ *
+ * @author David Olorundare
+ *
+ */
+public class TransitionMatrix
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the number of POS tags (excluding START and STOP) in the matrix.
+	private int tagTotal;
+
+	// Represents the log transition probabilities, indexed by [followTag][previousTag].
+	private double[][] logProbability;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class.
+	 *
+	 * @param tagTotal	the number of POS tags (excluding START and STOP).
+	 *
+	 */
+	public TransitionMatrix(int tagTotal)
+	{
+		this.tagTotal = tagTotal;
+		logProbability = new double[tagTotal + 1][tagTotal + 1];
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Helper method that sets the log probability
+	 * of a POS tag given a preceding tag.
+	 *
+	 * @param followTag	id of the second POS tag in the bigram (or the STOP index).
+	 *
+	 * @param previousTag	id of the first POS tag in the bigram (or the START index).
+	 *
+	 * @param value	the log probability to set.
+	 */
+	public void setLogProbability(int followTag, int previousTag, double value) { logProbability[followTag][previousTag] = value; }
+
+
+	/**
+	 * Helper method that returns the log probability
+	 * of a POS tag given a preceding tag.
+	 *
+	 * @param followTag	id of the second POS tag in the bigram (or the STOP index).
+	 *
+	 * @param previousTag	id of the first POS tag in the bigram (or the START index).
+	 *
+	 * @return the log transition probability.
+	 */
+	public double getLogProbability(int followTag, int previousTag) { return logProbability[followTag][previousTag]; }
+
+
+	/**
+	 * Helper method that returns the log probabilities
+	 * of a POS tag given each possible preceding tag.
+	 *
+	 * @param followTag	id of the second POS tag in the bigram (or the STOP index).
+	 *
+	 * @return row of log transition probabilities indexed by previous tag id.
+	 */
+	public double[] getRow(int followTag) { return logProbability[followTag]; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * POS tags (excluding START and STOP) in the matrix.
+	 *
+	 * @return number of POS tags.
+	 */
+	public int getTagTotal() { return tagTotal; }
+
+
+	/**
+	 * Helper method that returns the index
+	 * standing for the <START> tag as a
+	 * previous tag.
+	 *
+	 * @return index of the START tag.
+	 */
+	public int getStartIndex() { return tagTotal; }
+
+
+	/**
+	 * Helper method that returns the index
+	 * standing for the <STOP> tag as a
+	 * follow tag.
+	 *
+	 * @return index of the STOP tag.
+	 */
+	public int getStopIndex() { return tagTotal; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+	// No Private Methods.
+
+}
@@ -0,0 +1,325 @@
+package postagger.structures;
+
+
+/**
+ * This class represents a data structure
+ * that stores the log transition probabilities
+ * of the second-order (trigram) tag/state model
+ * as a dense matrix indexed by tag id.
+ *
+ * The probability of a tag given the two preceding
+ * tags interpolates the trigram, bigram and unigram
+ * estimates (deleted interpolation), so trigrams that
+ * were never seen in training back off to the shorter
+ * tag histories:
+ *   P(t3 | t1, t2) = l1 P(t3) + l2 P(t3 | t2) + l3 P(t3 | t1, t2)
+ *
+ * Rows are indexed by the (follow, previous) tag pair and
+ * columns by the earlier tag, so the Viterbi maximum over
+ * earlier tags reads a single contiguous row. As in the
+ * TransitionMatrix, the extra index 'tagTotal' stands
+ * for the <START> tag as an earlier or previous tag and
+ * the <STOP> tag as a follow tag.
+ *
+ * @author David Olorundare
+ *
+ */
+public class TrigramMatrix
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the number of POS tags (excluding START and STOP) in the matrix.
+	private int tagTotal;
+
+	// Represents the log transition probabilities, indexed by [followTag * (tagTotal + 1) + previousTag][earlierTag].
+	private double[][] logProbability;
+
+	// Determines, for each tag bigram, if it occurs in the training dataset; indexed by [previousTag * (tagTotal + 1) + followTag].
+	private boolean[] observedBigrams;
+
+	// Represents the interpolation weights of the unigram, bigram and trigram estimates.
+	private double[] lambdas = new double[3];
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class; an empty matrix,
+	 * to be filled in (e.g. from a model file).
+	 *
+	 * @param tagTotal	the number of POS tags (excluding START and STOP).
+	 *
+	 */
+	public TrigramMatrix(int tagTotal)
+	{
+		this.tagTotal = tagTotal;
+		logProbability = new double[(tagTotal + 1) * (tagTotal + 1)][tagTotal + 1];
+		observedBigrams = new boolean[(tagTotal + 1) * (tagTotal + 1)];
+	}
+
+
+	/**
+	 * Constructor of the class; estimates the interpolation
+	 * weights and the log transition probabilities from the
+	 * tag counts of a training dataset.
+	 *
+	 * @param counts	the counts of the training dataset.
+	 *
+	 */
+	public TrigramMatrix(TrainingCounts counts)
+	{
+		this(counts.getTagIndex().size());
+		int states = tagTotal + 1;
+		double total = counts.getTokenCount() + counts.getSentenceCount();
+
+		// Deleted interpolation: each trigram votes, with its count, for the estimate that
+		// best predicts it once that occurrence is removed from the counts.
+		double[] votes = new double[3];
+		for (int follow = 0; follow < states; follow++)
+		{
+			for (int previous = 0; previous < states; previous++)
+			{
+				for (int earlier = 0; earlier < states; earlier++)
+				{
+					int count = trigramCount(counts, earlier, previous, follow);
+					if (count == 0) { continue; }
+
+					double history = historyCount(counts, earlier, previous), previousCount = tagCount(counts, previous);
+					double trigram = (history > 1) ? (count - 1) / (history - 1) : 0;
+					double bigram = (previousCount > 1) ? (bigramCount(counts, previous, follow) - 1) / (previousCount - 1) : 0;
+					double unigram = (total > 1) ? (unigramCount(counts, follow) - 1) / (total - 1) : 0;
+
+					if (trigram >= bigram && trigram >= unigram) { votes[2] += count; }
+					else if (bigram >= unigram) { votes[1] += count; }
+					else { votes[0] += count; }
+				}
+			}
+		}
+		double voteTotal = votes[0] + votes[1] + votes[2];
+		for (int order = 0; order < 3; order++) { lambdas[order] = (voteTotal == 0) ? 1.0 / 3 : votes[order] / voteTotal; }
+
+		for (int follow = 0; follow < states; follow++)
+		{
+			double unigram = unigramCount(counts, follow) / total;
+			for (int previous = 0; previous < states; previous++)
+			{
+				double bigramCount = bigramCount(counts, previous, follow), previousCount = tagCount(counts, previous);
+				double bigram = (previousCount == 0) ? 0 : bigramCount / previousCount;
+				observedBigrams[previous * states + follow] = (bigramCount > 0);
+
+				double[] row = logProbability[follow * states + previous];
+				for (int earlier = 0; earlier < states; earlier++)
+				{
+					double history = historyCount(counts, earlier, previous);
+					double trigram = (history == 0) ? 0 : trigramCount(counts, earlier, previous, follow) / history;
+					row[earlier] = Math.log(lambdas[0] * unigram + lambdas[1] * bigram + lambdas[2] * trigram);
+				}
+			}
+		}
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Helper method that sets the log probability of
+	 * a POS tag given the two preceding tags.
+	 *
+	 * @param followTag	id of the third POS tag in the trigram (or the STOP index).
+	 *
+	 * @param previousTag	id of the second POS tag in the trigram (or the START index).
+	 *
+	 * @param earlierTag	id of the first POS tag in the trigram (or the START index).
+	 *
+	 * @param value	the log probability to set.
+	 */
+	public void setLogProbability(int followTag, int previousTag, int earlierTag, double value)
+	{
+		logProbability[followTag * (tagTotal + 1) + previousTag][earlierTag] = value;
+	}
+
+
+	/**
+	 * Helper method that returns the log probability
+	 * of a POS tag given the two preceding tags.
+	 *
+	 * @param followTag	id of the third POS tag in the trigram (or the STOP index).
+	 *
+	 * @param previousTag	id of the second POS tag in the trigram (or the START index).
+	 *
+	 * @param earlierTag	id of the first POS tag in the trigram (or the START index).
+	 *
+	 * @return the log transition probability.
+	 */
+	public double getLogProbability(int followTag, int previousTag, int earlierTag)
+	{
+		return logProbability[followTag * (tagTotal + 1) + previousTag][earlierTag];
+	}
+
+
+	/**
+	 * Helper method that returns the log probabilities
+	 * of a POS tag given a preceding tag and each
+	 * possible tag before it.
+	 *
+	 * @param followTag	id of the third POS tag in the trigram (or the STOP index).
+	 *
+	 * @param previousTag	id of the second POS tag in the trigram (or the START index).
+	 *
+	 * @return row of log transition probabilities indexed by earlier tag id.
+	 */
+	public double[] getRow(int followTag, int previousTag) { return logProbability[followTag * (tagTotal + 1) + previousTag]; }
+
+
+	/**
+	 * Helper method that records whether a tag
+	 * bigram occurs in the training dataset.
+	 *
+	 * @param previousTag	id of the first POS tag in the bigram (or the START index).
+	 *
+	 * @param followTag	id of the second POS tag in the bigram (or the STOP index).
+	 *
+	 * @param observed	true if the bigram occurs.
+	 */
+	public void setObserved(int previousTag, int followTag, boolean observed) { observedBigrams[previousTag * (tagTotal + 1) + followTag] = observed; }
+
+
+	/**
+	 * Helper method that determines if a tag
+	 * bigram occurs in the training dataset.
+	 *
+	 * @param previousTag	id of the first POS tag in the bigram (or the START index).
+	 *
+	 * @param followTag	id of the second POS tag in the bigram (or the STOP index).
+	 *
+	 * @return true if the bigram occurs.
+	 */
+	public boolean isObserved(int previousTag, int followTag) { return observedBigrams[previousTag * (tagTotal + 1) + followTag]; }
+
+
+	/**
+	 * Helper method that sets the interpolation weights.
+	 *
+	 * @param unigram	the weight of the unigram estimate.
+	 *
+	 * @param bigram	the weight of the bigram estimate.
+	 *
+	 * @param trigram	the weight of the trigram estimate.
+	 */
+	public void setLambdas(double unigram, double bigram, double trigram) { lambdas[0] = unigram; lambdas[1] = bigram; lambdas[2] = trigram; }
+
+
+	/**
+	 * Helper method that returns the interpolation
+	 * weight of an estimate.
+	 *
+	 * @param order	the order of the estimate: 1 (unigram), 2 (bigram) or 3 (trigram).
+	 *
+	 * @return the weight of the estimate.
+	 */
+	public double getLambda(int order) { return lambdas[order - 1]; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * POS tags (excluding START and STOP) in the matrix.
+	 *
+	 * @return number of POS tags.
+	 */
+	public int getTagTotal() { return tagTotal; }
+
+
+	/**
+	 * Helper method that returns the index
+	 * standing for the <START> tag as an
+	 * earlier or previous tag.
+	 *
+	 * @return index of the START tag.
+	 */
+	public int getStartIndex() { return tagTotal; }
+
+
+	/**
+	 * Helper method that returns the index
+	 * standing for the <STOP> tag as a
+	 * follow tag.
+	 *
+	 * @return index of the STOP tag.
+	 */
+	public int getStopIndex() { return tagTotal; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that returns the count of a tag
+	 * trigram, with the matrix boundary index standing
+	 * for <START> and <STOP>.
+	 *
+	 */
+	private int trigramCount(TrainingCounts counts, int earlier, int previous, int follow)
+	{
+		return counts.getTrigramCount(boundary(earlier), boundary(previous), boundary(follow));
+	}
+
+
+	/**
+	 * Helper method that returns the count of a
+	 * (earlier, previous) tag history, i.e. of the
+	 * bigram the trigram is conditioned on.
+	 *
+	 */
+	private double historyCount(TrainingCounts counts, int earlier, int previous)
+	{
+		if (previous == tagTotal) { return (earlier == tagTotal) ? counts.getSentenceCount() : 0; }
+		return (earlier == tagTotal) ? counts.getStartCount(previous) : counts.getTransitionCount(earlier, previous);
+	}
+
+
+	/**
+	 * Helper method that returns the count of a
+	 * (previous, follow) tag bigram.
+	 *
+	 */
+	private double bigramCount(TrainingCounts counts, int previous, int follow)
+	{
+		if (previous == tagTotal) { return (follow == tagTotal) ? 0 : counts.getStartCount(follow); }
+		return (follow == tagTotal) ? counts.getStopCount(previous) : counts.getTransitionCount(previous, follow);
+	}
+
+
+	/**
+	 * Helper method that returns the count of a
+	 * previous tag (each sentence has one <START>).
+	 *
+	 */
+	private double tagCount(TrainingCounts counts, int previous)
+	{
+		return (previous == tagTotal) ? counts.getSentenceCount() : counts.getTagCount(previous);
+	}
+
+
+	/**
+	 * Helper method that returns the count of a
+	 * follow tag (each sentence has one <STOP>).
+	 *
+	 */
+	private double unigramCount(TrainingCounts counts, int follow)
+	{
+		return (follow == tagTotal) ? counts.getSentenceCount() : counts.getTagCount(follow);
+	}
+
+
+	/**
+	 * Helper method that maps the matrix boundary
+	 * index onto the boundary id of the counts.
+	 *
+	 */
+	private int boundary(int tag) { return (tag == tagTotal) ? TrainingCounts.BOUNDARY : tag; }
+
+}
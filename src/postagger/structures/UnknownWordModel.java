@@ -0,0 +1,366 @@
+package postagger.structures;
+
+import java.util.Arrays;
+
+
+/**
+ * This class represents the emission model of
+ * unknown words (words not in the training dataset),
+ * built once from the rare words of the training
+ * dataset and read-only afterwards.
+ *
+ * Rare words (occurring at most RARE_WORD_COUNT times)
+ * resemble unknown words most, so their tag counts are
+ * recorded by word shape (capitalization, digits, hyphens)
+ * and by the suffixes of the word, in a suffix trie per
+ * shape. The tag distribution of an unknown word is that of
+ * its longest suffix found in the trie of its shape, each
+ * suffix interpolated with the next shorter one (successive
+ * abstraction); its emission log probability with a tag is
+ * then log P(tag | suffix) - log P(tag), up to a term that
+ * is the same for every tag.
+ *
+ * An unknown word is identified by a negative word id that
+ * encodes the trie node of its suffix, so the decoders can
+ * look its emissions up in O(suffix length) without the
+ * word itself.
+ *
+ * @author David Olorundare
+ *
+ */
+public class UnknownWordModel
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the largest number of occurrences of a rare word in the training dataset.
+	private static final int RARE_WORD_COUNT = 10;
+
+	// Represents the length of the longest suffix recorded in the tries.
+	private static final int MAX_SUFFIX_LENGTH = 5;
+
+	// Represents the smallest probability of a candidate tag of an unknown word, relative to its most likely tag.
+	private static final double MIN_RELATIVE_PROBABILITY = 1e-3;
+
+	// Represents the word shape flags; a shape (0 to SHAPES - 1) is a combination of them, and is the root node of its trie.
+	private static final int CAPITALIZED = 1, ALL_CAPITALS = 2, HAS_DIGIT = 4, HAS_HYPHEN = 8, SHAPES = 16;
+
+	// Represents an edge slot that holds no (node, character) pair.
+	private static final long EMPTY_KEY = -1L;
+
+	// Represents the tag ids seen with a rare word, in ascending order: the candidate tags of an unknown word.
+	private int[] tags;
+
+	// Represents the log of each candidate tag's probability, log P(tag), indexed like 'tags'.
+	private double[] logTagProbability;
+
+	// Represents the probability of each candidate tag among the rare word tokens, indexed like 'tags'.
+	private double[] rareTagProbability;
+
+	// Represents the weight of the shorter suffix's distribution when interpolating with a longer suffix.
+	private double theta;
+
+	// Represents the parent of each trie node (-1 for the roots).
+	private int[] parents;
+
+	// Represents the number of rare word tokens counted at each trie node.
+	private int[] nodeTotals;
+
+	// Represents the tag counts of each node: the entries from nodeStarts[node] to nodeStarts[node + 1]
+	// of 'entryTags' (indexes into 'tags') and 'entryCounts'.
+	private int[] nodeStarts;
+	private int[] entryTags;
+	private int[] entryCounts;
+
+	// Represents the trie edges: open-addressing table of (node, character) keys and the child node of each.
+	private long[] edgeKeys;
+	private int[] edgeChildren;
+
+	// Represents the number of edges (and of non-root nodes) in the tries.
+	private int edgeCount = 0;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the class; builds the suffix tries
+	 * from the rare words of a tag/state model.
+	 *
+	 * @param posModel	the tag/state model, with its word and tag indexes, tag counts and emission counts.
+	 *
+	 */
+	public UnknownWordModel(AnalyzedData posModel)
+	{
+		EmissionTable emissions = posModel.getEmissionCounts();
+		SymbolIndex words = posModel.getWordIndex(); SymbolIndex tagIndex = posModel.getTagIndex();
+		int tagTotal = tagIndex.size();
+
+		// Find the rare words, and the tags seen with them.
+		int[] wordCounts = new int[words.size()];
+		for (int slot = 0; slot < emissions.getSlotCount(); slot++)
+		{
+			if (emissions.isUsed(slot)) { wordCounts[emissions.getWordIdAt(slot)] += emissions.getCountAt(slot); }
+		}
+		int[] tagMap = new int[tagTotal];
+		Arrays.fill(tagMap, -1);
+		for (int slot = 0; slot < emissions.getSlotCount(); slot++)
+		{
+			if (emissions.isUsed(slot) && emissions.getCountAt(slot) > 0 && wordCounts[emissions.getWordIdAt(slot)] <= RARE_WORD_COUNT) { tagMap[emissions.getTagIdAt(slot)] = 0; }
+		}
+
+		// Unknown words can be tagged with the tags of the rare words (or with any tag, if no word is rare).
+		int candidateTotal = 0;
+		for (int tag = 0; tag < tagTotal; tag++) { if (tagMap[tag] == 0) { candidateTotal++; } }
+		if (candidateTotal == 0) { Arrays.fill(tagMap, 0); candidateTotal = tagTotal; }
+		tags = new int[candidateTotal];
+		for (int tag = 0, index = 0; tag < tagTotal; tag++)
+		{
+			if (tagMap[tag] == 0) { tagMap[tag] = index; tags[index++] = tag; }
+		}
+
+		// The tag probabilities, and their spread, which weighs a shorter suffix against a longer one.
+		double tokenTotal = 0;
+		for (int tag = 0; tag < tagTotal; tag++) { tokenTotal += posModel.getTagNumber().get(tagIndex.getSymbol(tag)); }
+		double variance = 0;
+		for (int tag = 0; tag < tagTotal; tag++)
+		{
+			double deviation = posModel.getTagNumber().get(tagIndex.getSymbol(tag)) / tokenTotal - 1.0 / tagTotal;
+			variance += deviation * deviation;
+		}
+		theta = (tagTotal > 1) ? Math.sqrt(variance / (tagTotal - 1)) : 1.0;
+		logTagProbability = new double[tags.length];
+		for (int index = 0; index < tags.length; index++) { logTagProbability[index] = Math.log(posModel.getTagNumber().get(tagIndex.getSymbol(tags[index])) / tokenTotal); }
+
+		// Count the tags of the rare words at their shape and at each of their suffixes.
+		newEdgeTable(1024);
+		parents = new int[1024]; nodeTotals = new int[1024];
+		Arrays.fill(parents, 0, SHAPES, -1);
+		EmissionTable nodeCounts = new EmissionTable();
+		double[] rareCounts = new double[tags.length]; double rareTotal = 0;
+		StringBuilder word = new StringBuilder();
+		for (int slot = 0; slot < emissions.getSlotCount(); slot++)
+		{
+			if (!emissions.isUsed(slot) || emissions.getCountAt(slot) == 0 || wordCounts[emissions.getWordIdAt(slot)] > RARE_WORD_COUNT) { continue; }
+
+			words.getSymbol(emissions.getWordIdAt(slot), word);
+			int tag = tagMap[emissions.getTagIdAt(slot)], count = emissions.getCountAt(slot);
+			rareCounts[tag] += count; rareTotal += count;
+
+			int node = getShape(word);
+			nodeCounts.add(node, tag, count); nodeTotals[node] += count;
+			for (int length = 1; length <= Math.min(MAX_SUFFIX_LENGTH, word.length()); length++)
+			{
+				node = addChild(node, word.charAt(word.length() - length));
+				nodeCounts.add(node, tag, count); nodeTotals[node] += count;
+			}
+		}
+		rareTagProbability = new double[tags.length];
+		for (int index = 0; index < tags.length; index++) { rareTagProbability[index] = (rareTotal == 0) ? 1.0 / tags.length : rareCounts[index] / rareTotal; }
+
+		// Lay the tag counts of the nodes out one after another.
+		int nodeTotal = SHAPES + edgeCount;
+		nodeStarts = new int[nodeTotal + 1];
+		for (int slot = 0; slot < nodeCounts.getSlotCount(); slot++) { if (nodeCounts.isUsed(slot)) { nodeStarts[nodeCounts.getWordIdAt(slot) + 1]++; } }
+		for (int node = 0; node < nodeTotal; node++) { nodeStarts[node + 1] += nodeStarts[node]; }
+		entryTags = new int[nodeStarts[nodeTotal]]; entryCounts = new int[entryTags.length];
+		int[] filled = new int[nodeTotal];
+		for (int slot = 0; slot < nodeCounts.getSlotCount(); slot++)
+		{
+			if (!nodeCounts.isUsed(slot)) { continue; }
+			int node = nodeCounts.getWordIdAt(slot);
+			int entry = nodeStarts[node] + filled[node]++;
+			entryTags[entry] = nodeCounts.getTagIdAt(slot); entryCounts[entry] = nodeCounts.getCountAt(slot);
+		}
+		parents = Arrays.copyOf(parents, nodeTotal); nodeTotals = Arrays.copyOf(nodeTotals, nodeTotal);
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Returns the (negative) id of an unknown word,
+	 * which encodes its longest suffix in the trie of
+	 * its shape.
+	 *
+	 * @param word	the unknown word.
+	 *
+	 * @return the id of the unknown word, always negative.
+	 */
+	public int getWordId(CharSequence word)
+	{
+		int node = getShape(word);
+		for (int length = 1; length <= Math.min(MAX_SUFFIX_LENGTH, word.length()); length++)
+		{
+			int child = findChild(node, word.charAt(word.length() - length));
+			if (child < 0) { break; }
+			node = child;
+		}
+		return -1 - node;
+	}
+
+
+	/**
+	 * Computes the candidate tags of an unknown word, and
+	 * its emission log probability with each of them. Tags
+	 * far less likely than the most likely tag of the word
+	 * (by a factor of MIN_RELATIVE_PROBABILITY) are dropped.
+	 *
+	 * @param wordId	the (negative) id of the unknown word; -1 stands for a lowercase word with no known suffix.
+	 *
+	 * @param candidateTags	array (of at least size() entries) receiving the candidate tag ids, in ascending order.
+	 *
+	 * @param logEmissions	array (of at least size() entries) receiving the emission log probability of each candidate tag.
+	 *
+	 * @return the number of candidate tags.
+	 */
+	public int computeCandidates(int wordId, int[] candidateTags, double[] logEmissions)
+	{
+		// Interpolate the distribution of each suffix with that of the next shorter one, down to the shape and
+		// then all rare words: P(tag | suffix) = (f(tag | suffix) + theta P(tag | shorter suffix)) / (1 + theta).
+		double[] probability = logEmissions;
+		Arrays.fill(probability, 0, tags.length, 0.0);
+		double factor = 1.0;
+		for (int node = -1 - wordId; node >= 0; node = parents[node])
+		{
+			if (nodeTotals[node] == 0) { continue; }
+
+			double weight = factor / ((1.0 + theta) * nodeTotals[node]);
+			for (int entry = nodeStarts[node]; entry < nodeStarts[node + 1]; entry++) { probability[entryTags[entry]] += entryCounts[entry] * weight; }
+			factor *= theta / (1.0 + theta);
+		}
+		double best = 0;
+		for (int index = 0; index < tags.length; index++) { probability[index] += factor * rareTagProbability[index]; best = Math.max(best, probability[index]); }
+
+		int count = 0;
+		for (int index = 0; index < tags.length; index++)
+		{
+			if (probability[index] < best * MIN_RELATIVE_PROBABILITY) { continue; }
+			candidateTags[count] = tags[index]; logEmissions[count++] = Math.log(probability[index]) - logTagProbability[index];
+		}
+		return count;
+	}
+
+
+	/**
+	 * Helper method that returns the largest number
+	 * of candidate tags of an unknown word.
+	 *
+	 * @return number of tags seen with a rare word of the training dataset.
+	 */
+	public int size() { return tags.length; }
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that returns the shape of a word.
+	 *
+	 * @param word	the word.
+	 *
+	 * @return the combination of shape flags of the word.
+	 */
+	private static int getShape(CharSequence word)
+	{
+		int shape = 0, letters = 0;
+		boolean lowercase = false;
+		for (int index = 0; index < word.length(); index++)
+		{
+			char character = word.charAt(index);
+			if (Character.isLetter(character)) { letters++; if (Character.isLowerCase(character)) { lowercase = true; } }
+			else if (Character.isDigit(character)) { shape |= HAS_DIGIT; }
+			else if (character == '-') { shape |= HAS_HYPHEN; }
+		}
+		if (word.length() > 0 && Character.isUpperCase(word.charAt(0))) { shape |= CAPITALIZED; }
+		if (letters > 1 && !lowercase) { shape |= ALL_CAPITALS; }
+		return shape;
+	}
+
+
+	/**
+	 * Helper method that returns the child of a trie
+	 * node for a character, creating it if needed.
+	 *
+	 */
+	private int addChild(int node, char character)
+	{
+		int child = findChild(node, character);
+		if (child >= 0) { return child; }
+
+		if ((edgeCount + 1) * 2 > edgeKeys.length) { growEdgeTable(); }
+		child = SHAPES + edgeCount++;
+		if (child == parents.length) { parents = Arrays.copyOf(parents, child * 2); nodeTotals = Arrays.copyOf(nodeTotals, child * 2); }
+		parents[child] = node;
+
+		long key = toKey(node, character);
+		int slot = findSlot(key);
+		edgeKeys[slot] = key; edgeChildren[slot] = child;
+		return child;
+	}
+
+
+	/**
+	 * Helper method that returns the child of a
+	 * trie node for a character.
+	 *
+	 * @return the child node, or -1 if there is none.
+	 */
+	private int findChild(int node, char character)
+	{
+		int slot = findSlot(toKey(node, character));
+		return (edgeKeys[slot] == EMPTY_KEY) ? -1 : edgeChildren[slot];
+	}
+
+
+	/**
+	 * Helper method that returns the slot holding
+	 * an edge key, or the empty slot where it belongs.
+	 *
+	 */
+	private int findSlot(long key)
+	{
+		int mask = edgeKeys.length - 1;
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+		while (edgeKeys[slot] != EMPTY_KEY && edgeKeys[slot] != key) { slot = (slot + 1) & mask; }
+		return slot;
+	}
+
+
+	/**
+	 * Helper method that packs a (node, character) edge into a key.
+	 *
+	 */
+	private static long toKey(int node, char character) { return ((long) node << 16) | character; }
+
+
+	/**
+	 * Helper method that allocates an empty edge table.
+	 *
+	 */
+	private void newEdgeTable(int capacity)
+	{
+		edgeKeys = new long[capacity]; edgeChildren = new int[capacity];
+		Arrays.fill(edgeKeys, EMPTY_KEY);
+	}
+
+
+	/**
+	 * Helper method that doubles the edge table.
+	 *
+	 */
+	private void growEdgeTable()
+	{
+		long[] oldKeys = edgeKeys; int[] oldChildren = edgeChildren;
+		newEdgeTable(oldKeys.length * 2);
+		for (int slot = 0; slot < oldKeys.length; slot++)
+		{
+			if (oldKeys[slot] == EMPTY_KEY) { continue; }
+			int target = findSlot(oldKeys[slot]);
+			edgeKeys[target] = oldKeys[slot]; edgeChildren[target] = oldChildren[slot];
+		}
+	}
+
+}
@@ -0,0 +1,388 @@
+package postagger.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * This class reads a dataset file one sentence at
+ * a time over a memory-mapped view of the file,
+ * without copying it or creating Strings for it.
+ *
+ * Each line is scanned once, recording the byte range
+ * of its word (first) and POS tag (second) columns, so
+ * that word and tag ids can be looked up directly from
+ * the mapped bytes (see SymbolIndex). Sentences are
+ * separated by one or more blank lines.
+ *
+ * Large files are mapped in windows; a reader can also
+ * hand out independent readers over the next few
+ * sentences (e.g. a shard or batch for a worker thread).
+ * A reader is not thread-safe.
+ *
+ * @author David Olorundare
+ *
+ */
+public final class CorpusReader implements Closeable
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Represents the (maximum) size of the part of the file mapped at a time.
+	private static final long WINDOW_SIZE = 1L << 30;
+
+	// Represents the results of scanning the next sentence.
+	private static final int END = 0, SENTENCE = 1, REMAP = 2;
+
+	// Represents the file being read.
+	private FileChannel channel;
+
+	// Determines if this reader opened (and closes) the file.
+	private boolean ownsChannel;
+
+	// Represents the mapped part of the file.
+	private ByteBuffer window;
+
+	// Represents the offset in the file of the start of the mapped window.
+	private long windowStart;
+
+	// Represents the offset in the file of the next byte to read.
+	private long position;
+
+	// Represents the offset in the file at which this reader starts.
+	private long start;
+
+	// Represents the offset in the file at which this reader stops.
+	private long end;
+
+	// Represents the number of tokens in the current sentence.
+	private int tokenCount = 0;
+
+	// Represents the window offsets of the start and end of each line, word and tag of the current sentence.
+	private int[] lineStarts = new int[64];
+	private int[] lineEnds = new int[64];
+	private int[] wordEnds = new int[64];
+	private int[] tagEnds = new int[64];
+
+	// Represents a scratch buffer used to decode the columns that are needed as Strings.
+	private byte[] scratch = new byte[256];
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Constructor of the CorpusReader class; maps
+	 * the start of the given dataset file.
+	 *
+	 * @param file	the dataset file.
+	 *
+	 * @throws IOException	if the file cannot be opened or mapped.
+	 */
+	public CorpusReader(Path file) throws IOException
+	{
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		ownsChannel = true;
+		try
+		{
+			end = channel.size();
+			remap(0);
+		}
+		catch (IOException e) { channel.close(); throw e; }
+	}
+
+
+	/**
+	 * Private Constructor of a reader over a range
+	 * of a window mapped by another reader.
+	 *
+	 */
+	private CorpusReader(FileChannel channel, ByteBuffer window, long windowStart, long start, long end)
+	{
+		this.channel = channel; this.window = window; this.windowStart = windowStart;
+		this.start = start; this.position = start; this.end = end;
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Reads the next sentence of the dataset.
+	 *
+	 * @return true if a sentence was read, false at the end of the dataset.
+	 *
+	 * @throws IOException	if an error occurs while mapping the file.
+	 */
+	public boolean nextSentence() throws IOException
+	{
+		long mark = position;
+		int result;
+		while ( (result = scanSentence()) == REMAP ) { remapAt(mark); }
+		return result == SENTENCE;
+	}
+
+
+	/**
+	 * Skips over the next sentences of the dataset and
+	 * returns a separate reader over them, which can be
+	 * read on another thread.
+	 *
+	 * @param count	the (maximum) number of sentences to skip.
+	 *
+	 * @return a reader over the sentences, or null at the end of the dataset.
+	 *
+	 * @throws IOException	if an error occurs while mapping the file.
+	 */
+	public CorpusReader nextSentences(int count) throws IOException
+	{
+		long first = position;
+		int sentences = 0;
+		while (sentences < count)
+		{
+			long mark = position;
+			int result = scanSentence();
+			if (result == END) { break; }
+			if (result == REMAP)
+			{
+				// End the batch at the end of the mapped window; the next batch starts in a new window.
+				if (sentences > 0) { position = mark; break; }
+				remapAt(mark); first = mark; continue;
+			}
+			sentences++;
+		}
+		tokenCount = 0;
+		return (sentences == 0) ? null : new CorpusReader(channel, window.duplicate(), windowStart, first, position);
+	}
+
+
+	/**
+	 * Helper method that returns the size of
+	 * the dataset (or range of it) read.
+	 *
+	 * @return the number of bytes read by this reader.
+	 */
+	public long size() { return end - start; }
+
+
+	/**
+	 * Helper method that returns the number of
+	 * tokens (lines) in the current sentence.
+	 *
+	 * @return number of tokens in the sentence.
+	 */
+	public int getTokenCount() { return tokenCount; }
+
+
+	/**
+	 * Helper method that returns the mapped bytes
+	 * the column offsets of the current sentence
+	 * refer to.
+	 *
+	 * @return the mapped window of the file.
+	 */
+	public ByteBuffer getBytes() { return window; }
+
+
+	/**
+	 * Helper method that returns the offset of
+	 * the first byte of a token's word.
+	 *
+	 * @param token	index of the token in the sentence.
+	 *
+	 * @return offset of the word in the mapped bytes.
+	 */
+	public int getWordStart(int token) { return lineStarts[token]; }
+
+
+	/**
+	 * Helper method that returns the offset just
+	 * past the last byte of a token's word.
+	 *
+	 * @param token	index of the token in the sentence.
+	 *
+	 * @return offset of the end of the word in the mapped bytes.
+	 */
+	public int getWordEnd(int token) { return wordEnds[token]; }
+
+
+	/**
+	 * Helper method that returns the offset of
+	 * the first byte of a token's POS tag.
+	 *
+	 * @param token	index of the token in the sentence.
+	 *
+	 * @return offset of the tag in the mapped bytes (equal to its end if the line has no tag).
+	 */
+	public int getTagStart(int token) { return (wordEnds[token] == lineEnds[token]) ? lineEnds[token] : wordEnds[token] + 1; }
+
+
+	/**
+	 * Helper method that returns the offset just
+	 * past the last byte of a token's POS tag.
+	 *
+	 * @param token	index of the token in the sentence.
+	 *
+	 * @return offset of the end of the tag in the mapped bytes.
+	 */
+	public int getTagEnd(int token) { return tagEnds[token]; }
+
+
+	/**
+	 * Helper method that returns the whole line
+	 * of a token as a String.
+	 *
+	 * @param token	index of the token in the sentence.
+	 *
+	 * @return the token line.
+	 */
+	public String getLine(int token) { return decode(lineStarts[token], lineEnds[token]); }
+
+
+	/**
+	 * Helper method that returns the word
+	 * of a token as a String.
+	 *
+	 * @param token	index of the token in the sentence.
+	 *
+	 * @return the word of the token.
+	 */
+	public String getWord(int token) { return decode(lineStarts[token], wordEnds[token]); }
+
+
+	/**
+	 * Closes the dataset file, if this reader opened it.
+	 *
+	 * @throws IOException	if an error occurs while closing the file.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (ownsChannel) { channel.close(); }
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Scans the next sentence from the current position,
+	 * recording the columns of each of its lines, and
+	 * moves past it.
+	 *
+	 * @return SENTENCE if a sentence was read, END at the end of the
+	 * 			dataset, or REMAP if the sentence runs past the mapped window.
+	 */
+	private int scanSentence()
+	{
+		long windowEnd = windowStart + window.limit();
+		int limit = (int) (Math.min(end, windowEnd) - windowStart);
+		boolean lastWindow = (windowEnd >= end);
+		int pos = (int) (position - windowStart);
+		tokenCount = 0;
+
+		while (true)
+		{
+			if (pos >= limit) { if (!lastWindow) { return REMAP; } break; }
+
+			// Scan a line, noting where its first two columns end.
+			int lineStart = pos, wordEnd = -1, tagEnd = -1;
+			byte b;
+			while ( pos < limit && (b = window.get(pos)) != '\n' )
+			{
+				if (b == ' ') { if (wordEnd < 0) { wordEnd = pos; } else if (tagEnd < 0) { tagEnd = pos; } }
+				pos++;
+			}
+			if (pos >= limit && !lastWindow) { return REMAP; }
+
+			int lineEnd = pos;
+			if (pos < limit) { pos++; }
+			if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') { lineEnd--; }
+
+			// A blank line ends the sentence; blank lines before a sentence are skipped.
+			if (lineEnd == lineStart) { if (tokenCount == 0) { continue; } break; }
+
+			if (wordEnd < 0 || wordEnd > lineEnd) { wordEnd = lineEnd; }
+			if (tagEnd < 0 || tagEnd > lineEnd) { tagEnd = lineEnd; }
+			addToken(lineStart, lineEnd, wordEnd, tagEnd);
+		}
+
+		position = windowStart + pos;
+		return (tokenCount > 0) ? SENTENCE : END;
+	}
+
+
+	/**
+	 * Helper method that records the columns of a token line.
+	 *
+	 */
+	private void addToken(int lineStart, int lineEnd, int wordEnd, int tagEnd)
+	{
+		if (tokenCount == lineStarts.length)
+		{
+			int capacity = tokenCount * 2;
+			lineStarts = Arrays.copyOf(lineStarts, capacity); lineEnds = Arrays.copyOf(lineEnds, capacity);
+			wordEnds = Arrays.copyOf(wordEnds, capacity); tagEnds = Arrays.copyOf(tagEnds, capacity);
+		}
+		lineStarts[tokenCount] = lineStart; lineEnds[tokenCount] = lineEnd;
+		wordEnds[tokenCount] = wordEnd; tagEnds[tokenCount] = tagEnd;
+		tokenCount++;
+	}
+
+
+	/**
+	 * Helper method that maps the window starting at a
+	 * given offset, so that the sentences starting there
+	 * can be scanned again.
+	 *
+	 * @param offset	the offset in the file to restart from.
+	 *
+	 * @throws IOException	if a single sentence is larger than the window, or the file cannot be mapped.
+	 */
+	private void remapAt(long offset) throws IOException
+	{
+		if (offset == windowStart) { throw new IOException("A sentence of the dataset is larger than " + WINDOW_SIZE + " bytes"); }
+		remap(offset);
+		position = offset;
+	}
+
+
+	/**
+	 * Helper method that maps the window starting at a given offset.
+	 *
+	 * @param offset	the offset in the file of the window.
+	 *
+	 * @throws IOException	if the file cannot be mapped.
+	 */
+	private void remap(long offset) throws IOException
+	{
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, channel.size() - offset));
+		windowStart = offset;
+	}
+
+
+	/**
+	 * Helper method that decodes a range of the mapped bytes.
+	 *
+	 * @param start	offset of the first byte.
+	 *
+	 * @param stop	offset just past the last byte.
+	 *
+	 * @return the decoded String.
+	 */
+	private String decode(int start, int stop)
+	{
+		int length = stop - start;
+		if (length > scratch.length) { scratch = new byte[Math.max(length, scratch.length * 2)]; }
+		window.get(start, scratch, 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+}
@@ -1,12 +1,17 @@
 package postagger.utils;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import postagger.compute.CrossValidator;
+import postagger.compute.IncrementalTrainer;
 import postagger.compute.PosModeler;
+import postagger.compute.TaggedSentenceListener;
 import postagger.compute.ViterbiHMM;
 import postagger.structures.AnalyzedData;
 
@@ -35,6 +40,9 @@ public final class FileHandler
 	// Represents the filepath of a file containing the test-dataset
 	private String testingDataSource;
 	
+	// Represents the filepath of a binary file containing a trained tag/state model.
+	private String modelFilePath;
+	
 	// Represents a File read object for reading-in training data from a file.
 	private BufferedReader readTrainingData;
 	
@@ -126,6 +134,169 @@ public final class FileHandler
 	}
 	
 	
+	/** 
+	 * Helper method that sets the current filepath
+	 * of the binary file a trained tag/state model
+	 * is saved to and loaded from.
+	 * 
+	 * @param filePath	current filepath of the model file.
+	 * 
+	 */
+	public void setModelFilePath(String filePath)
+	{
+		modelFilePath = filePath;
+	}
+	
+	
+	/**
+	 * Loads data from a file containing training data,
+	 * delegates its tag model creation, and saves the
+	 * finalized model to the model file.
+	 * 
+	 * @param	analyzer	an instance of the tag model system used to build the bigram tag/state models.
+	 * 
+	 * @param	smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param	threads	the number of threads used to build the models.
+	 * 
+	 * @return	the finalized tag/state model.
+	 *
+	 * @throws IOException	if an error occurs while reading the input file or writing the model file.
+	 * @throws FileNotFoundException	if the input text file cannot be found.
+	 * 
+	 */
+	public AnalyzedData buildAndSaveModel(PosModeler analyzer, Boolean smoothingEnabled, int threads) throws IOException, FileNotFoundException
+	{
+		try (CorpusReader trainingCorpus = openCorpus(trainingDataSource))
+		{
+			posModel = analyzer.buildModel(trainingCorpus, smoothingEnabled, threads);
+		}
+		ModelFile.getInstance().save(posModel, modelFilePath);
+		return posModel;
+	}
+	
+	
+	/**
+	 * Loads a trained tag/state model from the model file.
+	 * 
+	 * @return	the finalized tag/state model.
+	 *
+	 * @throws IOException	if an error occurs while reading the model file.
+	 * @throws FileNotFoundException	if the model file cannot be found.
+	 * 
+	 */
+	public AnalyzedData loadModel() throws IOException, FileNotFoundException
+	{
+		posModel = ModelFile.getInstance().load(modelFilePath);
+		return posModel;
+	}
+	
+	
+	/**
+	 * Counts the training dataset into an incremental
+	 * trainer, and publishes the first model snapshot
+	 * from it (without saving it).
+	 * 
+	 * @param	analyzer	an instance of the tag model system used to count the training dataset.
+	 * 
+	 * @param	smoothingEnabled	option that determines if smoothing is enabled in the published models.
+	 * 
+	 * @param	threads	the number of threads used to count the training dataset.
+	 * 
+	 * @return	the trainer, holding the counts of the training dataset and its first snapshot.
+	 *
+	 * @throws IOException	if an error occurs while reading the training dataset.
+	 * @throws FileNotFoundException	if the training dataset cannot be found.
+	 * 
+	 */
+	public IncrementalTrainer buildTrainer(PosModeler analyzer, Boolean smoothingEnabled, int threads) throws IOException, FileNotFoundException
+	{
+		IncrementalTrainer trainer;
+		try (CorpusReader trainingCorpus = openCorpus(trainingDataSource))
+		{
+			trainer = new IncrementalTrainer(analyzer.countCorpus(trainingCorpus, threads), smoothingEnabled);
+		}
+		posModel = trainer.publish();
+		return trainer;
+	}
+	
+	
+	/**
+	 * Cross-validates the tagger on the training dataset:
+	 * splits it into folds, read in a single pass, and
+	 * trains and evaluates the folds concurrently.
+	 * 
+	 * @param	validator	the cross-validator, holding the number of folds and the model options.
+	 * 
+	 * @param	threads	the number of threads the folds are evaluated on.
+	 * 
+	 * @return	the cross-validator, holding the evaluation of each fold.
+	 *
+	 * @throws IOException	if an error occurs while reading the training dataset or evaluating a fold.
+	 * @throws FileNotFoundException	if the training dataset cannot be found.
+	 * 
+	 */
+	public CrossValidator crossValidate(CrossValidator validator, int threads) throws IOException, FileNotFoundException
+	{
+		try (CorpusReader trainingCorpus = openCorpus(trainingDataSource))
+		{
+			validator.validate(trainingCorpus, threads);
+		}
+		return validator;
+	}
+	
+	
+	/**
+	 * Loads a trained tag/state model from the model file
+	 * and delegates execution of the HMM Viterbi algorithm
+	 * to tag a given test dataset.
+	 * 
+	 * @param	threads	the number of threads used to tag the test dataset.
+	 * 
+	 * @return	a structure containing the HMM Viterbi tagged data and other performance statistics,
+	 *
+	 * @throws IOException	if an error occurs while reading the model or input file.
+	 * @throws FileNotFoundException	if the model or input file cannot be found.
+	 * 
+	 */
+	public AnalyzedData loadModelAndCompute(int threads) throws IOException, FileNotFoundException
+	{
+		posModel = ModelFile.getInstance().load(modelFilePath);
+		try (BufferedReader testingText = new BufferedReader(new FileReader(testingDataSource)))
+		{
+			return ViterbiHMM.getInstance().computeTags(posModel, testingText, posModel.getSmoothingEnabled(), threads);
+		}
+	}
+	
+	
+	/**
+	 * Loads a trained tag/state model from the model file
+	 * and delegates execution of the HMM Viterbi algorithm
+	 * to tag a given test dataset, streaming each tagged
+	 * sentence to a listener as soon as it is tagged; the
+	 * tagged data is not kept.
+	 * 
+	 * @param	threads	the number of threads used to tag the test dataset.
+	 * 
+	 * @param	listener	the stage receiving each tagged sentence.
+	 * 
+	 * @return	the tag/state model, with the number of test sentences tagged,
+	 *
+	 * @throws IOException	if an error occurs while reading the model or input file, or in the listener.
+	 * @throws FileNotFoundException	if the model or input file cannot be found.
+	 * 
+	 */
+	public AnalyzedData loadModelAndCompute(int threads, TaggedSentenceListener listener) throws IOException, FileNotFoundException
+	{
+		posModel = ModelFile.getInstance().load(modelFilePath);
+		try (CorpusReader testingCorpus = openCorpus(testingDataSource))
+		{
+			posModel.setTestDataSentenceCount(ViterbiHMM.getInstance().tagStream(posModel, testingCorpus, posModel.getSmoothingEnabled(), threads, listener));
+			return posModel;
+		}
+	}
+	
+	
 	/**
 	 * Loads data from a file containing training data and
 	 * delegates its tag model creation as well as execution
@@ -144,48 +315,175 @@ public final class FileHandler
 	 */
 	public AnalyzedData loadAndCompute(PosModeler analyzer, Boolean smoothingEnabled) throws IOException, FileNotFoundException
 	{
-		textProcessor = analyzer;
+		return loadAndCompute(analyzer, smoothingEnabled, 1);
+	}
 	
-        // Read-in training and testing data. 
-        readTrainingData = new BufferedReader(new FileReader(trainingDataSource)); 
-        readTestingData = new BufferedReader(new FileReader(testingDataSource));
-        
-        // check if stream is ready for reading; analyze the text.
-        if (readTrainingData.ready() && readTestingData.ready() )
-        { posModel = textProcessor.buildModel(readTrainingData, smoothingEnabled);} 
-        else { throw new IOException("Error Reading the Input training dataset"); }
-        
-        readTrainingData.close();
+	
+	/**
+	 * Loads data from a file containing training data and
+	 * delegates its tag model creation as well as execution
+	 * of the HMM Viterbi algorithm to tag a given test dataset,
+	 * both on a given number of threads.
+	 *  
+	 * 
+	 * @param	analyzer	an instance of the tag model system used to build the bigram tag/state models.
+	 * 
+	 * @param	smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param	threads	the number of threads used to build the models and tag the test dataset.
+	 * 
+	 * @return	a structure containing the HMM Viterbi tagged data and other performance statistics,
+	 *
+	 * @throws IOException	if an error occurs while reading the input file.
+	 * @throws FileNotFoundException	if the input or output text files are empty or cannot be found.
+	 * 
+	 */
+	public AnalyzedData loadAndCompute(PosModeler analyzer, Boolean smoothingEnabled, int threads) throws IOException, FileNotFoundException
+	{
+		buildModel(analyzer, smoothingEnabled, threads);
         
         // Pass the model format and the test dataset to the HMM Engine
-        posModel = ViterbiHMM.getInstance().computeTags(posModel,readTestingData, smoothingEnabled);
+        posModel = ViterbiHMM.getInstance().computeTags(posModel,readTestingData, smoothingEnabled, threads);
         readTestingData.close();      
         
         return posModel;
-    
 	}
 	
 	
 	/**
-	 * Helper method that writes some string data
-	 * to the given external output file.
+	 * Loads data from a file containing training data and
+	 * delegates its tag model creation as well as execution
+	 * of the HMM Viterbi algorithm to tag a given test dataset,
+	 * streaming each tagged sentence to a listener as soon as
+	 * it is tagged; the tagged data is not kept.
+	 *  
+	 * 
+	 * @param	analyzer	an instance of the tag model system used to build the bigram tag/state models.
+	 * 
+	 * @param	smoothingEnabled	option that determines if smoothing is enabled.
 	 * 
-	 * @param data	the string data to be written to 
-	 * 				a given external file.
+	 * @param	threads	the number of threads used to build the models and tag the test dataset.
+	 * 
+	 * @param	listener	the stage receiving each tagged sentence.
+	 * 
+	 * @return	the tag/state model, with the number of test sentences tagged,
+	 *
+	 * @throws IOException	if an error occurs while reading the input file, or in the listener.
+	 * @throws FileNotFoundException	if the input or output text files are empty or cannot be found.
 	 * 
-	 * @throws IOException if an error occurs while reading the input file.
 	 */
-	public void writeToFile(String data) throws IOException
+	public AnalyzedData loadAndCompute(PosModeler analyzer, Boolean smoothingEnabled, int threads, TaggedSentenceListener listener) 
+			throws IOException, FileNotFoundException
 	{
-		Writer textFileWriter = new FileWriter(outputDestination);
+		textProcessor = analyzer;
 		
-		textFileWriter.write(data);
-		textFileWriter.close();
+        // Map the training and testing data. 
+		try (CorpusReader trainingCorpus = openCorpus(trainingDataSource); CorpusReader testingCorpus = openCorpus(testingDataSource))
+		{
+	        // check if there is data to read; analyze the text.
+	        if (trainingCorpus.size() > 0 && testingCorpus.size() > 0)
+	        { posModel = textProcessor.buildModel(trainingCorpus, smoothingEnabled, threads);} 
+	        else { throw new IOException("Error Reading the Input training dataset"); }
+	        
+	        // Pass the model format and the test dataset to the HMM Engine
+	        posModel.setTestDataSentenceCount(ViterbiHMM.getInstance().tagStream(posModel, testingCorpus, smoothingEnabled, threads, listener));
+		}
+        return posModel;
+	}
+	
+	
+	/**
+	 * Helper method that opens a buffered writer
+	 * to the given external output file, so that
+	 * results can be streamed to it.
+	 * 
+	 * @return a buffered writer to the output file.
+	 * 
+	 * @throws IOException if the output file cannot be opened.
+	 */
+	public BufferedWriter openOutputWriter() throws IOException
+	{
+		return new BufferedWriter(new FileWriter(outputDestination), 1 << 16);
+	}
+	
+	
+	/**
+	 * Helper method that opens a dataset file for reading
+	 * its sentences over a memory-mapped view of the file.
+	 * 
+	 * @param filePath	the filepath of the dataset.
+	 * 
+	 * @return a reader of the dataset.
+	 * 
+	 * @throws IOException	if the dataset cannot be opened or mapped.
+	 */
+	public static CorpusReader openCorpus(String filePath) throws IOException
+	{
+		PipelineMetrics.Span loading = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.LOAD);
+		CorpusReader corpus = new CorpusReader(Paths.get(filePath));
+		loading.stop();
+		return corpus;
+	}
+	
+	
+	/**
+	 * Helper method that reads the token lines
+	 * of the next sentence in a dataset; sentences
+	 * are separated by blank lines.
+	 * 
+	 * @param dataSource	the dataset source.
+	 * 
+	 * @return the token lines of the sentence, or null at the end of the dataset.
+	 * 
+	 * @throws IOException	if an error occurs while reading the dataset source.
+	 */
+	public static String[] readSentence(BufferedReader dataSource) throws IOException
+	{
+		ArrayList<String> sentence = new ArrayList<String>();
+		String lineRead;
+		while ( (lineRead = dataSource.readLine()) != null )
+		{
+			// End of sentence reached; skip any further blank lines before the next sentence.
+			if (lineRead.equals("")) { if (sentence.isEmpty()) { continue; } break; }
+			sentence.add(lineRead);
+		}
+		return sentence.isEmpty() ? null : sentence.toArray(new String[sentence.size()]);
 	}
 	
 	
 	//============================================ PRIVATE METHODS =============================================================
 	
-	// No Private Methods
+	
+	/**
+	 * Helper method that opens the training and test
+	 * datasets and builds the tag/state models from the
+	 * training dataset; the test dataset is left open.
+	 * 
+	 * @param	analyzer	an instance of the tag model system used to build the bigram tag/state models.
+	 * 
+	 * @param	smoothingEnabled	option that determines if smoothing is enabled.
+	 * 
+	 * @param	threads	the number of threads used to build the models.
+	 *
+	 * @throws IOException	if an error occurs while reading the input file.
+	 * @throws FileNotFoundException	if the input text files are empty or cannot be found.
+	 * 
+	 */
+	private void buildModel(PosModeler analyzer, Boolean smoothingEnabled, int threads) throws IOException, FileNotFoundException
+	{
+		textProcessor = analyzer;
+		
+        // Read-in training and testing data. 
+        readTrainingData = new BufferedReader(new FileReader(trainingDataSource)); 
+        readTestingData = new BufferedReader(new FileReader(testingDataSource));
+        
+        // check if stream is ready for reading; analyze the text.
+        if (readTrainingData.ready() && readTestingData.ready() )
+        { posModel = textProcessor.buildModel(readTrainingData, smoothingEnabled, threads);} 
+        else { throw new IOException("Error Reading the Input training dataset"); }
+        
+        readTrainingData.close();
+	}
+	
 
 }
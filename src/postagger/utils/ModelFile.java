@@ -0,0 +1,285 @@
+package postagger.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import postagger.structures.AnalyzedData;
+import postagger.structures.EmissionTable;
+import postagger.structures.SymbolIndex;
+import postagger.structures.TagDictionary;
+import postagger.structures.TransitionMatrix;
+import postagger.structures.TrigramMatrix;
+
+
+/**
+ * This class saves a finalized tag/state model
+ * to a versioned binary file, and loads it back
+ * by memory-mapping the file, so that a tagging
+ * process can start without re-reading (and
+ * re-counting) the training dataset.
+ *
+ * File layout (big-endian):
+ *  magic, version, smoothing flag, training statistics,
+ *  tag set (with tag counts), vocabulary,
+ *  emission counts (word id, tag id, count),
+ *  transition matrix (log probabilities),
+ *  trigram interpolation weights, observed tag bigrams
+ *  and trigram transition matrix (log probabilities).
+ * Strings are stored as a length followed by their UTF-8 bytes.
+ *
+ * @author David Olorundare
+ *
+ */
+public final class ModelFile
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Holds an instance to this class.
+	private volatile static ModelFile instance;
+
+	// Represents the magic number that starts every model file ("PTAG").
+	private static final int MAGIC = 0x50544147;
+
+	// Represents the version of the model file layout written by this class.
+	private static final int VERSION = 2;
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Private Constructor of the ModelFile class.
+	 */
+	private ModelFile(){	}
+
+
+	/**
+	 * Returns a singleton instance of the ModelFile class,
+	 * ensuring that only one instance of the class is active
+	 * at any single time.
+	 *
+	 */
+	public static ModelFile getInstance()
+	{
+		if (instance == null)
+		{
+			synchronized (ModelFile.class)
+			{
+				if (instance == null)
+				{
+					instance = new ModelFile();
+				}
+			}
+		}
+		return instance;
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Saves a finalized tag/state model to a binary model file.
+	 *
+	 * @param posModel	the finalized tag/state model.
+	 *
+	 * @param filePath	the filepath of the model file to write.
+	 *
+	 * @throws IOException	if an error occurs while writing the file.
+	 */
+	public void save(AnalyzedData posModel, String filePath) throws IOException
+	{
+		SymbolIndex tags = posModel.getTagIndex(); SymbolIndex words = posModel.getWordIndex();
+		EmissionTable emissions = posModel.getEmissionCounts(); TransitionMatrix transitions = posModel.getTransitionMatrix();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16)))
+		{
+			out.writeInt(MAGIC); out.writeInt(VERSION);
+			out.writeBoolean(posModel.getSmoothingEnabled());
+
+			// Training dataset statistics reported alongside the tagged data.
+			out.writeInt(posModel.getSentenceCount()); out.writeInt(posModel.getUniqueTokenCount()); out.writeInt(posModel.getWordTokens());
+			out.writeInt(posModel.getTagCount()); out.writeInt(posModel.getUniqueBigramsCount()); out.writeInt(posModel.getTagNumber().get("<START>"));
+
+			out.writeInt(tags.size());
+			for (int tag = 0; tag < tags.size(); tag++)
+			{
+				writeString(out, tags.getSymbol(tag)); out.writeInt(posModel.getTagNumber().get(tags.getSymbol(tag)));
+			}
+
+			out.writeInt(words.size());
+			for (int word = 0; word < words.size(); word++) { writeString(out, words.getSymbol(word)); }
+
+			out.writeInt(emissions.size());
+			for (int slot = 0; slot < emissions.getSlotCount(); slot++)
+			{
+				if (!emissions.isUsed(slot)) { continue; }
+				out.writeInt(emissions.getWordIdAt(slot)); out.writeInt(emissions.getTagIdAt(slot)); out.writeInt(emissions.getCountAt(slot));
+			}
+
+			for (int follow = 0; follow <= tags.size(); follow++)
+			{
+				for (int previous = 0; previous <= tags.size(); previous++) { out.writeDouble(transitions.getLogProbability(follow, previous)); }
+			}
+
+			TrigramMatrix trigrams = posModel.getTrigramMatrix();
+			out.writeDouble(trigrams.getLambda(1)); out.writeDouble(trigrams.getLambda(2)); out.writeDouble(trigrams.getLambda(3));
+			for (int previous = 0; previous <= tags.size(); previous++)
+			{
+				for (int follow = 0; follow <= tags.size(); follow++) { out.writeBoolean(trigrams.isObserved(previous, follow)); }
+			}
+			for (int follow = 0; follow <= tags.size(); follow++)
+			{
+				for (int previous = 0; previous <= tags.size(); previous++)
+				{
+					for (int earlier = 0; earlier <= tags.size(); earlier++) { out.writeDouble(trigrams.getLogProbability(follow, previous, earlier)); }
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Helper method that determines if a file
+	 * is a model file, from its magic number.
+	 *
+	 * @param filePath	the filepath of the file to check.
+	 *
+	 * @return true if the file starts like a model file (of any version).
+	 *
+	 * @throws IOException	if an error occurs while reading the file.
+	 */
+	public boolean isModelFile(String filePath) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) { return in.readInt() == MAGIC; }
+		catch (EOFException e) { return false; }
+	}
+
+
+	/**
+	 * Loads a finalized tag/state model from a binary model
+	 * file, reading it through a memory-mapped buffer.
+	 *
+	 * @param filePath	the filepath of the model file to read.
+	 *
+	 * @return the finalized tag/state model.
+	 *
+	 * @throws IOException	if an error occurs while reading the file, or it is not a model file of this version.
+	 */
+	public AnalyzedData load(String filePath) throws IOException
+	{
+		PipelineMetrics.Span loading = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.LOAD);
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ))
+		{
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (channel.size() < 8 || in.getInt() != MAGIC) { throw new IOException(filePath + " is not a POS tagger model file"); }
+			int version = in.getInt();
+			if (version != VERSION) { throw new IOException("Unsupported model file version " + version + " in " + filePath); }
+
+			AnalyzedData posModel = new AnalyzedData();
+			posModel.setSmoothingEnabled(in.get() != 0);
+			posModel.setSentenceCount(in.getInt()); posModel.setUniqueTokenCount(in.getInt()); posModel.setWordTokens(in.getInt());
+			posModel.setTagCount(in.getInt()); posModel.setUniqueBigramsCount(in.getInt());
+
+			HashMap<String, Integer> tagNumber = new HashMap<String, Integer>();
+			tagNumber.put("<START>", in.getInt());
+			SymbolIndex tags = new SymbolIndex();
+			int tagTotal = in.getInt();
+			for (int tag = 0; tag < tagTotal; tag++)
+			{
+				String symbol = readString(in);
+				tags.intern(symbol); tagNumber.put(symbol, in.getInt());
+			}
+
+			// Read the vocabulary straight into its off-heap index, without a String per word.
+			SymbolIndex words = SymbolIndex.readOffHeap(in, in.getInt());
+
+			int emissionTotal = in.getInt();
+			EmissionTable emissions = new EmissionTable(emissionTotal);
+			for (int entry = 0; entry < emissionTotal; entry++) { emissions.add(in.getInt(), in.getInt(), in.getInt()); }
+
+			TransitionMatrix transitions = new TransitionMatrix(tagTotal);
+			for (int follow = 0; follow <= tagTotal; follow++)
+			{
+				for (int previous = 0; previous <= tagTotal; previous++) { transitions.setLogProbability(follow, previous, in.getDouble()); }
+			}
+
+			TrigramMatrix trigrams = new TrigramMatrix(tagTotal);
+			trigrams.setLambdas(in.getDouble(), in.getDouble(), in.getDouble());
+			for (int previous = 0; previous <= tagTotal; previous++)
+			{
+				for (int follow = 0; follow <= tagTotal; follow++) { trigrams.setObserved(previous, follow, in.get() != 0); }
+			}
+			for (int follow = 0; follow <= tagTotal; follow++)
+			{
+				for (int previous = 0; previous <= tagTotal; previous++)
+				{
+					for (int earlier = 0; earlier <= tagTotal; earlier++) { trigrams.setLogProbability(follow, previous, earlier, in.getDouble()); }
+				}
+			}
+
+			tags.freeze();
+			posModel.setTagIndex(tags); posModel.setWordIndex(words); posModel.setTagNumber(tagNumber);
+			posModel.setEmissionCounts(emissions); posModel.setTransitionMatrix(transitions); posModel.setTrigramMatrix(trigrams);
+			loading.stop();
+
+			PipelineMetrics.Span finalizing = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.FINALIZE);
+			posModel.setTagDictionary(new TagDictionary(posModel));
+			finalizing.stop();
+			return posModel;
+		}
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that writes a string as its
+	 * length followed by its UTF-8 bytes.
+	 *
+	 * @param out	the model file stream.
+	 *
+	 * @param value	the string to write.
+	 *
+	 * @throws IOException	if an error occurs while writing the file.
+	 */
+	private void writeString(DataOutputStream out, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length); out.write(bytes);
+	}
+
+
+	/**
+	 * Helper method that reads a string stored as
+	 * its length followed by its UTF-8 bytes.
+	 *
+	 * @param in	the mapped model file.
+	 *
+	 * @return the string read.
+	 */
+	private String readString(ByteBuffer in)
+	{
+		int length = in.getInt();
+		String value = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+		in.position(in.position() + length);
+		return value;
+	}
+
+}
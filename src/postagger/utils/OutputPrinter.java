@@ -1,56 +1,89 @@
 package postagger.utils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.List;
 
+import postagger.compute.TaggedSentenceListener;
 import postagger.structures.AnalyzedData;
+import postagger.structures.DistinctCounter;
+import postagger.structures.EmissionCache;
+import postagger.structures.EvaluationCounts;
+import postagger.structures.SymbolIndex;
 import postagger.structures.TaggedToken;
 
 
 /**
  * Printing Utility class that outputs information
- * to the console about the HMM Viterbi models and tagged data 
+ * to the console about the HMM Viterbi models and tagged data
  * analysis and also stores it in a given output-file.
- * 
+ *
+ * The tagged data is streamed: each tagged sentence is
+ * written (buffered) to the console and the output-file
+ * as soon as it is received, and the statistics are
+ * appended once the whole test dataset has been tagged.
+ *
  * @author David Olorundare
  *
  */
-public final class OutputPrinter 
+public final class OutputPrinter implements TaggedSentenceListener
 {
-	
+
 	//============================================ PRIVATE VARIABLES =============================================================
-	
-	
+
+
 	// Holds an instance to this class
 	private volatile static OutputPrinter instance;
-	
-	// Represents the output analysis information 
-	// to be displayed and stored in an external file.
-	StringBuilder output;
-	
+
+	// Represents the size of the console and output-file write buffers.
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// Represents the buffered destinations (console and output-file) of the output.
+	private Writer[] destinations;
+
+	// Represents the line of output currently being formatted.
+	private StringBuilder line = new StringBuilder();
+
 	// Determines if the format of the test data is different from the training data.
-	private Boolean alternateFormat = false;
-	
-	
+	private Boolean alternateFormat = null;
+
+	// Represents the number of tokens tagged.
+	private int totalTags = 0;
+
+	// Represents the number of unknown-word (out-of-vocabulary) tokens tagged.
+	private int unknownTokens = 0;
+
+	// Represents the evaluation of the assigned POS tags against the labelled tags (confusion matrix, known/unknown accuracy).
+	private EvaluationCounts evaluation = new EvaluationCounts();
+
+	// Represents the cache of unknown word candidates of the tagging run, once every sentence is tagged; null until then.
+	private EmissionCache emissionCache;
+
+	// Represents the estimated number of distinct unknown words (not in the training dataset) in the test dataset, in fixed memory.
+	private DistinctCounter unknownWords = new DistinctCounter();
+
+
 	//============================================ CONSTRUCTOR =============================================================
-	
-	
+
+
 	/**
 	 * Private Constructor of the OutputPrinter class.
-	 * 
+	 *
 	 */
 	private OutputPrinter(){	}
-	
-	
+
+
 	/**
 	  * Returns a singleton instance of the OutputPrinter class,
-	  * ensuring that only one instance of the class is active 
+	  * ensuring that only one instance of the class is active
 	  * at any single time.
-	  * 
+	  *
 	  */
-	public static OutputPrinter getInstance() 
+	public static OutputPrinter getInstance()
 	{
 		if (instance == null)
 	      {
@@ -64,223 +97,320 @@ public final class OutputPrinter
 	      }
 	      return instance;
 	}
-	
-	
+
+
 	//============================================ PUBLIC METHODS =============================================================
-	
-	
+
+
 	/**
 	 * Helper method that prints data analysis
 	 * of the POS tagging evaluation information.
-	 * 
+	 *
 	 * @param data	the results of the POS tagger evaluation to print out.
-	 * 
+	 *
+	 * @throws IOException	if an error occurs while writing the output-file.
 	 */
 	public void printAnalysisToScreen(AnalyzedData data) throws IOException
 	{
-		output = new StringBuilder();
-		//========================== STATISTICS OF COMPUTATION ================================
-		
-		//Retrieve tag data, and determine performance: measure accuracy between reported tag and actual tag of a given token.
-		int goodTags = 0;
-		
-		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
-		tagged = data.getTaggedData();
-		
-		// Checked the format of the test dataset lines to determine what should be outputted.
-		if (tagged.get(0).token.split(" ").length < 2 ) { alternateFormat = true; }
-		
-		if (!alternateFormat)
-		{	for (TaggedToken taggedData : tagged)
+		beginOutput();
+		try
+		{
+			sentenceTagged(data.getTaggedData());
+			finishOutput(data);
+		}
+		finally { closeOutput(); }
+	}
+
+
+	/**
+	 * Opens the console and the output-file for
+	 * streaming tagged sentences to them.
+	 *
+	 * @throws IOException	if the output-file cannot be opened.
+	 */
+	public void beginOutput() throws IOException
+	{
+		beginOutput(new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE), FileHandler.getInstance().openOutputWriter());
+	}
+	
+	
+	/**
+	 * Starts streaming tagged sentences to a given
+	 * console and output-file writer.
+	 *
+	 * @param console	the writer standing for the console; it is flushed, not closed, at the end.
+	 *
+	 * @param file	the writer standing for the output-file; it is closed at the end.
+	 *
+	 * @throws IOException	if the previous output cannot be closed.
+	 */
+	public void beginOutput(Writer console, Writer file) throws IOException
+	{
+		closeOutput();
+		destinations = new Writer[] { console, file };
+		alternateFormat = null; totalTags = 0; unknownTokens = 0; unknownWords.clear(); emissionCache = null;
+		evaluation = new EvaluationCounts();
+	}
+
+
+	/**
+	 * Writes the tokens of a tagged sentence, and the
+	 * tags the Viterbi algorithm assigned to each of them,
+	 * and counts how many of the tags are correct.
+	 *
+	 * @param sentence	the tokens of the sentence and the POS tags assigned to them.
+	 *
+	 * @throws IOException	if an error occurs while writing the output-file.
+	 */
+	@Override
+	public void sentenceTagged(List<TaggedToken> sentence) throws IOException
+	{
+		PipelineMetrics.Span writing = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.OUTPUT);
+		for (TaggedToken taggedData : sentence)
+		{
+			String token = taggedData.token; String tag = taggedData.matrixData.rowX;
+			int wordEnd = token.indexOf(' ');
+
+			// Checked the format of the test dataset lines to determine what should be outputted.
+			if (alternateFormat == null) { alternateFormat = (wordEnd < 0); }
+
+			line.setLength(0);
+			if (!alternateFormat)
 			{
-				if (taggedData.token.split(" ")[1].equals(taggedData.matrixData.rowX)){ goodTags++; }
+				// Output the word, its labelled tag, and the tag assigned by the Viterbi algorithm.
+				int tagEnd = token.indexOf(' ', wordEnd + 1);
+				if (tagEnd < 0) { tagEnd = token.length(); }
+				line.append(token, 0, tagEnd).append(' ').append(tag).append('\n');
+
+				// Count the token in the confusion matrix of its labelled and assigned tags.
+				evaluation.addToken(evaluation.getTagId(token.substring(wordEnd + 1, tagEnd)), evaluation.getTagId(tag), taggedData.unknownWord);
+			}
+			else
+			{
+				line.append(token, 0, (wordEnd < 0) ? token.length() : wordEnd).append("  ").append(tag).append('\n');
 			}
+			if (taggedData.unknownWord) { unknownTokens++; unknownWords.add(taggedData.matrixData.ColY); }
+			totalTags++;
+			write(line);
 		}
+		writing.stop(1, sentence.size());
+	}
+
+
+	/**
+	 * Keeps the cache of unknown word candidates of the
+	 * tagging run, to report its hits and misses.
+	 *
+	 * @param cache	the emission cache shared by the decoders of the run.
+	 */
+	@Override
+	public void taggingFinished(EmissionCache cache) { emissionCache = cache; }
+
+
+	/**
+	 * Appends the statistics of the training data and of
+	 * the tagging performance to the streamed tagged data,
+	 * and closes the output.
+	 *
+	 * @param data	structure containing statistics on the training and test datasets.
+	 *
+	 * @throws IOException	if an error occurs while writing the output-file.
+	 */
+	public void finishOutput(AnalyzedData data) throws IOException
+	{
+		PipelineMetrics.Span writing = PipelineMetrics.getInstance().start(PipelineMetrics.Stage.OUTPUT);
+		line.setLength(0);
+
 		// For debugging - output statistics about the training data tag/state models.
 		appendTrainingStatistics(data);
-		
-		// Works only for the WSJ-test.txt dataset, but 
-		// Not used for the POS-test.txt dataset since 
+
+		// Works only for the WSJ-test.txt dataset, but
+		// Not used for the POS-test.txt dataset since
 		// it has no labelling to compare if the Viterbi tags are correct.
-		// Hence we check 'alternativeFormat' boolean to ensure the test data 
+		// Hence we check 'alternativeFormat' boolean to ensure the test data
 		// is not the POS-test.txt.
-		if (!alternateFormat) { appendPerformanceStatistics(data, goodTags); }
-		
-		
-		appendTaggedData(data);
-		
-		//=============================================================================
-		
-		// Print the analysis results to the console.
-		System.out.println(output.toString());
-	
-		// Save the analysis results to an external file.
-		printAnalysisToFile(output.toString());
+		if (alternateFormat != null && !alternateFormat) { appendPerformanceStatistics(data); }
+
+		write(line);
+		closeOutput();
+		writing.stop();
 	}
 
 
-	//============================================ PRIVATE METHODS =============================================================
-	
-	
 	/**
-	 * Helper method that outputs the dataset
-	 * tagged by the Viterbi system.
-	 * 
-	 * @param data	structure containing the tagged dataset.
-	 * 
+	 * Flushes the console and closes the output-file,
+	 * if they are open.
+	 *
+	 * @throws IOException	if an error occurs while writing the output-file.
 	 */
-	private void appendTaggedData(AnalyzedData data) 
+	public void closeOutput() throws IOException
 	{
-		// Output the tokens and the tags the Viterbi algorithm assigned to each of them.
-		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
-		tagged = data.getTaggedData();
-		
-		// Determine if the test dataset line format is the same as the training dataset before outputting. 
-		if (!alternateFormat)
-		{	for (TaggedToken taggedData : tagged)
-			{
-				output.append(taggedData.token.split(" ")[0] + " " + taggedData.token.split(" ")[1] +" " + taggedData.matrixData.rowX + "\n");
-			}
+		if (destinations == null) { return; }
+		Writer[] open = destinations; destinations = null;
+
+		TaggerEvents.OutputFlush event = new TaggerEvents.OutputFlush();
+		event.begin();
+		try { open[0].flush(); }
+		finally
+		{
+			open[1].close();
+			if (event.shouldCommit()) { event.destination = "console and output-file"; event.commit(); }
 		}
-		else
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that writes formatted output
+	 * to the console and the output-file.
+	 *
+	 * @param text	the formatted output.
+	 *
+	 * @throws IOException	if an error occurs while writing the output-file.
+	 */
+	private void write(CharSequence text) throws IOException
+	{
+		for (Writer destination : destinations)
 		{
-			for (TaggedToken taggedData : tagged)
-			{
-				output.append(taggedData.token.split(" ")[0] + "  " + taggedData.matrixData.rowX + "\n");
-			}
+			destination.append(text);
 		}
-		
 	}
 
-	
+
 	/**
 	 * Helper method that output statistics
 	 * on the performance of the Viterbi system
-	 * in tagging a given test dataset.
-	 * 
+	 * in tagging a given test dataset: the accuracy
+	 * on all, known and unknown words, the precision,
+	 * recall and F1 of each tag, and the confusion
+	 * matrix of the labelled and assigned tags.
+	 *
 	 * @param data	structure containing statistics on the training dataset.
-	 * 
-	 * @param goodTags	counter that tracks correctly identified POS tags.
-	 * 
+	 *
 	 */
-	private void appendPerformanceStatistics(AnalyzedData data, int goodTags) 
+	private void appendPerformanceStatistics(AnalyzedData data)
 	{
 		// Determine percentage tagging accuracy of the Viterbi system.
 		DecimalFormat precision = new DecimalFormat("0.00");
-		
-		// The total number of unknown words in the testing data
-		int totalUnknownWords = data.getUnknowWords().size();
-		
-		int totalTags = 0;
-		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>(); tagged = data.getTaggedData();
-		for (TaggedToken taggedData : tagged)
-		{
-			totalTags++;
-		}
-		// Compute the Confusion Matrix values.
+
+		// The number of tokens, and of correctly tagged tokens, of known and of unknown words (each occurrence of an unknown word is scored).
+		int totalTags = evaluation.getTokenCount(), goodTags = evaluation.getCorrectCount();
+		int totalUnknownWords = evaluation.getUnknownCount(), unknownWordsTagged = evaluation.getUnknownCorrectCount();
 		int totalKnownWords = totalTags - totalUnknownWords;
-		int unknownWordsTagged = identifiedUnknownWords(data); 
 		int identifiedKnownWords = goodTags - unknownWordsTagged;
-				
+
 		// Determine the accuracy rates.
-		Double accuracy = new Integer(goodTags).doubleValue()/new Integer(totalTags).doubleValue(); accuracy *= 100;
-		Double knownWordAccuracy = new Integer(identifiedKnownWords).doubleValue()/new Integer(totalKnownWords).doubleValue(); knownWordAccuracy *= 100;
-		Double unknownWordAccuracy = new Integer(unknownWordsTagged).doubleValue()/new Integer(totalUnknownWords).doubleValue(); unknownWordAccuracy *= 100;
-		
-		output.append("\nAccuracy:\t" + goodTags +"/" + totalTags + " = " + precision.format(accuracy) + "\n" );
-		output.append(" - Known:\t" + identifiedKnownWords + "/" + totalKnownWords + " = " + precision.format(knownWordAccuracy) + "\n");
-		output.append(" - UnKnown:\t" + unknownWordsTagged + "/" + totalUnknownWords + " = " + precision.format(unknownWordAccuracy)+ "\n\n");
-	}
+		double accuracy = (double) goodTags / totalTags * 100;
+		double knownWordAccuracy = (double) identifiedKnownWords / totalKnownWords * 100;
+		double unknownWordAccuracy = (double) unknownWordsTagged / totalUnknownWords * 100;
 
+		line.append("\nAccuracy:\t" + goodTags +"/" + totalTags + " = " + precision.format(accuracy) + "\n" );
+		line.append(" - Known:\t" + identifiedKnownWords + "/" + totalKnownWords + " = " + precision.format(knownWordAccuracy) + "\n");
+		line.append(" - UnKnown:\t" + unknownWordsTagged + "/" + totalUnknownWords + " = " + precision.format(unknownWordAccuracy)+ "\n\n");
 
-	/**
-	 * Helper method that outputs statistics
-	 * on the training dataset.
-	 * 
-	 * @param data	structure containing statistics on the training dataset.
-	 * 
-	 */
-	private void appendTrainingStatistics(AnalyzedData data) 
-	{
-		// Subtract the additional word class <UNK> from the list of POS tags.
-		output.append("\n* POS tags: \n- # of all POS tags (excluding STOP): " + (data.getTagWord().keySet().size()-1) + "\n");
-		
-		output.append("\n* Training data:\n- # of sentences: " + data.getSentenceCount() + "\n");
-		output.append("- # of unique words: " + data.getUniqueTokenCount() + "\n");
-		output.append("- # of word tokens: " + data.getWordTokens() + "\n");
-		
-		// Tag number = tags + STOP_Tag_number-of-sentences.
-		output.append("- # of POS tags: " + data.getTagCount() + "\n" );
-				
-		// Number of bigram tags.
-		output.append("- # of Bigrams: " + data.getUniqueBigramsCount() + "\n" );
-		
-		int totalTags = 0;
-		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
-		tagged = data.getTaggedData();
-		for (TaggedToken taggedData : tagged)
+		// List the tags alphabetically.
+		SymbolIndex tags = evaluation.getTagIndex();
+		Integer[] order = new Integer[tags.size()];
+		for (int tag = 0; tag < order.length; tag++) { order[tag] = tag; }
+		Arrays.sort(order, (first, second) -> tags.getSymbol(first).compareTo(tags.getSymbol(second)));
+
+		line.append("Per-tag metrics (%):\nTag\tLabelled\tTagged\tPrecision\tRecall\tF1\n");
+		for (int tag : order)
 		{
-			totalTags++;
+			line.append(tags.getSymbol(tag)).append('\t').append(evaluation.getLabelledCount(tag)).append('\t').append(evaluation.getAssignedCount(tag));
+			line.append('\t').append(formatPercent(precision, evaluation.getPrecision(tag))).append('\t').append(formatPercent(precision, evaluation.getRecall(tag)));
+			line.append('\t').append(formatPercent(precision, evaluation.getF1(tag))).append('\n');
 		}
-		
-		// Number of word tokens in the test dataset inclusive of the <STOP> tags (which are just the number sentences).
-		output.append("\n* Test data:\n- # of word tokens (including </s>'s): " + (totalTags + data.getTestSentenceCount()) + "\n\n");
+
+		// Each column is as wide as its tag or its largest count; a '.' stands for no token.
+		int[] widths = new int[order.length];
+		int labelWidth = 0;
+		for (int column = 0; column < order.length; column++)
+		{
+			widths[column] = tags.getSymbol(order[column]).length();
+			labelWidth = Math.max(labelWidth, widths[column]);
+			for (int row : order) { widths[column] = Math.max(widths[column], String.valueOf(evaluation.getCount(row, order[column])).length()); }
+		}
+		line.append("\nConfusion matrix (rows: labelled tag, columns: assigned tag):\n");
+		pad("", labelWidth);
+		for (int column = 0; column < order.length; column++) { line.append(' '); pad(tags.getSymbol(order[column]), widths[column]); }
+		line.append('\n');
+		for (int row : order)
+		{
+			pad(tags.getSymbol(row), labelWidth);
+			for (int column = 0; column < order.length; column++)
+			{
+				int count = evaluation.getCount(row, order[column]);
+				line.append(' '); pad((count == 0) ? "." : String.valueOf(count), widths[column]);
+			}
+			line.append('\n');
+		}
+		line.append('\n');
 	}
 
 
-	//============================================ PRIVATE METHODS =============================================================
-	
+	/**
+	 * Helper method that formats a ratio
+	 * as a percentage.
+	 *
+	 * @param precision	the format of the percentage.
+	 *
+	 * @param ratio	the ratio to format, or NaN if it is undefined.
+	 *
+	 * @return the formatted percentage, or '-' if the ratio is undefined.
+	 */
+	private static String formatPercent(DecimalFormat precision, double ratio) { return Double.isNaN(ratio) ? "-" : precision.format(ratio * 100); }
+
 
 	/**
-	 * Helper method that prints some given
-	 * HMM Viterbi system evaluation analysis data to an external file.
-	 * 
-	 * @param data	the HMM Viterbi evaluation analysis information to store in an external file.
-	 * 
-	 * @throws IOException	if an error occurs while reading the external file.
+	 * Helper method that appends a value to the
+	 * output line, right-aligned to a given width.
+	 *
+	 * @param value	the value to append.
+	 *
+	 * @param width	the width of the column.
+	 *
 	 */
-	private void printAnalysisToFile(String data) throws IOException
+	private void pad(String value, int width)
 	{
-		FileHandler saveToFile = FileHandler.getInstance();
-		
-		saveToFile.writeToFile(data);
-		
+		for (int i = value.length(); i < width; i++) { line.append(' '); }
+		line.append(value);
 	}
 
-	
-	
+
 	/**
-	 * Helper method that determines the unknown words
-	 * in the testing dataset that were correctly identified.
-	 * 
-	 * @param data	statistics data on the Viterbi algorithm execution.
-	 * 
-	 * @return number of unknown words correctly identified.
+	 * Helper method that outputs statistics
+	 * on the training dataset.
+	 *
+	 * @param data	structure containing statistics on the training dataset.
+	 *
 	 */
-	private int identifiedUnknownWords(AnalyzedData data)
+	private void appendTrainingStatistics(AnalyzedData data)
 	{
-		HashSet<String> unknownWords = data.getUnknowWords();
-		
-		int correctlyIdentified = 0;
-		
-		ArrayList<TaggedToken> tagged = new ArrayList<TaggedToken>();
-		
-		tagged = data.getTaggedData();
-		
-					
-		for(String word : unknownWords)
+		line.append("\n* POS tags: \n- # of all POS tags (excluding STOP): " + data.getTagIndex().size() + "\n");
+
+		line.append("\n* Training data:\n- # of sentences: " + data.getSentenceCount() + "\n");
+		line.append("- # of unique words: " + data.getUniqueTokenCount() + "\n");
+		line.append("- # of word tokens: " + data.getWordTokens() + "\n");
+
+		// Tag number = tags + STOP_Tag_number-of-sentences.
+		line.append("- # of POS tags: " + data.getTagCount() + "\n" );
+
+		// Number of bigram tags.
+		line.append("- # of Bigrams: " + data.getUniqueBigramsCount() + "\n" );
+
+		// Number of word tokens in the test dataset inclusive of the <STOP> tags (which are just the number sentences).
+		line.append("\n* Test data:\n- # of word tokens (including </s>'s): " + (totalTags + data.getTestSentenceCount()) + "\n");
+		line.append("- # of unknown word tokens: " + unknownTokens + " (about " + unknownWords.getEstimate() + " unique words)\n");
+
+		// Hits and misses of the cache of unknown word candidates, to size it for the traffic.
+		if (emissionCache != null && emissionCache.isEnabled())
 		{
-			for (TaggedToken taggedData : tagged)
-			{
-				if(taggedData.token.split(" ")[0].equals(word) && (taggedData.token.split(" ")[1].equals(taggedData.matrixData.rowX))  )
-				{
-					correctlyIdentified++;
-				}
-			}
+			line.append("- emission cache (" + emissionCache.getCapacity() + " words): " + emissionCache.getHits() + " hits, " + emissionCache.getMisses() + " misses\n");
 		}
-		
-		return correctlyIdentified;
 	}
-	
-	
+
+
 }
@@ -0,0 +1,377 @@
+package postagger.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * This class records where the time of a run goes:
+ * the wall time of each stage of the pipeline (loading,
+ * building and finalizing the model, decoding and
+ * output), the throughput of the stages that process
+ * sentences, and the latency of tagging each sentence,
+ * as a histogram per sentence length bucket.
+ *
+ * Where the JVM provides them (HotSpot), the bytes
+ * allocated by the thread running each stage, and by
+ * the thread tagging each sentence, are recorded too.
+ *
+ * Recording is off by default; while it is off, the
+ * stages only check a flag. The recorded metrics can
+ * be written as a JSON document.
+ *
+ * @author David Olorundare
+ *
+ */
+public final class PipelineMetrics
+{
+
+	//============================================ PRIVATE VARIABLES =============================================================
+
+
+	// Holds an instance to this class.
+	private volatile static PipelineMetrics instance;
+
+	// Represents the smallest sentence length of each length bucket of the latency histograms.
+	private static final int[] LENGTH_BUCKETS = { 1, 6, 11, 21, 41, 81 };
+
+	// Represents the number of latency bins of a histogram: bin 'b' counts the latencies of at most 2^b microseconds,
+	// and the last bin the longer ones.
+	private static final int LATENCY_BINS = 24;
+
+	// Represents the span returned while recording is off; stopping it records nothing.
+	private static final Span IDLE_SPAN = new Span(null);
+
+	// Determines if metrics are recorded.
+	private volatile boolean enabled = false;
+
+	// Represents the JVM thread management interface, if it measures the bytes allocated by a thread.
+	private final com.sun.management.ThreadMXBean allocations;
+
+	// Represents, for each stage, the number of runs, wall time, bytes allocated, sentences and tokens processed.
+	private final StageTotals[] stages = new StageTotals[Stage.values().length];
+
+	// Represents the number of tagged sentences of each latency bin, indexed by [lengthBucket * LATENCY_BINS + bin].
+	private final AtomicLongArray latencyBins = new AtomicLongArray(LENGTH_BUCKETS.length * LATENCY_BINS);
+
+	// Represents, for each length bucket, the sentences tagged, their total latency and the bytes allocated tagging them.
+	private final LongAdder[] bucketSentences = newAdders(LENGTH_BUCKETS.length);
+	private final LongAdder[] bucketNanos = newAdders(LENGTH_BUCKETS.length);
+	private final LongAdder[] bucketBytes = newAdders(LENGTH_BUCKETS.length);
+
+
+	/**
+	 * The stages of the tagging pipeline.
+	 */
+	public enum Stage
+	{
+		// Reading a model file, or opening a dataset.
+		LOAD,
+		// Counting a training dataset into a tag/state model.
+		BUILD,
+		// Computing the decoding structures (transition matrix, tag dictionary, unknown word model) of a model.
+		FINALIZE,
+		// Tagging a test dataset (including the output of the tagged sentences, which is streamed).
+		DECODE,
+		// Writing the tagged sentences and statistics.
+		OUTPUT
+	}
+
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Private Constructor of the PipelineMetrics class.
+	 */
+	private PipelineMetrics()
+	{
+		for (int stage = 0; stage < stages.length; stage++) { stages[stage] = new StageTotals(); }
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean measured = null;
+		if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+		{
+			measured = (com.sun.management.ThreadMXBean) threads;
+			if (!measured.isThreadAllocatedMemoryEnabled()) { measured.setThreadAllocatedMemoryEnabled(true); }
+		}
+		allocations = measured;
+	}
+
+
+	/**
+	 * Returns a singleton instance of the PipelineMetrics class,
+	 * ensuring that only one instance of the class is active
+	 * at any single time.
+	 *
+	 */
+	public static PipelineMetrics getInstance()
+	{
+		if (instance == null)
+		{
+			synchronized (PipelineMetrics.class)
+			{
+				if (instance == null)
+				{
+					instance = new PipelineMetrics();
+				}
+			}
+		}
+		return instance;
+	}
+
+
+	//============================================ PUBLIC METHODS =============================================================
+
+
+	/**
+	 * Helper method that turns the recording
+	 * of metrics on or off.
+	 *
+	 * @param value	true to record metrics.
+	 */
+	public void setEnabled(boolean value) { enabled = value; }
+
+
+	/**
+	 * Helper method that determines if
+	 * metrics are recorded.
+	 *
+	 * @return true if metrics are recorded.
+	 */
+	public boolean isEnabled() { return enabled; }
+
+
+	/**
+	 * Starts timing a run of a pipeline stage on the current
+	 * thread; the run is recorded when the returned span is
+	 * stopped (by the same thread).
+	 *
+	 * @param stage	the stage being run.
+	 *
+	 * @return the span of the run.
+	 */
+	public Span start(Stage stage)
+	{
+		return enabled ? new Span(stages[stage.ordinal()]) : IDLE_SPAN;
+	}
+
+
+	/**
+	 * Records the tagging of a sentence: its latency in
+	 * the histogram of its length bucket, and in the
+	 * throughput of the decoding stage.
+	 *
+	 * @param length	the number of tokens in the sentence.
+	 *
+	 * @param nanos	the time taken to tag the sentence, in nanoseconds.
+	 *
+	 * @param allocatedBytes	the bytes allocated tagging the sentence, or -1 if not measured.
+	 */
+	public void recordSentence(int length, long nanos, long allocatedBytes)
+	{
+		int bucket = LENGTH_BUCKETS.length - 1;
+		while (bucket > 0 && length < LENGTH_BUCKETS[bucket]) { bucket--; }
+
+		// The bin of a latency is the number of bits of its (rounded up) microseconds, less one.
+		long micros = Math.max(1, (nanos + 999) / 1000);
+		int bin = Math.min(LATENCY_BINS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+		latencyBins.incrementAndGet(bucket * LATENCY_BINS + bin);
+		bucketSentences[bucket].increment(); bucketNanos[bucket].add(nanos);
+		if (allocatedBytes >= 0) { bucketBytes[bucket].add(allocatedBytes); }
+
+		StageTotals decode = stages[Stage.DECODE.ordinal()];
+		decode.sentences.increment(); decode.tokens.add(length);
+	}
+
+
+	/**
+	 * Helper method that returns the number of bytes
+	 * allocated so far by the current thread.
+	 *
+	 * @return the allocated bytes, or -1 if the JVM does not measure them.
+	 */
+	public long getAllocatedBytes()
+	{
+		return (allocations == null) ? -1 : allocations.getCurrentThreadAllocatedBytes();
+	}
+
+
+	/**
+	 * Writes the recorded metrics as a JSON document.
+	 *
+	 * @param out	the destination of the document; it is flushed, not closed.
+	 *
+	 * @throws IOException	if an error occurs while writing the document.
+	 */
+	public void writeJson(Writer out) throws IOException
+	{
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"allocation_measured\": ").append(allocations != null).append(",\n  \"stages\": {");
+		for (Stage stage : Stage.values())
+		{
+			StageTotals totals = stages[stage.ordinal()];
+			double seconds = totals.nanos.sum() / 1e9;
+			long sentences = totals.sentences.sum(), tokens = totals.tokens.sum();
+
+			json.append((stage.ordinal() == 0) ? "\n" : ",\n").append("    \"").append(stage.name().toLowerCase(Locale.ROOT)).append("\": { ");
+			json.append("\"runs\": ").append(totals.runs.sum());
+			json.append(", \"wall_ms\": ").append(format(seconds * 1e3));
+			json.append(", \"allocated_bytes\": ").append((allocations == null) ? "null" : Long.toString(totals.bytes.sum()));
+			json.append(", \"sentences\": ").append(sentences).append(", \"tokens\": ").append(tokens);
+			json.append(", \"sentences_per_sec\": ").append((seconds > 0 && sentences > 0) ? format(sentences / seconds) : "null");
+			json.append(", \"tokens_per_sec\": ").append((seconds > 0 && tokens > 0) ? format(tokens / seconds) : "null");
+			json.append(" }");
+		}
+		json.append("\n  },\n  \"sentence_latency\": [");
+		for (int bucket = 0; bucket < LENGTH_BUCKETS.length; bucket++)
+		{
+			long sentences = bucketSentences[bucket].sum();
+			json.append((bucket == 0) ? "\n" : ",\n").append("    { \"min_length\": ").append(LENGTH_BUCKETS[bucket]);
+			json.append(", \"max_length\": ").append((bucket + 1 < LENGTH_BUCKETS.length) ? Integer.toString(LENGTH_BUCKETS[bucket + 1] - 1) : "null");
+			json.append(", \"sentences\": ").append(sentences);
+			json.append(", \"mean_us\": ").append((sentences == 0) ? "null" : format(bucketNanos[bucket].sum() / 1e3 / sentences));
+			json.append(", \"p50_us\": ").append(percentile(bucket, sentences, 0.50));
+			json.append(", \"p99_us\": ").append(percentile(bucket, sentences, 0.99));
+			json.append(", \"allocated_bytes_per_sentence\": ").append((allocations == null || sentences == 0) ? "null" : format((double) bucketBytes[bucket].sum() / sentences));
+			json.append(", \"histogram_us\": [");
+			boolean first = true;
+			for (int bin = 0; bin < LATENCY_BINS; bin++)
+			{
+				long count = latencyBins.get(bucket * LATENCY_BINS + bin);
+				if (count == 0) { continue; }
+				json.append(first ? "" : ", ").append("{ \"le\": ").append(binLimit(bin)).append(", \"count\": ").append(count).append(" }");
+				first = false;
+			}
+			json.append("] }");
+		}
+		json.append("\n  ]\n}\n");
+		out.append(json);
+		out.flush();
+	}
+
+
+	//============================================ PRIVATE METHODS =============================================================
+
+
+	/**
+	 * Helper method that returns the upper limit, in
+	 * microseconds, of a latency bin of a histogram,
+	 * or null (as JSON) for the last, unbounded bin.
+	 *
+	 */
+	private static String binLimit(int bin)
+	{
+		return (bin == LATENCY_BINS - 1) ? "null" : Long.toString(1L << bin);
+	}
+
+
+	/**
+	 * Helper method that estimates a latency percentile of
+	 * a length bucket, as the upper limit of the bin in
+	 * which it falls, or null (as JSON) if unknown.
+	 *
+	 */
+	private String percentile(int bucket, long sentences, double fraction)
+	{
+		if (sentences == 0) { return "null"; }
+
+		long rank = (long) Math.ceil(fraction * sentences), seen = 0;
+		for (int bin = 0; bin < LATENCY_BINS; bin++)
+		{
+			seen += latencyBins.get(bucket * LATENCY_BINS + bin);
+			if (seen >= rank) { return binLimit(bin); }
+		}
+		return "null";
+	}
+
+
+	/**
+	 * Helper method that formats a
+	 * number with one decimal.
+	 *
+	 */
+	private static String format(double value) { return String.format(Locale.ROOT, "%.1f", value); }
+
+
+	/**
+	 * Helper method that creates an
+	 * array of zeroed counters.
+	 *
+	 */
+	private static LongAdder[] newAdders(int count)
+	{
+		LongAdder[] adders = new LongAdder[count];
+		for (int index = 0; index < count; index++) { adders[index] = new LongAdder(); }
+		return adders;
+	}
+
+
+	/**
+	 * The totals recorded for a stage.
+	 */
+	private static final class StageTotals
+	{
+		final LongAdder runs = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+		final LongAdder sentences = new LongAdder();
+		final LongAdder tokens = new LongAdder();
+	}
+
+
+	/**
+	 * A run of a pipeline stage being timed; it measures
+	 * the wall time, and the bytes allocated by the thread
+	 * that started it, until it is stopped.
+	 */
+	public static final class Span
+	{
+		// Represents the totals of the stage, or null for a span that records nothing.
+		private final StageTotals totals;
+
+		// Represents the time and allocated bytes of the thread when the span started.
+		private final long startNanos, startBytes;
+
+		/**
+		 * Constructor of the class; starts the span.
+		 *
+		 * @param totals	the totals of the stage, or null to record nothing.
+		 */
+		private Span(StageTotals totals)
+		{
+			this.totals = totals;
+			startBytes = (totals == null) ? 0 : getInstance().getAllocatedBytes();
+			startNanos = (totals == null) ? 0 : System.nanoTime();
+		}
+
+		/**
+		 * Stops the span and records the run of its stage.
+		 */
+		public void stop() { stop(0, 0); }
+
+		/**
+		 * Stops the span and records the run of its stage,
+		 * along with the sentences and tokens it processed.
+		 *
+		 * @param sentences	the number of sentences processed.
+		 *
+		 * @param tokens	the number of tokens processed.
+		 */
+		public void stop(long sentences, long tokens)
+		{
+			if (totals == null) { return; }
+
+			totals.nanos.add(System.nanoTime() - startNanos);
+			long bytes = getInstance().getAllocatedBytes();
+			if (bytes >= 0) { totals.bytes.add(bytes - startBytes); }
+			totals.runs.increment(); totals.sentences.add(sentences); totals.tokens.add(tokens);
+		}
+	}
+
+}
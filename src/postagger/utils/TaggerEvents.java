@@ -0,0 +1,175 @@
+package postagger.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * This class holds the Java Flight Recorder event
+ * types emitted by the tagger, so that a recording
+ * of a slow run shows which stages and sentences
+ * take the time.
+ *
+ * Every event type is disabled by default; a recording
+ * enables them by name (e.g. '+postagger.SentenceDecode#enabled=true'
+ * in -XX:StartFlightRecording, or in a .jfc settings file).
+ * While an event type is disabled, shouldCommit() is false
+ * and the JIT compiler removes the event objects, so the
+ * instrumented code only pays for the fields it counts.
+ *
+ * @author David Olorundare
+ *
+ */
+public final class TaggerEvents
+{
+
+	//============================================ CONSTRUCTOR =============================================================
+
+
+	/**
+	 * Private Constructor of the class; it only holds the event types.
+	 */
+	private TaggerEvents(){	}
+
+
+	//============================================ EVENT TYPES =============================================================
+
+
+	/**
+	 * The counting of a training dataset into a
+	 * tag/state model (excluding finalization).
+	 */
+	@Name("postagger.ModelBuild")
+	@Label("Model Build")
+	@Category({ "POS Tagger" })
+	@Description("Counting a training dataset into a tag/state model")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class ModelBuild extends Event
+	{
+		@Label("Sentences")
+		public int sentences;
+
+		@Label("Tokens")
+		public int tokens;
+
+		@Label("Threads")
+		public int threads;
+	}
+
+
+	/**
+	 * The tagging of a batch of sentences by a
+	 * worker thread of the Viterbi HMM engine, or
+	 * of a run of sentences on a single thread.
+	 */
+	@Name("postagger.DecodeBatch")
+	@Label("Decode Batch")
+	@Category({ "POS Tagger" })
+	@Description("Tagging of a batch of sentences by a worker thread, or on the calling thread")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class DecodeBatch extends Event
+	{
+		@Label("Sentences")
+		public int sentences;
+
+		@Label("Tokens")
+		public int tokens;
+
+		@Label("States Evaluated")
+		public long states;
+
+		@Label("Unknown Words")
+		@Description("Number of out-of-vocabulary tokens")
+		public int unknownWords;
+	}
+
+
+	/**
+	 * The tagging of a single sentence.
+	 */
+	@Name("postagger.SentenceDecode")
+	@Label("Sentence Decode")
+	@Category({ "POS Tagger" })
+	@Description("Tagging of a single sentence")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class SentenceDecode extends Event
+	{
+		@Label("Length")
+		@Description("Number of tokens in the sentence")
+		public int length;
+
+		@Label("States Evaluated")
+		public int states;
+
+		@Label("Unknown Words")
+		@Description("Number of out-of-vocabulary tokens")
+		public int unknownWords;
+	}
+
+
+	/**
+	 * The lookup of an unknown (out-of-vocabulary)
+	 * word in the unknown word model.
+	 */
+	@Name("postagger.UnknownWord")
+	@Label("Unknown Word")
+	@Category({ "POS Tagger" })
+	@Description("Lookup of an out-of-vocabulary word in the suffix/shape model")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class UnknownWord extends Event
+	{
+		@Label("Word")
+		public String word;
+
+		@Label("Suffix Node")
+		@Description("The node of the word's longest known suffix in the suffix tries")
+		public int suffixNode;
+	}
+
+
+	/**
+	 * The computation of the candidates of an unknown
+	 * word missing from the emission cache.
+	 */
+	@Name("postagger.EmissionCacheMiss")
+	@Label("Emission Cache Miss")
+	@Category({ "POS Tagger" })
+	@Description("Computation of the candidate tags of an unknown word missing from the emission cache")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class EmissionCacheMiss extends Event
+	{
+		@Label("Word Id")
+		public int wordId;
+
+		@Label("Candidates")
+		@Description("Number of candidate tags computed")
+		public int candidates;
+	}
+
+
+	/**
+	 * The flushing of tagged output to its destination.
+	 */
+	@Name("postagger.OutputFlush")
+	@Label("Output Flush")
+	@Category({ "POS Tagger" })
+	@Description("Flushing of tagged output to its destination")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class OutputFlush extends Event
+	{
+		@Label("Destination")
+		public String destination;
+	}
+
+}